@@ -0,0 +1,342 @@
+package com.example.legal_connect.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the notifications table range-partitioned by month on created_at.
+ *
+ * Hibernate creates notifications as a plain table; on startup it is converted once
+ * into a partitioned table with a partition per month and a default partition. A
+ * daily job creates partitions ahead of time and applies retention: a partition
+ * entirely older than the retention period with no unread rows is detached and kept
+ * as notifications_archive_yYYYYmMM, and old read rows in other partitions are
+ * moved to notifications_archive. Unread notifications are never archived. Archived
+ * rows and detached partitions older than app.notification.archive-retention-days
+ * are dropped.
+ *
+ * The work runs on its own thread so a long copy or archive run neither holds up
+ * startup nor the shared scheduler. Nodes starting together serialize the
+ * conversion on an advisory lock, and the one that gets it second finds the table
+ * already converted.
+ *
+ * Only runs on PostgreSQL; other databases are left untouched.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationPartitionMaintenance implements CommandLineRunner {
+
+    private static final String TABLE = "notifications";
+    private static final String ARCHIVE_TABLE = "notifications_archive";
+    private static final Pattern PARTITION_NAME = Pattern.compile("notifications_y(\\d{4})m(\\d{2})");
+    private static final Pattern ARCHIVED_PARTITION_NAME = Pattern.compile("notifications_archive_y(\\d{4})m(\\d{2})");
+
+    private static final String PARTITIONS_SQL =
+        "SELECT c.relname FROM pg_inherits i "
+            + "JOIN pg_class c ON c.oid = i.inhrelid "
+            + "JOIN pg_class p ON p.oid = i.inhparent "
+            + "WHERE p.relname = '" + TABLE + "'";
+
+    private static final String ARCHIVED_PARTITIONS_SQL =
+        "SELECT relname FROM pg_class WHERE relkind = 'r' AND relname LIKE '" + ARCHIVE_TABLE + "\\_y%' "
+            + "AND relnamespace = current_schema()::regnamespace";
+
+    // pg_advisory_xact_lock key for changes to the table layout ("notif" in ASCII)
+    private static final long LAYOUT_LOCK = 0x6e6f746966L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+    @Value("${app.notification.partition.enabled}")
+    private boolean enabled;
+
+    @Value("${app.notification.partition.months-ahead}")
+    private int monthsAhead;
+
+    @Value("${app.notification.retention-days}")
+    private int retentionDays;
+
+    @Value("${app.notification.archive-batch-size}")
+    private int archiveBatchSize;
+
+    @Value("${app.notification.archive-retention-days}")
+    private int archiveRetentionDays;
+
+    @PostConstruct
+    void init() {
+        executor.setThreadNamePrefix("notification-partitions-");
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.initialize();
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdown();
+    }
+
+    @Override
+    public void run(String... args) {
+        submit("conversion", () -> {
+            if (!isActive()) {
+                return;
+            }
+            if (!isPartitioned()) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    lockLayout();
+                    if (!isPartitioned()) {
+                        convertToPartitionedTable();
+                    }
+                });
+            }
+            createUpcomingPartitions();
+        });
+    }
+
+    @Scheduled(cron = "${app.notification.partition.maintenance-cron}")
+    public void maintain() {
+        submit("maintenance", () -> {
+            if (!isActive() || !isPartitioned()) {
+                return;
+            }
+            createUpcomingPartitions();
+            applyRetention();
+        });
+    }
+
+    private void submit(String name, Runnable task) {
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (DataAccessException e) {
+                    log.error("Notification partition {} failed", name, e);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            log.warn("Notification partition {} skipped, previous run still busy", name);
+        }
+    }
+
+    private void lockLayout() {
+        jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?)", LAYOUT_LOCK);
+    }
+
+    private boolean isActive() {
+        if (!enabled) {
+            return false;
+        }
+        try {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+            return "PostgreSQL".equalsIgnoreCase(product);
+        } catch (DataAccessException e) {
+            log.warn("Cannot determine database for notification partitioning: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean isPartitioned() {
+        List<String> kinds = jdbcTemplate.queryForList(
+            "SELECT relkind::text FROM pg_class WHERE relname = ? AND relnamespace = current_schema()::regnamespace",
+            String.class, TABLE);
+        return !kinds.isEmpty() && "p".equals(kinds.get(0));
+    }
+
+    /**
+     * One-time conversion of the Hibernate-created table. The old table is dropped
+     * before keys and indexes are added, since they reuse its names. The primary key
+     * has to include the partition key, and ids come from a plain sequence since the
+     * identity column cannot be carried over to a partitioned table.
+     */
+    private void convertToPartitionedTable() {
+        log.info("Converting {} to a monthly partitioned table", TABLE);
+        String legacy = TABLE + "_unpartitioned";
+        String sequence = TABLE + "_id_seq";
+
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + legacy);
+        jdbcTemplate.execute("UPDATE " + legacy + " SET created_at = now() WHERE created_at IS NULL");
+        jdbcTemplate.execute("CREATE TABLE " + TABLE + " (LIKE " + legacy + " INCLUDING DEFAULTS) "
+            + "PARTITION BY RANGE (created_at)");
+
+        Timestamp oldest = jdbcTemplate.queryForObject("SELECT min(created_at) FROM " + legacy, Timestamp.class);
+        YearMonth month = oldest != null ? YearMonth.from(oldest.toLocalDateTime()) : YearMonth.now();
+        while (!month.isAfter(YearMonth.now())) {
+            createPartition(month);
+            month = month.plusMonths(1);
+        }
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + TABLE + "_default PARTITION OF " + TABLE + " DEFAULT");
+
+        jdbcTemplate.execute("INSERT INTO " + TABLE + " SELECT * FROM " + legacy);
+        Long maxId = jdbcTemplate.queryForObject("SELECT coalesce(max(id), 0) FROM " + TABLE, Long.class);
+        jdbcTemplate.execute("DROP TABLE " + legacy);
+
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + sequence);
+        jdbcTemplate.execute("SELECT setval('" + sequence + "', " + (maxId + 1) + ", false)");
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " ALTER COLUMN id SET DEFAULT nextval('" + sequence + "')");
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " ALTER COLUMN created_at SET NOT NULL");
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD PRIMARY KEY (id, created_at)");
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD CONSTRAINT fk_notifications_user "
+            + "FOREIGN KEY (user_id) REFERENCES users(id)");
+
+        // Indexes on the parent are created on every partition, current and future
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_user_isread ON " + TABLE + " (user_id, is_read)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_user_type_target ON " + TABLE
+            + " (user_id, type, related_entity_type, related_entity_id)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_user_created ON " + TABLE + " (user_id, created_at)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_user_unread ON " + TABLE
+            + " (user_id) WHERE is_read = false");
+
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + ARCHIVE_TABLE + " (LIKE " + TABLE + ")");
+        log.info("Converted {} to a partitioned table", TABLE);
+    }
+
+    private void createUpcomingPartitions() {
+        YearMonth month = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            try {
+                createPartition(month.plusMonths(i));
+            } catch (DataAccessException e) {
+                // Rows for this month already landed in the default partition
+                log.warn("Could not create notification partition for {}: {}", month.plusMonths(i), e.getMessage());
+            }
+        }
+    }
+
+    private void createPartition(YearMonth month) {
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.plusMonths(1).atDay(1);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month) + " PARTITION OF " + TABLE
+            + " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+    }
+
+    private String partitionName(YearMonth month) {
+        return String.format("%s_y%04dm%02d", TABLE, month.getYear(), month.getMonthValue());
+    }
+
+    private void applyRetention() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        YearMonth cutoffMonth = YearMonth.from(cutoff);
+
+        List<String> partitions = tableNames(PARTITIONS_SQL);
+
+        for (String partition : partitions) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (!matcher.matches()) {
+                continue;
+            }
+            YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            if (!month.isBefore(cutoffMonth)) {
+                continue;
+            }
+            Boolean hasUnread = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + partition + " WHERE is_read = false)", Boolean.class);
+            if (Boolean.FALSE.equals(hasUnread)) {
+                String archived = partition.replace(TABLE + "_", ARCHIVE_TABLE + "_");
+                boolean detached = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                    lockLayout();
+                    if (!tableNames(PARTITIONS_SQL).contains(partition)) {
+                        // Another node detached it first
+                        return false;
+                    }
+                    jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + partition);
+                    jdbcTemplate.execute("ALTER TABLE " + partition + " RENAME TO " + archived);
+                    return true;
+                }));
+                if (detached) {
+                    log.info("Detached notification partition {} as {}", partition, archived);
+                }
+            }
+        }
+
+        archiveReadNotifications(cutoff);
+        dropExpiredArchives(LocalDateTime.now().minusDays(archiveRetentionDays));
+    }
+
+    /**
+     * Drop detached partitions and archived rows older than the archive retention
+     */
+    private void dropExpiredArchives(LocalDateTime cutoff) {
+        YearMonth cutoffMonth = YearMonth.from(cutoff);
+        for (String table : tableNames(ARCHIVED_PARTITIONS_SQL)) {
+            Matcher matcher = ARCHIVED_PARTITION_NAME.matcher(table);
+            if (!matcher.matches()) {
+                continue;
+            }
+            YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            if (month.isBefore(cutoffMonth)) {
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + table);
+                log.info("Dropped archived notification partition {}", table);
+            }
+        }
+
+        String sql = "DELETE FROM " + ARCHIVE_TABLE + " WHERE ctid IN ("
+            + "SELECT ctid FROM " + ARCHIVE_TABLE + " WHERE created_at < ? LIMIT ?)";
+        long total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(sql, Timestamp.valueOf(cutoff), archiveBatchSize);
+            total += deleted;
+        } while (deleted == archiveBatchSize);
+        if (total > 0) {
+            log.info("Dropped {} archived notifications older than {}", total, cutoff);
+        }
+    }
+
+    private List<String> tableNames(String sql) {
+        return jdbcTemplate.queryForList(sql, String.class);
+    }
+
+    /**
+     * Move read notifications older than the cutoff out of the live table in batches
+     */
+    private void archiveReadNotifications(LocalDateTime cutoff) {
+        String columns = String.join(", ", jdbcTemplate.queryForList(
+            "SELECT column_name FROM information_schema.columns "
+                + "WHERE table_name = ? AND table_schema = current_schema() ORDER BY ordinal_position",
+            String.class, ARCHIVE_TABLE));
+        if (columns.isEmpty()) {
+            return;
+        }
+
+        String sql = "WITH moved AS ("
+            + "DELETE FROM " + TABLE + " WHERE (id, created_at) IN ("
+            + "SELECT id, created_at FROM " + TABLE + " WHERE is_read = true AND created_at < ? LIMIT ?) "
+            + "RETURNING " + columns + ") "
+            + "INSERT INTO " + ARCHIVE_TABLE + " (" + columns + ") SELECT " + columns + " FROM moved";
+
+        long total = 0;
+        int moved;
+        do {
+            moved = jdbcTemplate.update(sql, Timestamp.valueOf(cutoff), archiveBatchSize);
+            total += moved;
+        } while (moved == archiveBatchSize);
+
+        if (total > 0) {
+            log.info("Archived {} read notifications older than {}", total, cutoff);
+        }
+    }
+}
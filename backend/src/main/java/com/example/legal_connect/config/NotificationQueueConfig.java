@@ -0,0 +1,95 @@
+package com.example.legal_connect.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * RabbitMQ topology for notification fan-out. Events are consumed in batches and
+ * retried by NotificationBatchDelivery; the consumer publishes the events that fail
+ * on their own to {@link #DEAD_LETTER_QUEUE} for inspection. A batch the consumer
+ * throws on (e.g. the dead-letter publish failed) is rejected and dead-lettered
+ * whole by the queue.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.notification.broker", havingValue = "rabbit", matchIfMissing = true)
+public class NotificationQueueConfig {
+
+    public static final String EXCHANGE = "notifications";
+    public static final String QUEUE = "notifications.create";
+    public static final String ROUTING_KEY = "notifications.create";
+    public static final String DEAD_LETTER_EXCHANGE = "notifications.dlx";
+    public static final String DEAD_LETTER_QUEUE = "notifications.create.dlq";
+
+    @Value("${app.notification.batch-size}")
+    private int batchSize;
+
+    @Value("${app.notification.batch-timeout-ms}")
+    private long batchTimeoutMs;
+
+    @Bean
+    public DirectExchange notificationExchange() {
+        return new DirectExchange(EXCHANGE);
+    }
+
+    @Bean
+    public Queue notificationQueue() {
+        return QueueBuilder.durable(QUEUE)
+                .deadLetterExchange(DEAD_LETTER_EXCHANGE)
+                .deadLetterRoutingKey(DEAD_LETTER_QUEUE)
+                .build();
+    }
+
+    @Bean
+    public Binding notificationBinding() {
+        return BindingBuilder.bind(notificationQueue()).to(notificationExchange()).with(ROUTING_KEY);
+    }
+
+    @Bean
+    public DirectExchange notificationDeadLetterExchange() {
+        return new DirectExchange(DEAD_LETTER_EXCHANGE);
+    }
+
+    @Bean
+    public Queue notificationDeadLetterQueue() {
+        return QueueBuilder.durable(DEAD_LETTER_QUEUE).build();
+    }
+
+    @Bean
+    public Binding notificationDeadLetterBinding() {
+        return BindingBuilder.bind(notificationDeadLetterQueue())
+                .to(notificationDeadLetterExchange())
+                .with(DEAD_LETTER_QUEUE);
+    }
+
+    @Bean
+    public MessageConverter notificationMessageConverter(ObjectMapper objectMapper) {
+        return new Jackson2JsonMessageConverter(objectMapper, "com.example.legal_connect.dto.forum");
+    }
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory notificationBatchContainerFactory(
+            ConnectionFactory connectionFactory, MessageConverter notificationMessageConverter) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(notificationMessageConverter);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(batchTimeoutMs);
+        factory.setPrefetchCount(batchSize * 2);
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+}
@@ -16,6 +16,7 @@ import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
@@ -103,5 +104,15 @@ public class RedisConfig implements CachingConfigurer {
         template.afterPropertiesSet();
         return template;
     }
-}
 
+    /**
+     * Subscriber for presence changes published by other nodes (app.presence.store=redis)
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.presence.store", havingValue = "redis")
+    public RedisMessageListenerContainer presenceListenerContainer(RedisConnectionFactory factory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        return container;
+    }
+}
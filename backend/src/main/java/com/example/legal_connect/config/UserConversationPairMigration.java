@@ -0,0 +1,140 @@
+package com.example.legal_connect.config;
+
+import com.example.legal_connect.entity.UserConversation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Makes (min_user_id, max_user_id) unique among active user_conversations.
+ *
+ * Before the pair key existed, two concurrent get-or-create calls could both insert
+ * a conversation for the same pair. On startup each group of active duplicates is
+ * merged into its oldest conversation: messages are moved over, the read watermark
+ * of each participant is the highest they had in any of the duplicates, and the last
+ * message snapshot and unread counters are recomputed. Deleted conversations are left
+ * alone and do not take part in the key, so a pair can start over after deleting.
+ * Runs after {@link UserConversationSnapshotBackfill}, so rows from before the read
+ * watermarks have them set from the is_read flags first.
+ *
+ * The key is a partial unique index, which JPA cannot declare; an earlier full
+ * unique constraint of the same name is replaced. Everything runs in one transaction
+ * under an advisory lock, so nodes starting together migrate one after the other.
+ */
+@Component
+@Order(2)
+@RequiredArgsConstructor
+@Slf4j
+public class UserConversationPairMigration implements CommandLineRunner {
+
+    private static final String FIND_DUPLICATES =
+        "SELECT LEAST(user1_id, user2_id) AS lo, GREATEST(user1_id, user2_id) AS hi, array_agg(id ORDER BY id) AS ids "
+            + "FROM user_conversations WHERE is_active = true GROUP BY 1, 2 HAVING count(*) > 1";
+
+    // Highest watermark of ? (a user id) over the conversations ? (ids)
+    private static final String MAX_WATERMARK =
+        "SELECT max(CASE WHEN user1_id = ? THEN user1_last_read_id ELSE user2_last_read_id END) "
+            + "FROM user_conversations WHERE id = ANY(?)";
+
+    private static final String MOVE_MESSAGES =
+        "UPDATE user_messages SET conversation_id = ? WHERE conversation_id = ANY(?)";
+
+    private static final String DELETE_DUPLICATES =
+        "DELETE FROM user_conversations WHERE id = ANY(?)";
+
+    // ? 1-2 lo and its watermark, 3-4 hi and its watermark, 5 the kept conversation. A
+    // participant without a watermark in any duplicate falls back to the is_read flags,
+    // as in UserConversationSnapshotBackfill
+    private static final String RECOMPUTE =
+        "WITH w AS (SELECT ?::bigint AS lo, ?::bigint AS lo_read, ?::bigint AS hi, ?::bigint AS hi_read), "
+            + "r AS (SELECT uc.id, uc.user1_id, uc.user2_id, "
+            + "  CASE WHEN uc.user1_id = w.lo THEN w.lo_read ELSE w.hi_read END AS read1, "
+            + "  CASE WHEN uc.user2_id = w.lo THEN w.lo_read ELSE w.hi_read END AS read2, "
+            + "  (SELECT um.id FROM user_messages um WHERE um.conversation_id = uc.id AND um.is_active = true "
+            + "   ORDER BY um.id DESC LIMIT 1) AS last_id "
+            + "  FROM user_conversations uc, w WHERE uc.id = ?), "
+            + "c AS (SELECT r.id, r.last_id, "
+            + "  COALESCE(r.read1, (SELECT min(um.id) - 1 FROM user_messages um WHERE um.conversation_id = r.id "
+            + "   AND um.sender_id <> r.user1_id AND um.is_read = false AND um.is_active = true), r.last_id) AS read1, "
+            + "  COALESCE(r.read2, (SELECT min(um.id) - 1 FROM user_messages um WHERE um.conversation_id = r.id "
+            + "   AND um.sender_id <> r.user2_id AND um.is_read = false AND um.is_active = true), r.last_id) AS read2 "
+            + "  FROM r) "
+            + "UPDATE user_conversations uc SET user1_last_read_id = c.read1, user2_last_read_id = c.read2, "
+            + " last_message_id = c.last_id, "
+            + " last_message_preview = (SELECT left(um.content, " + UserConversation.PREVIEW_LENGTH + ") "
+            + "   FROM user_messages um WHERE um.id = c.last_id), "
+            + " last_message_at = (SELECT max(um.created_at) FROM user_messages um WHERE um.conversation_id = uc.id), "
+            + " user1_unread = (SELECT count(*) FROM user_messages um WHERE um.conversation_id = uc.id "
+            + "   AND um.sender_id <> uc.user1_id AND um.id > COALESCE(c.read1, 0) AND um.is_active = true), "
+            + " user2_unread = (SELECT count(*) FROM user_messages um WHERE um.conversation_id = uc.id "
+            + "   AND um.sender_id <> uc.user2_id AND um.id > COALESCE(c.read2, 0) AND um.is_active = true), "
+            + " updated_at = now() "
+            + "FROM c WHERE uc.id = c.id";
+
+    // The key as created before it became partial
+    private static final String FULL_PAIR_KEY =
+        "SELECT count(*) FROM pg_indexes WHERE indexname = '" + UserConversation.PAIR_KEY + "' "
+            + "AND schemaname = current_schema() AND indexdef NOT LIKE '% WHERE %'";
+
+    // pg_advisory_xact_lock key for this migration ("ucpair" in ASCII)
+    private static final long MIGRATION_LOCK = 0x756370616972L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private record Duplicates(long lo, long hi, Long[] ids) {
+    }
+
+    @Override
+    public void run(String... args) {
+        transactionTemplate.executeWithoutResult(status -> migrate());
+    }
+
+    private void migrate() {
+        jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?)", MIGRATION_LOCK);
+
+        List<Duplicates> groups = jdbcTemplate.query(FIND_DUPLICATES, (rs, rowNum) ->
+            new Duplicates(rs.getLong("lo"), rs.getLong("hi"), (Long[]) rs.getArray("ids").getArray()));
+        for (Duplicates group : groups) {
+            merge(group);
+        }
+        if (!groups.isEmpty()) {
+            log.info("Merged {} duplicated user conversations", groups.size());
+        }
+
+        Integer full = jdbcTemplate.queryForObject(FULL_PAIR_KEY, Integer.class);
+        if (full != null && full > 0) {
+            jdbcTemplate.execute("ALTER TABLE user_conversations DROP CONSTRAINT IF EXISTS " + UserConversation.PAIR_KEY);
+            jdbcTemplate.execute("DROP INDEX IF EXISTS " + UserConversation.PAIR_KEY);
+            log.info("Replacing unique key {} with one over active conversations", UserConversation.PAIR_KEY);
+        }
+        jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + UserConversation.PAIR_KEY
+            + " ON user_conversations (min_user_id, max_user_id) WHERE is_active = true");
+    }
+
+    private void merge(Duplicates group) {
+        Long kept = group.ids()[0];
+        Long[] others = Arrays.copyOfRange(group.ids(), 1, group.ids().length);
+
+        Long loRead = jdbcTemplate.queryForObject(MAX_WATERMARK, Long.class, group.lo(), ids(group.ids()));
+        Long hiRead = jdbcTemplate.queryForObject(MAX_WATERMARK, Long.class, group.hi(), ids(group.ids()));
+
+        jdbcTemplate.update(MOVE_MESSAGES, kept, ids(others));
+        jdbcTemplate.update(DELETE_DUPLICATES, ids(others));
+        jdbcTemplate.update(RECOMPUTE, group.lo(), loRead, group.hi(), hiRead, kept);
+        log.debug("Merged user conversations {} into {}", Arrays.toString(others), kept);
+    }
+
+    private Array ids(Long[] ids) {
+        return jdbcTemplate.execute((Connection connection) -> connection.createArrayOf("bigint", ids));
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.legal_connect.config;
+
+import com.example.legal_connect.entity.UserConversation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills the last message snapshot, read watermarks and unread counters of
+ * user_conversations rows that have messages but no snapshot yet, i.e. rows written
+ * before those columns existed. A participant's watermark is set just below their
+ * oldest unread message according to the old per-message is_read flags. Runs before
+ * {@link UserConversationPairMigration}, which merges rows by their watermarks.
+ */
+@Component
+@Order(1)
+@RequiredArgsConstructor
+@Slf4j
+public class UserConversationSnapshotBackfill implements CommandLineRunner {
+
+    // Driven from the rows still missing a snapshot, so once they are filled each startup
+    // only probes idx_user_messages_conversation_id for conversations without messages
+    private static final String BACKFILL =
+        "WITH marks AS ("
+            + "  SELECT uc.id, last.id AS last_id, left(last.content, " + UserConversation.PREVIEW_LENGTH + ") AS preview,"
+            + "  COALESCE((SELECT min(um.id) - 1 FROM user_messages um WHERE um.conversation_id = uc.id"
+            + "    AND um.sender_id <> uc.user1_id AND um.is_read = false AND um.is_active = true), last.id) AS read1,"
+            + "  COALESCE((SELECT min(um.id) - 1 FROM user_messages um WHERE um.conversation_id = uc.id"
+            + "    AND um.sender_id <> uc.user2_id AND um.is_read = false AND um.is_active = true), last.id) AS read2"
+            + "  FROM user_conversations uc"
+            + "  JOIN LATERAL (SELECT um.id, um.content FROM user_messages um"
+            + "    WHERE um.conversation_id = uc.id AND um.is_active = true ORDER BY um.id DESC LIMIT 1) last ON true"
+            + "  WHERE uc.last_message_id IS NULL) "
+            + "UPDATE user_conversations uc SET last_message_id = marks.last_id, last_message_preview = marks.preview,"
+            + " user1_last_read_id = marks.read1, user2_last_read_id = marks.read2,"
+            + " user1_unread = (SELECT count(*) FROM user_messages um WHERE um.conversation_id = uc.id"
+            + "   AND um.sender_id <> uc.user1_id AND um.id > marks.read1 AND um.is_active = true),"
+            + " user2_unread = (SELECT count(*) FROM user_messages um WHERE um.conversation_id = uc.id"
+            + "   AND um.sender_id <> uc.user2_id AND um.id > marks.read2 AND um.is_active = true) "
+            + "FROM marks WHERE uc.id = marks.id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(String... args) {
+        int updated = jdbcTemplate.update(BACKFILL);
+        if (updated > 0) {
+            log.info("Backfilled last message snapshot and unread counters of {} conversations", updated);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.legal_connect.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the index on lower(full_name) used to look up mentioned users. Hibernate
+ * cannot declare expression indexes.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserFullNameIndex implements CommandLineRunner {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(String... args) {
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_users_full_name_lower ON users (lower(full_name))");
+    }
+}
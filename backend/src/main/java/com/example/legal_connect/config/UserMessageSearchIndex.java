@@ -0,0 +1,41 @@
+package com.example.legal_connect.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the full-text index used by private message search.
+ *
+ * The index is on (conversation_id, to_tsvector('simple', content)) so a search only
+ * touches the conversations of the searching user; a btree column inside a GIN index
+ * needs the btree_gin extension. If the extension cannot be installed the index is
+ * created on the text alone. The 'simple' configuration lowercases words without
+ * stemming, which suits Vietnamese, for which PostgreSQL has no dictionary.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserMessageSearchIndex implements CommandLineRunner {
+
+    private static final String INDEX = "idx_user_messages_content_search";
+    private static final String DOCUMENT = "to_tsvector('simple', content)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(String... args) {
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS btree_gin");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + INDEX
+                + " ON user_messages USING GIN (conversation_id, " + DOCUMENT + ")");
+        } catch (DataAccessException e) {
+            log.warn("btree_gin unavailable, indexing message text only: {}", e.getMessage());
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + INDEX
+                + " ON user_messages USING GIN (" + DOCUMENT + ")");
+        }
+    }
+}
@@ -1,25 +1,75 @@
 package com.example.legal_connect.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
+/**
+ * STOMP over WebSocket. By default messages are routed by the in-process simple
+ * broker, which only reaches sessions on this node. With app.websocket.broker=relay
+ * /topic and /queue are relayed to an external STOMP broker (RabbitMQ's STOMP
+ * plugin), which does the fan-out; user destinations that this node cannot resolve
+ * are broadcast to the other nodes, and each node shares its connected users
+ * through the user registry topic.
+ */
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final WebSocketAuthInterceptor webSocketAuthInterceptor;
+    private final WebSocketOutboundGuard webSocketOutboundGuard;
 
-    public WebSocketConfig(WebSocketAuthInterceptor webSocketAuthInterceptor) {
+    @Value("${app.websocket.send-buffer-size-limit}")
+    private int sendBufferSizeLimit;
+
+    @Value("${app.websocket.send-time-limit-ms}")
+    private int sendTimeLimitMs;
+
+    @Value("${app.websocket.broker}")
+    private String brokerMode;
+
+    @Value("${app.websocket.relay.host}")
+    private String relayHost;
+
+    @Value("${app.websocket.relay.port}")
+    private int relayPort;
+
+    @Value("${app.websocket.relay.login}")
+    private String relayLogin;
+
+    @Value("${app.websocket.relay.passcode}")
+    private String relayPasscode;
+
+    @Value("${app.websocket.relay.virtual-host}")
+    private String relayVirtualHost;
+
+    public WebSocketConfig(WebSocketAuthInterceptor webSocketAuthInterceptor,
+                           WebSocketOutboundGuard webSocketOutboundGuard) {
         this.webSocketAuthInterceptor = webSocketAuthInterceptor;
+        this.webSocketOutboundGuard = webSocketOutboundGuard;
     }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/queue", "/user");
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            config.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode)
+                    .setVirtualHost(relayVirtualHost)
+                    .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                    .setUserRegistryBroadcast("/topic/simp-user-registry");
+        } else {
+            config.enableSimpleBroker("/topic", "/queue", "/user");
+        }
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user");
     }
@@ -36,4 +86,22 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     public void configureClientInboundChannel(ChannelRegistration registration) {
         registration.interceptors(webSocketAuthInterceptor);
     }
-}
\ No newline at end of file
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(webSocketOutboundGuard)
+                .executor(webSocketOutboundGuard.executor());
+    }
+
+    /**
+     * A session whose unsent messages exceed the buffer limit, or whose current send
+     * has been blocked longer than the time limit, is closed so one slow client cannot
+     * hold up the outbound pool
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setSendTimeLimit(sendTimeLimitMs)
+                .addDecoratorFactory(webSocketOutboundGuard::decorate);
+    }
+}
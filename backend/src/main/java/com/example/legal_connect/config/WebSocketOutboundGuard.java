@@ -0,0 +1,248 @@
+package com.example.legal_connect.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Backpressure for messages going out to WebSocket clients.
+ *
+ * The clientOutbound channel runs on a bounded pool. Typing indicators and presence
+ * updates are disposable: they are dropped for a session that already has
+ * app.websocket.outbound.session-drop-threshold messages waiting, and when the queue
+ * is full. Dropped presence deltas are not replayed; clients only see them again
+ * when they reload the snapshot from /api/chat/online-users.
+ *
+ * Everything else, private messages in particular, is not dropped. When the queue is
+ * full the sender waits up to app.websocket.outbound.queue-offer-timeout-ms for room,
+ * which slows the producer down and keeps the message behind those queued before it.
+ * If there is still no room, the session with the most messages waiting is closed and
+ * the send fails with a MessageDeliveryException. Private messages are saved before
+ * they are sent, so the recipient still gets them with the conversation history.
+ *
+ * A single slow client is handled per session by the send-buffer and send-time limits
+ * in {@link WebSocketConfig}. A session that exceeds them is closed with
+ * SESSION_NOT_RELIABLE, as is one closed for a full queue, and both are counted here
+ * as evictions.
+ *
+ * Metrics: websocket.outbound.queue.depth, websocket.outbound.dropped{type},
+ * websocket.outbound.rejected and websocket.sessions.evicted.
+ */
+@Slf4j
+@Component
+public class WebSocketOutboundGuard implements ExecutorChannelInterceptor {
+
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    private final Counter droppedTyping;
+    private final Counter droppedPresence;
+    private final Counter evictedSessions;
+    private final Counter rejected;
+    // Messages accepted for each session and not yet handled
+    private final Map<String, AtomicInteger> pendingPerSession = new ConcurrentHashMap<>();
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+
+    @Value("${app.websocket.outbound.session-drop-threshold}")
+    private int sessionDropThreshold;
+
+    @Value("${app.websocket.outbound.queue-offer-timeout-ms}")
+    private long queueOfferTimeoutMs;
+
+    public WebSocketOutboundGuard(MeterRegistry meterRegistry,
+                                  @Value("${app.websocket.outbound.core-pool-size}") int corePoolSize,
+                                  @Value("${app.websocket.outbound.max-pool-size}") int maxPoolSize,
+                                  @Value("${app.websocket.outbound.queue-capacity}") int queueCapacity) {
+        executor.setThreadNamePrefix("clientOutbound-");
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler(this::rejected);
+
+        this.droppedTyping = Counter.builder("websocket.outbound.dropped").tag("type", "typing")
+                .description("Outbound typing messages dropped under backpressure").register(meterRegistry);
+        this.droppedPresence = Counter.builder("websocket.outbound.dropped").tag("type", "presence")
+                .description("Outbound presence messages dropped under backpressure").register(meterRegistry);
+        this.evictedSessions = Counter.builder("websocket.sessions.evicted")
+                .description("Sessions closed for exceeding the send buffer or send time limit, or for a full queue")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("websocket.outbound.rejected")
+                .description("Outbound messages that found no room in the queue in time").register(meterRegistry);
+        Gauge.builder("websocket.outbound.queue.depth", this, WebSocketOutboundGuard::queueDepth)
+                .description("Messages waiting on the clientOutbound channel").register(meterRegistry);
+    }
+
+    /**
+     * Executor for the clientOutbound channel
+     */
+    ThreadPoolTaskExecutor executor() {
+        return executor;
+    }
+
+    /**
+     * Tracks sessions, so one can be evicted, and counts those closed because they
+     * could not keep up
+     */
+    WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                sessions.put(session.getId(), session);
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                pendingPerSession.remove(session.getId());
+                if (CloseStatus.SESSION_NOT_RELIABLE.equalsCode(closeStatus)) {
+                    evictedSessions.increment();
+                    log.warn("Evicted slow WebSocket session {}: {}", session.getId(), closeStatus.getReason());
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId == null) {
+            return message;
+        }
+        AtomicInteger pending = pendingPerSession.computeIfAbsent(sessionId, id -> new AtomicInteger());
+        if (pending.get() >= sessionDropThreshold && drop(message)) {
+            return null;
+        }
+        pending.incrementAndGet();
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        handled(message);
+    }
+
+    private void rejected(Runnable task, ThreadPoolExecutor pool) {
+        if (task instanceof MessageHandlingRunnable handling && drop(handling.getMessage())) {
+            handled(handling.getMessage());
+            return;
+        }
+        if (pool.isShutdown()) {
+            return;
+        }
+        try {
+            // Wait for room rather than run here, where it would overtake queued messages
+            if (pool.getQueue().offer(task, queueOfferTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejected.increment();
+        evictSlowestSession();
+        // Not RejectedExecutionException, which ExecutorSubscribableChannel answers by
+        // running the task here
+        String reason = "No room in the clientOutbound queue after " + queueOfferTimeoutMs + " ms";
+        if (task instanceof MessageHandlingRunnable handling) {
+            handled(handling.getMessage());
+            throw new MessageDeliveryException(handling.getMessage(), reason);
+        }
+        throw new MessageDeliveryException(reason);
+    }
+
+    /**
+     * Close the session with the most messages waiting, whose messages then fail fast
+     */
+    private void evictSlowestSession() {
+        String slowest = null;
+        int most = 0;
+        for (Map.Entry<String, AtomicInteger> entry : pendingPerSession.entrySet()) {
+            int pending = entry.getValue().get();
+            if (pending > most) {
+                slowest = entry.getKey();
+                most = pending;
+            }
+        }
+        WebSocketSession session = slowest != null ? sessions.get(slowest) : null;
+        if (session == null) {
+            return;
+        }
+        try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE.withReason("Outbound queue full, " + most + " messages waiting"));
+        } catch (IOException e) {
+            log.debug("Failed to close slow WebSocket session {}: {}", slowest, e.getMessage());
+        }
+    }
+
+    private void handled(Message<?> message) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        AtomicInteger pending = sessionId != null ? pendingPerSession.get(sessionId) : null;
+        if (pending != null) {
+            pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * Count and return true if the message may be dropped
+     */
+    private boolean drop(Message<?> message) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return false;
+        }
+        String destination = originalDestination(message);
+        if (destination == null) {
+            return false;
+        }
+        if (destination.startsWith("/topic/typing") || destination.startsWith("/user/queue/typing")) {
+            droppedTyping.increment();
+            return true;
+        }
+        if (destination.startsWith("/topic/online-users")) {
+            droppedPresence.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Destination as the client subscribed to it; user destinations are resolved to
+     * session-specific queues by the time they reach this channel
+     */
+    private String originalDestination(Message<?> message) {
+        Object original = message.getHeaders().get(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION);
+        if (original instanceof String originalDestination) {
+            return originalDestination;
+        }
+        return SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+    }
+
+    private double queueDepth() {
+        try {
+            return executor.getThreadPoolExecutor().getQueue().size();
+        } catch (IllegalStateException e) {
+            return 0;
+        }
+    }
+}
@@ -4,6 +4,8 @@ import com.example.legal_connect.dto.chat.ChatMessage;
 import com.example.legal_connect.dto.chat.OnlineUsersResponse;
 import com.example.legal_connect.security.UserPrincipal;
 import com.example.legal_connect.service.OnlineUserService;
+import com.example.legal_connect.service.PrivateMessageWriter;
+import com.example.legal_connect.service.TypingIndicatorService;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.handler.annotation.MessageMapping;
@@ -11,6 +13,7 @@ import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -28,10 +31,15 @@ public class ChatController {
 
     private final OnlineUserService onlineUserService;
     private final SimpMessagingTemplate messagingTemplate;
+    private final TypingIndicatorService typingIndicatorService;
+    private final PrivateMessageWriter privateMessageWriter;
 
-    public ChatController(OnlineUserService onlineUserService, SimpMessagingTemplate messagingTemplate) {
+    public ChatController(OnlineUserService onlineUserService, SimpMessagingTemplate messagingTemplate,
+                          TypingIndicatorService typingIndicatorService, PrivateMessageWriter privateMessageWriter) {
         this.onlineUserService = onlineUserService;
         this.messagingTemplate = messagingTemplate;
+        this.typingIndicatorService = typingIndicatorService;
+        this.privateMessageWriter = privateMessageWriter;
     }
     @MessageMapping("/chat.join")
     @SendTo("/topic/public")
@@ -101,8 +109,24 @@ public class ChatController {
     chatMessage.setSenderId(userId);
     chatMessage.setSenderName(userName);
     chatMessage.setType(ChatMessage.MessageType.CHAT);
-    chatMessage.setTimestamp(LocalDateTime.now());
-    chatMessage.setId(UUID.randomUUID().toString());
+
+    if (Boolean.TRUE.equals(chatMessage.getPersist()) && chatMessage.getConversationId() != null) {
+        // Lưu tin nhắn (write-behind); id do server cấp được gửi lại cho người gửi
+        PrivateMessageWriter.PendingMessage saved;
+        try {
+            saved = privateMessageWriter.write(
+                Long.valueOf(chatMessage.getConversationId()), userPrincipal.getId(), chatMessage.getContent());
+        } catch (RuntimeException e) {
+            log.warn("[WS] Rejected private message from {} to conversation {}: {}",
+                userId, chatMessage.getConversationId(), e.getMessage());
+            return;
+        }
+        chatMessage.setId(saved.id().toString());
+        chatMessage.setTimestamp(saved.createdAt());
+    } else {
+        chatMessage.setTimestamp(LocalDateTime.now());
+        chatMessage.setId(UUID.randomUUID().toString());
+    }
 
     // Update last seen của sender
     onlineUserService.updateLastSeen(userId);
@@ -144,17 +168,8 @@ public class ChatController {
         chatMessage.setType(ChatMessage.MessageType.TYPING);
         chatMessage.setTimestamp(LocalDateTime.now());
 
-        if (chatMessage.getReceiverId() != null) {
-            // Private typing indicator
-            messagingTemplate.convertAndSendToUser(
-                    chatMessage.getReceiverId(),
-                    "/queue/typing",
-                    chatMessage
-            );
-        } else {
-            // Public typing indicator
-            messagingTemplate.convertAndSend("/topic/typing", chatMessage);
-        }
+        // Chỉ gửi khi trạng thái thay đổi (private: /user/queue/typing, public: /topic/typing)
+        typingIndicatorService.typing(chatMessage);
     }
 
     /**
@@ -175,17 +190,8 @@ public class ChatController {
         chatMessage.setType(ChatMessage.MessageType.STOP_TYPING);
         chatMessage.setTimestamp(LocalDateTime.now());
 
-        if (chatMessage.getReceiverId() != null) {
-            // Private stop typing indicator
-            messagingTemplate.convertAndSendToUser(
-                    chatMessage.getReceiverId(),
-                    "/queue/typing",
-                    chatMessage
-            );
-        } else {
-            // Public stop typing indicator
-            messagingTemplate.convertAndSend("/topic/typing", chatMessage);
-        }
+        // Chỉ gửi khi trạng thái thay đổi (private: /user/queue/typing, public: /topic/typing)
+        typingIndicatorService.stopTyping(chatMessage);
     }
 
     /**
@@ -213,10 +219,11 @@ public class ChatController {
     }
 
     /**
-     * Message mapping để client có thể request danh sách user online qua WebSocket
+     * Message mapping để client có thể request danh sách user online qua WebSocket.
+     * Snapshot chỉ gửi cho người yêu cầu; /topic/online-users chỉ nhận delta.
      */
     @MessageMapping("/users.online")
-    @SendTo("/topic/online-users")
+    @SendToUser("/queue/online-users")
     public OnlineUsersResponse requestOnlineUsers() {
         return onlineUserService.getOnlineUsers();
     }
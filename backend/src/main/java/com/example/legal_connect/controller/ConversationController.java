@@ -1,9 +1,11 @@
 package com.example.legal_connect.controller;
 
+import com.example.legal_connect.dto.common.MessageHistoryPageDto;
 import com.example.legal_connect.dto.conversation.*;
 import com.example.legal_connect.entity.Conversation.ConversationType;
 import com.example.legal_connect.security.UserPrincipal;
 import com.example.legal_connect.service.ApiKeyValidationService;
+import com.example.legal_connect.service.AssistantStreamingService;
 import com.example.legal_connect.service.ConversationService;
 import com.example.legal_connect.service.MessageService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -11,9 +13,14 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -26,6 +33,7 @@ public class ConversationController {
     private final ConversationService conversationService;
     private final MessageService messageService;
     private final ApiKeyValidationService apiKeyValidationService;
+    private final AssistantStreamingService assistantStreamingService;
 
     @PostMapping
     @Operation(summary = "Create a new conversation")
@@ -93,13 +101,18 @@ public class ConversationController {
     }
 
     @GetMapping("/{conversationId}/messages")
-    @Operation(summary = "Get all messages for a conversation")
-    public ResponseEntity<List<MessageDto>> getConversationMessages(
+    @Operation(summary = "Get a page of messages for a conversation",
+               description = "Newest messages by default, in chronological order. Pass nextBefore as before to load earlier ones, or the id of the newest loaded message as after to load newer ones (then nextAfter while it is set)")
+    public ResponseEntity<MessageHistoryPageDto<MessageDto>> getConversationMessages(
             @PathVariable Long conversationId,
+            @Parameter(description = "Load messages older than this message id") @RequestParam(required = false) Long before,
+            @Parameter(description = "Load messages newer than this message id") @RequestParam(required = false) Long after,
+            @Parameter(description = "Page size") @RequestParam(required = false) Integer size,
             @AuthenticationPrincipal UserPrincipal userPrincipal) {
         
-        List<MessageDto> messages = messageService.getConversationMessages(conversationId, userPrincipal.getId());
-        return ResponseEntity.ok(messages);
+        MessageHistoryPageDto<MessageDto> page = messageService.getConversationMessages(
+                conversationId, userPrincipal.getId(), before, after, size);
+        return ResponseEntity.ok(page);
     }
 
     @PostMapping("/messages")
@@ -115,6 +128,28 @@ public class ConversationController {
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping(value = "/messages/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Send a message and stream the assistant's answer",
+               description = "Server-Sent Events: message (the saved user message), delta (a piece of the answer), done (the saved answer) or error. 503 with Retry-After when the assistant is busy; the API key is not charged then")
+    public ResponseEntity<SseEmitter> streamMessage(
+            @Valid @RequestBody StreamMessageRequest request,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        
+        // Checks access, reserves a generation slot, then deducts the API key for chat
+        SseEmitter emitter;
+        try {
+            emitter = assistantStreamingService.stream(request, userPrincipal.getId());
+        } catch (AssistantStreamingService.AssistantBusyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .header("X-Accel-Buffering", "no") // keep reverse proxies from buffering the stream
+                .body(emitter);
+    }
+
     public static class UpdateTitleRequest {
         private String title;
         
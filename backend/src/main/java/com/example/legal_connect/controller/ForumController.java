@@ -1,5 +1,7 @@
 package com.example.legal_connect.controller;
 import com.example.legal_connect.dto.forum.AddReplyDto;
+import com.example.legal_connect.dto.forum.BatchVoteDto;
+import com.example.legal_connect.dto.forum.BatchVoteRequestDto;
 import com.example.legal_connect.dto.forum.CategoryStatsDto;
 import com.example.legal_connect.dto.forum.ForumStatsDto;
 import com.example.legal_connect.dto.forum.PopularTagDto;
@@ -327,4 +329,21 @@ public class ForumController {
         VoteDto voteDto = votingService.getReplyVoteStats(replyId, userId);
         return ResponseEntity.ok(voteDto);
     }
+    
+    /**
+     * Get vote statistics for many posts and replies at once (list pages)
+     */
+    @PostMapping("/votes/batch")
+    public ResponseEntity<BatchVoteDto> getVotesBatch(
+            @Valid @RequestBody BatchVoteRequestDto request,
+            Authentication authentication) {
+        Long userId = null;
+        try {
+            userId = getUserIdFromAuthentication(authentication);
+        } catch (Exception e) {
+            // User not authenticated, proceed with null userId
+        }
+        BatchVoteDto votes = votingService.getVoteStates(request.getPostIds(), request.getReplyIds(), userId);
+        return ResponseEntity.ok(votes);
+    }
 }
\ No newline at end of file
@@ -1,21 +1,38 @@
 package com.example.legal_connect.controller;
 
+import com.example.legal_connect.dto.conversation.PdfChunkHitDto;
+import com.example.legal_connect.dto.conversation.PdfDocumentDto;
 import com.example.legal_connect.dto.conversation.PdfUploadResponse;
 import com.example.legal_connect.security.UserPrincipal;
 import com.example.legal_connect.service.ApiKeyValidationService;
+import com.example.legal_connect.service.ChunkRetrievalService;
 import com.example.legal_connect.service.PdfService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/pdf")
 @RequiredArgsConstructor
@@ -24,6 +41,13 @@ public class PdfController {
 
     private final PdfService pdfService;
     private final ApiKeyValidationService apiKeyValidationService;
+    private final ChunkRetrievalService chunkRetrievalService;
+
+    // Tomcat hands files named in these request attributes to the connector (sendfile)
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
 
     @PostMapping("/upload")
     @Operation(summary = "Upload PDF file and create a new PDF-QA conversation")
@@ -56,45 +80,160 @@ public class PdfController {
         }
     }
 
-    @GetMapping("/download/{conversationId}")
-    @Operation(summary = "Download PDF file for a conversation")
-    public ResponseEntity<ByteArrayResource> downloadPdf(
+    @GetMapping("/status/{conversationId}")
+    @Operation(summary = "Get the PDF document of a conversation with its text extraction progress")
+    public ResponseEntity<PdfDocumentDto> getPdfStatus(
             @PathVariable Long conversationId,
             @AuthenticationPrincipal UserPrincipal userPrincipal) {
         
         try {
-            byte[] pdfContent = pdfService.getPdfContent(conversationId, userPrincipal.getId());
-            ByteArrayResource resource = new ByteArrayResource(pdfContent);
-            
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=document.pdf")
-                    .contentType(MediaType.APPLICATION_PDF)
-                    .contentLength(pdfContent.length)
-                    .body(resource);
-                    
-        } catch (Exception e) {
+            return ResponseEntity.ok(pdfService.getPdfDocument(conversationId, userPrincipal.getId()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/search/{conversationId}")
+    @Operation(summary = "Find the passages of a conversation's PDF closest to a query")
+    public ResponseEntity<List<PdfChunkHitDto>> searchPdf(
+            @PathVariable Long conversationId,
+            @Parameter(description = "Search text")
+            @RequestParam("q") String query,
+            @Parameter(description = "Number of passages to return")
+            @RequestParam(value = "k", required = false) Integer k,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        
+        try {
+            return ResponseEntity.ok(chunkRetrievalService.searchConversation(conversationId, userPrincipal.getId(), query, k));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
 
+    @GetMapping("/download/{conversationId}")
+    @Operation(summary = "Download PDF file for a conversation")
+    public void downloadPdf(
+            @PathVariable Long conversationId,
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        
+        writePdf(conversationId, userPrincipal, "attachment", request, response);
+    }
+
     @GetMapping("/view/{conversationId}")
     @Operation(summary = "View PDF file inline for a conversation")
-    public ResponseEntity<ByteArrayResource> viewPdf(
+    public void viewPdf(
             @PathVariable Long conversationId,
-            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
         
+        writePdf(conversationId, userPrincipal, "inline", request, response);
+    }
+
+    /**
+     * Write the PDF straight from disk, without loading it into memory.
+     *
+     * Supports conditional requests (ETag/Last-Modified, 304) and a single byte range
+     * (206, honoring If-Range) so the viewer can fetch only the pages it shows; other
+     * range requests get the whole file. On Tomcat the file is handed to the connector
+     * for sendfile, otherwise it is copied with FileChannel.transferTo.
+     */
+    private void writePdf(Long conversationId, UserPrincipal userPrincipal, String disposition,
+                          HttpServletRequest request, HttpServletResponse response) throws IOException {
+        PdfService.PdfFile pdfFile;
         try {
-            byte[] pdfContent = pdfService.getPdfContent(conversationId, userPrincipal.getId());
-            ByteArrayResource resource = new ByteArrayResource(pdfContent);
-            
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=document.pdf")
-                    .contentType(MediaType.APPLICATION_PDF)
-                    .contentLength(pdfContent.length)
-                    .body(resource);
-                    
+            pdfFile = pdfService.getPdfFile(conversationId, userPrincipal.getId());
         } catch (Exception e) {
-            return ResponseEntity.notFound().build();
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        long size = pdfFile.size();
+        long lastModified = pdfFile.lastModified().toEpochMilli();
+        String etag = pdfFile.contentHash() != null
+                ? "\"" + pdfFile.contentHash() + "\""
+                : "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        long start = 0;
+        long end = size - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && ifRangeMatches(request, etag, lastModified)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(range);
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(size);
+                    end = ranges.get(0).getRangeEnd(size);
+                }
+            } catch (IllegalArgumentException e) {
+                rangeNotSatisfiable(response, size);
+                return;
+            }
+            // getRangeStart does not check the start against the size; bytes=-0 is empty
+            if (ranges.size() == 1 && (start >= size || end < start)) {
+                rangeNotSatisfiable(response, size);
+                return;
+            }
+            if (ranges.size() == 1) {
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            }
+        }
+        long length = end - start + 1;
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.builder(disposition)
+                .filename(pdfFile.originalFileName() != null ? pdfFile.originalFileName() : "document.pdf",
+                        StandardCharsets.UTF_8)
+                .build().toString());
+        response.setContentLengthLong(length);
+        if (HttpMethod.HEAD.matches(request.getMethod()) || length == 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, pdfFile.path().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel file = FileChannel.open(pdfFile.path(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                position += file.transferTo(position, end + 1 - position, out);
+            }
+        }
+    }
+
+    private void rangeNotSatisfiable(HttpServletResponse response, long size) {
+        response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+    }
+
+    /**
+     * If-Range absent, or naming the current version (strong ETag or exact date)
+     */
+    private boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
         }
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package com.example.legal_connect.controller;
 
+import com.example.legal_connect.dto.common.MessageHistoryPageDto;
 import com.example.legal_connect.dto.messaging.*;
 import com.example.legal_connect.security.UserPrincipal;
 import com.example.legal_connect.service.UserMessagingService;
@@ -7,11 +8,12 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.time.LocalDateTime;
 
 @RestController
 @RequestMapping("/api/user-conversations")
@@ -22,12 +24,30 @@ public class UserMessagingController {
     private final UserMessagingService userMessagingService;
 
     @GetMapping
-    @Operation(summary = "Get all conversations for the authenticated user")
-    public ResponseEntity<List<UserConversationDto>> getUserConversations(
+    @Operation(summary = "Get the authenticated user's conversations, most recently active first",
+               description = "Paged by lastMessageAt: pass nextBefore/nextBeforeId of the previous page as before/beforeId; they are null on the last page")
+    public ResponseEntity<UserConversationPageDto> getUserConversations(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(required = false) Integer size,
             @AuthenticationPrincipal UserPrincipal userPrincipal) {
         
-        List<UserConversationDto> conversations = userMessagingService.getUserConversations(userPrincipal.getId());
-        return ResponseEntity.ok(conversations);
+        UserConversationPageDto page = userMessagingService.getUserConversations(
+                userPrincipal.getId(), before, beforeId, size);
+        return ResponseEntity.ok(page);
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Search messages across the authenticated user's conversations",
+               description = "Newest matches first. Pass nextBefore of the previous result as before for the next page; a hit's historyBefore opens the message history at that message")
+    public ResponseEntity<MessageSearchResultDto> searchMessages(
+            @RequestParam String q,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Integer size,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        
+        MessageSearchResultDto result = userMessagingService.searchMessages(userPrincipal.getId(), q, before, size);
+        return ResponseEntity.ok(result);
     }
 
     @PostMapping
@@ -63,14 +83,18 @@ public class UserMessagingController {
     }
 
     @GetMapping("/{conversationId}/messages")
-    @Operation(summary = "Get all messages for a conversation")
-    public ResponseEntity<List<UserMessageDto>> getConversationMessages(
+    @Operation(summary = "Get a page of messages for a conversation",
+               description = "Newest messages by default, in chronological order. Pass nextBefore as before to load earlier ones, or the id of the newest loaded message as after to load newer ones (then nextAfter while it is set)")
+    public ResponseEntity<MessageHistoryPageDto<UserMessageDto>> getConversationMessages(
             @PathVariable Long conversationId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer size,
             @AuthenticationPrincipal UserPrincipal userPrincipal) {
         
-        List<UserMessageDto> messages = userMessagingService.getConversationMessages(
-                conversationId, userPrincipal.getId());
-        return ResponseEntity.ok(messages);
+        MessageHistoryPageDto<UserMessageDto> page = userMessagingService.getConversationMessages(
+                conversationId, userPrincipal.getId(), before, after, size);
+        return ResponseEntity.ok(page);
     }
 
     @PostMapping("/messages")
@@ -20,6 +20,7 @@ public class ChatMessage {
     private String receiverId;
     private MessageType type;
     private LocalDateTime timestamp;
+    private Boolean persist; // private messages: true to have the server store it (client did not save it via REST)
 
     public enum MessageType {
         CHAT,
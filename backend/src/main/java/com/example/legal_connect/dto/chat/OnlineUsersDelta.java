@@ -0,0 +1,24 @@
+package com.example.legal_connect.dto.chat;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Presence changes since the previous delta. Sequence numbers increase by one per
+ * delta; a client that sees a gap should request a fresh snapshot. Applying a delta
+ * twice is harmless (joined replaces, left removes).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OnlineUsersDelta {
+    private long sequence;
+    private List<UserOnlineStatus> joined;
+    private List<String> left;
+    private int totalOnline;
+}
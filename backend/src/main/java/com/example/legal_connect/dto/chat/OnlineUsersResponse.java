@@ -15,4 +15,5 @@ public class OnlineUsersResponse {
     private List<UserOnlineStatus> users;
     private List<UserOnlineStatus> lawyers;
     private int totalOnline;
+    private long sequence; // latest delta sent when the snapshot was taken
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.example.legal_connect.dto.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A page of a conversation's message history, in chronological order
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageHistoryPageDto<T> {
+    
+    private List<T> messages;
+    private Long nextBefore; // "before" cursor of the older page, null when there are no older messages
+    private Long nextAfter; // "after" cursor of the newer page when paging forward, null once caught up
+}
@@ -0,0 +1,20 @@
+package com.example.legal_connect.dto.conversation;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PdfChunkHitDto {
+    private Long chunkId;
+    private Long pdfDocumentId;
+    private Integer chunkIndex;
+    private Integer pageStart;
+    private Integer pageEnd;
+    private String content;
+    private Float score;
+}
@@ -1,5 +1,6 @@
 package com.example.legal_connect.dto.conversation;
 
+import com.example.legal_connect.entity.PdfDocument;
 import lombok.Data;
 import lombok.Builder;
 import lombok.NoArgsConstructor;
@@ -19,4 +20,7 @@ public class PdfDocumentDto {
     private Long fileSize;
     private String contentType;
     private LocalDateTime uploadedAt;
+    private PdfDocument.ExtractionStatus extractionStatus;
+    private Integer pageCount;
+    private Integer pagesExtracted;
 }
\ No newline at end of file
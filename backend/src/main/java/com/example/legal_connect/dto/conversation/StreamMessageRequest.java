@@ -0,0 +1,21 @@
+package com.example.legal_connect.dto.conversation;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StreamMessageRequest {
+    
+    @NotNull(message = "Conversation ID is required")
+    private Long conversationId;
+    
+    @NotBlank(message = "Message content is required")
+    private String content;
+}
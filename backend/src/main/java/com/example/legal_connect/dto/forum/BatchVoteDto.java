@@ -0,0 +1,19 @@
+package com.example.legal_connect.dto.forum;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchVoteDto {
+    
+    private Map<Long, VoteDto> posts; // keyed by post id; unknown ids are omitted
+    
+    private Map<Long, VoteDto> replies; // keyed by reply id; unknown ids are omitted
+}
@@ -0,0 +1,23 @@
+package com.example.legal_connect.dto.forum;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import jakarta.validation.constraints.Size;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchVoteRequestDto {
+    
+    public static final int MAX_IDS = 100;
+    
+    @Size(max = MAX_IDS, message = "At most " + MAX_IDS + " post ids per request")
+    private List<Long> postIds = new ArrayList<>();
+    
+    @Size(max = MAX_IDS, message = "At most " + MAX_IDS + " reply ids per request")
+    private List<Long> replyIds = new ArrayList<>();
+}
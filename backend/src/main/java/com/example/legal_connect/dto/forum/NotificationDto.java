@@ -25,7 +25,12 @@ public class NotificationDto {
     
     private Boolean isRead;
     
+    private Integer actorCount; // > 1 for coalesced notifications
+    
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime createdAt;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime lastEventAt; // newest event folded into a coalesced notification
 }
 
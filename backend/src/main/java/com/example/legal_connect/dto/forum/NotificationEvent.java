@@ -0,0 +1,34 @@
+package com.example.legal_connect.dto.forum;
+
+import com.example.legal_connect.entity.Notification;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.LocalDateTime;
+
+/**
+ * A notification to be written, published after the triggering transaction commits
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NotificationEvent {
+    
+    private Long userId;
+    
+    private Notification.NotificationType type;
+    
+    private String message;
+    
+    private String actorName; // who triggered it, for coalesced "X và N người khác" messages
+    
+    private String action; // message text after the actor name
+    
+    private Long relatedEntityId;
+    
+    private String relatedEntityType; // POST, REPLY
+    
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,30 @@
+package com.example.legal_connect.dto.messaging;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageSearchResultDto {
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class HitDto {
+        private Long messageId;
+        private Long conversationId;
+        private Long senderId;
+        private String senderName;
+        private String snippet; // HTML-escaped, matches wrapped in <mark></mark>
+        private LocalDateTime createdAt;
+        private Long historyBefore; // "before" cursor of the message history page ending at this message
+    }
+    
+    private List<HitDto> hits;
+    private Long nextBefore; // "before" cursor of the next page, null on the last page
+}
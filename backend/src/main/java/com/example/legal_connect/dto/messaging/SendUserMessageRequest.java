@@ -2,6 +2,7 @@ package com.example.legal_connect.dto.messaging;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.*;
 
 @Data
@@ -10,9 +11,12 @@ import lombok.*;
 @AllArgsConstructor
 public class SendUserMessageRequest {
     
+    public static final int MAX_CONTENT_LENGTH = 10_000;
+    
     @NotNull(message = "Conversation ID is required")
     private Long conversationId;
     
     @NotBlank(message = "Content is required")
+    @Size(max = MAX_CONTENT_LENGTH, message = "Content must not exceed 10000 characters")
     private String content;
 }
\ No newline at end of file
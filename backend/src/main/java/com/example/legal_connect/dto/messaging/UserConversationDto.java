@@ -38,6 +38,7 @@ public class UserConversationDto {
     private ParticipantDto participant;
     private LastMessageDto lastMessage;
     private Integer unreadCount;
+    private LocalDateTime lastMessageAt; // inbox cursor: last message time, or createdAt before the first message
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.example.legal_connect.dto.messaging;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserConversationPageDto {
+    
+    private List<UserConversationDto> conversations;
+    private LocalDateTime nextBefore; // "before" cursor of the next page, null on the last page
+    private Long nextBeforeId; // "beforeId" cursor of the next page, null on the last page
+}
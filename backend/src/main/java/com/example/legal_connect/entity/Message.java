@@ -9,7 +9,10 @@ import lombok.Builder;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = {
+    // Message history pages by id cursor
+    @Index(name = "idx_messages_conversation_id", columnList = "conversation_id,id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -9,7 +9,9 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "notifications", indexes = {
-    @Index(name = "idx_user_isread", columnList = "user_id,is_read")
+    @Index(name = "idx_user_isread", columnList = "user_id,is_read"),
+    @Index(name = "idx_user_type_target", columnList = "user_id,type,related_entity_type,related_entity_id"),
+    @Index(name = "idx_user_created", columnList = "user_id,created_at")
 })
 @Data
 @NoArgsConstructor
@@ -42,18 +44,39 @@ public class Notification {
     @Builder.Default
     private Boolean isRead = false;
     
+    @Column(name = "actor_count")
+    @Builder.Default
+    private Integer actorCount = 1;
+    
     @Column(name = "created_at")
-    private LocalDateTime createdAt;
+    private LocalDateTime createdAt; // partition key, never changes
+    
+    // Time of the newest event merged into this row; equals created_at until one is
+    @Column(name = "last_event_at")
+    private LocalDateTime lastEventAt;
     
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
+        // Queued notifications keep the time of the action that triggered them
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+        if (lastEventAt == null) {
+            lastEventAt = createdAt;
+        }
     }
     
     public enum NotificationType {
         MENTION,    // User was mentioned in post/reply
         REPLY,      // Someone replied to user's post
-        UPVOTE      // User's post/reply was upvoted
+        UPVOTE;     // User's post/reply was upvoted
+        
+        /**
+         * High-volume types merged into one row per target
+         */
+        public boolean isCoalesced() {
+            return this == UPVOTE;
+        }
     }
 }
 
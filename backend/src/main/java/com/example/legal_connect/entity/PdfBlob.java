@@ -0,0 +1,39 @@
+package com.example.legal_connect.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+/**
+ * A stored PDF file, identified by the SHA-256 of its content and shared by every
+ * PdfDocument with that content. refCount is the number of those documents; rows are
+ * written with native upserts in PdfBlobRepository.
+ */
+@Entity
+@Table(name = "pdf_blobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PdfBlob {
+
+    @Id
+    @Column(name = "sha256", length = 64)
+    private String sha256;
+
+    @Column(name = "file_path", nullable = false)
+    private String filePath;
+
+    @Column(name = "file_size", nullable = false)
+    private Long fileSize;
+
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,48 @@
+package com.example.legal_connect.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * A piece of the extracted text of a PDF document. Consecutive chunks overlap;
+ * offsets are character positions in the text of the whole document, pages are
+ * 1-based. Written in batches by PdfExtractionService.
+ */
+@Entity
+@Table(name = "pdf_chunks", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_pdf_chunks_document_index", columnNames = {"pdf_document_id", "chunk_index"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PdfChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "pdf_document_id", nullable = false)
+    private Long pdfDocumentId;
+
+    @Column(name = "chunk_index", nullable = false)
+    private Integer chunkIndex;
+
+    @Column(name = "page_start", nullable = false)
+    private Integer pageStart;
+
+    @Column(name = "page_end", nullable = false)
+    private Integer pageEnd;
+
+    @Column(name = "start_offset", nullable = false)
+    private Long startOffset;
+
+    @Column(name = "end_offset", nullable = false)
+    private Long endOffset;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String content;
+}
@@ -29,6 +29,10 @@ public class PdfDocument {
     @Column(name = "file_path", nullable = false)
     private String filePath;
 
+    // SHA-256 of the content, key of the shared PdfBlob; null for files stored before deduplication
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     @Column(name = "file_size", nullable = false)
     private Long fileSize;
 
@@ -38,6 +42,45 @@ public class PdfDocument {
     @Column(name = "uploaded_at", nullable = false)
     private LocalDateTime uploadedAt;
 
+    // Text extraction progress, written by PdfExtractionService. Existing rows default
+    // to PENDING so documents uploaded before extraction existed are processed too.
+    @Enumerated(EnumType.STRING)
+    @Column(name = "extraction_status", columnDefinition = "VARCHAR(20) DEFAULT 'PENDING'", updatable = false)
+    @Builder.Default
+    private ExtractionStatus extractionStatus = ExtractionStatus.PENDING;
+
+    @Column(name = "page_count", updatable = false)
+    private Integer pageCount;
+
+    @Column(name = "pages_extracted", columnDefinition = "INTEGER DEFAULT 0", updatable = false)
+    @Builder.Default
+    private Integer pagesExtracted = 0;
+
+    @Column(name = "extraction_error", updatable = false)
+    private String extractionError;
+
+    // Checkpoint to resume extraction from: next chunk index and start offset, and the
+    // page (with its start offset in the document text) that chunk starts in
+    @Column(name = "extraction_next_chunk", columnDefinition = "INTEGER DEFAULT 0", insertable = false, updatable = false)
+    private Integer extractionNextChunk;
+
+    @Column(name = "extraction_next_chunk_start", columnDefinition = "BIGINT DEFAULT 0", insertable = false, updatable = false)
+    private Long extractionNextChunkStart;
+
+    @Column(name = "extraction_resume_page", columnDefinition = "INTEGER DEFAULT 1", insertable = false, updatable = false)
+    private Integer extractionResumePage;
+
+    @Column(name = "extraction_resume_offset", columnDefinition = "BIGINT DEFAULT 0", insertable = false, updatable = false)
+    private Long extractionResumeOffset;
+
+    // Last sign of life of the worker extracting this document
+    @Column(name = "extraction_heartbeat", updatable = false)
+    private LocalDateTime extractionHeartbeat;
+
+    // Token of the worker's claim; its writes only apply while the claim is still theirs
+    @Column(name = "extraction_claim", length = 36, insertable = false, updatable = false)
+    private String extractionClaim;
+
     // Relationship with Conversation
     @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "conversation_id", insertable = false, updatable = false)
@@ -47,4 +90,8 @@ public class PdfDocument {
     protected void onCreate() {
         uploadedAt = LocalDateTime.now();
     }
-}
\ No newline at end of file
+
+    public enum ExtractionStatus {
+        PENDING, EXTRACTING, READY, FAILED
+    }
+}
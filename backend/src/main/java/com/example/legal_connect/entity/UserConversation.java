@@ -8,12 +8,21 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "user_conversations")
+// One active conversation per pair of users, whichever of them started it: the
+// partial unique index PAIR_KEY, created by UserConversationPairMigration
+@Table(name = "user_conversations", indexes = {
+    // Inbox pages: each participant's conversations by activity
+    @Index(name = "idx_user_conversations_user1_activity", columnList = "user1_id,last_message_at"),
+    @Index(name = "idx_user_conversations_user2_activity", columnList = "user2_id,last_message_at")
+})
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class UserConversation {
+    public static final int PREVIEW_LENGTH = 255;
+    public static final String PAIR_KEY = "uk_user_conversations_pair";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -26,9 +35,41 @@ public class UserConversation {
     @JoinColumn(name = "user2_id", nullable = false)
     private User user2;
 
+    // Canonical pair key, computed by the database
+    @Column(name = "min_user_id", insertable = false, updatable = false,
+            columnDefinition = "BIGINT GENERATED ALWAYS AS (LEAST(user1_id, user2_id)) STORED")
+    private Long minUserId;
+
+    @Column(name = "max_user_id", insertable = false, updatable = false,
+            columnDefinition = "BIGINT GENERATED ALWAYS AS (GREATEST(user1_id, user2_id)) STORED")
+    private Long maxUserId;
+
     @Column(name = "last_message_at")
     private LocalDateTime lastMessageAt;
 
+    // Last message snapshot and per-participant read state. Maintained only by the
+    // single-row UPDATEs in UserConversationRepository, never by saving the entity
+    @Column(name = "last_message_id", updatable = false)
+    private Long lastMessageId;
+
+    @Column(name = "last_message_preview", length = PREVIEW_LENGTH, updatable = false)
+    private String lastMessagePreview;
+
+    @Column(name = "user1_unread", columnDefinition = "INTEGER DEFAULT 0", updatable = false)
+    @Builder.Default
+    private Integer user1Unread = 0;
+
+    @Column(name = "user2_unread", columnDefinition = "INTEGER DEFAULT 0", updatable = false)
+    @Builder.Default
+    private Integer user2Unread = 0;
+
+    // Highest message id each participant has read
+    @Column(name = "user1_last_read_id", updatable = false)
+    private Long user1LastReadId;
+
+    @Column(name = "user2_last_read_id", updatable = false)
+    private Long user2LastReadId;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -40,4 +81,18 @@ public class UserConversation {
     @Column(name = "is_active", nullable = false)
     @Builder.Default
     private Boolean isActive = true;
-}
\ No newline at end of file
+
+    public static String preview(String content) {
+        if (content == null || content.length() <= PREVIEW_LENGTH) {
+            return content;
+        }
+        return content.substring(0, PREVIEW_LENGTH - 1) + "…";
+    }
+
+    /**
+     * Highest message id the other participant of the sender has read
+     */
+    public Long lastReadIdOfRecipient(Long senderId) {
+        return user1.getId().equals(senderId) ? user2LastReadId : user1LastReadId;
+    }
+}
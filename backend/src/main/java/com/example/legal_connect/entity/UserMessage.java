@@ -7,7 +7,10 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "user_messages")
+@Table(name = "user_messages", indexes = {
+    // Message history pages by id cursor
+    @Index(name = "idx_user_messages_conversation_id", columnList = "conversation_id,id")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -78,6 +78,9 @@ public class ConversationMapper {
                 .fileSize(pdfDocument.getFileSize())
                 .contentType(pdfDocument.getContentType())
                 .uploadedAt(pdfDocument.getUploadedAt())
+                .extractionStatus(pdfDocument.getExtractionStatus())
+                .pageCount(pdfDocument.getPageCount())
+                .pagesExtracted(pdfDocument.getPagesExtracted())
                 .build();
     }
 
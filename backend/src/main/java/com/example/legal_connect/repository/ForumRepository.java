@@ -11,6 +11,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -118,6 +119,42 @@ public interface ForumRepository extends JpaRepository<Post, Long> {
     @Query("UPDATE Post p SET p.views = p.views + 1 WHERE p.id = :postId")
     void incrementViews(@Param("postId") Long postId);
     
+    /**
+     * Apply vote counter deltas in place and return
+     * [upvote_count, downvote_count, author_id, title]; the rest of the row is untouched
+     */
+    @Query(value = "UPDATE posts SET " +
+           "upvote_count = GREATEST(0, COALESCE(upvote_count, 0) + :upvoteDelta), " +
+           "downvote_count = GREATEST(0, COALESCE(downvote_count, 0) + :downvoteDelta) " +
+           "WHERE id = :postId " +
+           "RETURNING upvote_count, downvote_count, author_id, title",
+           nativeQuery = true)
+    List<Object[]> applyVoteDelta(@Param("postId") Long postId,
+                                  @Param("upvoteDelta") int upvoteDelta,
+                                  @Param("downvoteDelta") int downvoteDelta);
+    
+    /**
+     * Reset vote counters that differ from the votes on record, skipping targets voted
+     * on since quietSince and those in busyIds, which have deltas not yet in their row
+     * (a removed vote leaves no timestamp behind); returns the number of rows corrected
+     */
+    @Modifying
+    @Query(value = "UPDATE posts t SET upvote_count = c.upvotes, downvote_count = c.downvotes " +
+           "FROM (SELECT x.id, " +
+           "COUNT(v.id) FILTER (WHERE v.vote_type = 'UPVOTE') AS upvotes, " +
+           "COUNT(v.id) FILTER (WHERE v.vote_type = 'DOWNVOTE') AS downvotes " +
+           "FROM posts x LEFT JOIN post_votes v ON v.post_id = x.id WHERE x.id NOT IN (:busyIds) GROUP BY x.id " +
+           "HAVING COALESCE(MAX(COALESCE(v.updated_at, v.created_at)), CAST('-infinity' AS timestamp)) < :quietSince) c " +
+           "WHERE t.id = c.id AND (t.upvote_count IS DISTINCT FROM c.upvotes OR t.downvote_count IS DISTINCT FROM c.downvotes)",
+           nativeQuery = true)
+    int recountVotes(@Param("quietSince") LocalDateTime quietSince, @Param("busyIds") Collection<Long> busyIds);
+    
+    /**
+     * Vote counters without loading the post: [upvoteCount, downvoteCount, authorId, title]
+     */
+    @Query("SELECT p.upvoteCount, p.downvoteCount, p.author.id, p.title FROM Post p WHERE p.id = :postId")
+    List<Object[]> findVoteCounts(@Param("postId") Long postId);
+    
     /**
      * Update reply count
      */
@@ -312,4 +349,13 @@ public interface ForumRepository extends JpaRepository<Post, Long> {
     @Query("SELECT p FROM Post p WHERE p.category.id = :categoryId AND p.isActive = true " +
            "ORDER BY p.createdAt DESC")
     Optional<Post> findLatestPostByCategoryId(@Param("categoryId") Long categoryId);
+    
+    /**
+     * Vote counters and the user's own vote for a set of posts in one query:
+     * [id, upvoteCount, downvoteCount, userVote]; userVote is null when the user has not voted
+     */
+    @Query("SELECT p.id, p.upvoteCount, p.downvoteCount, v.voteType FROM Post p " +
+           "LEFT JOIN PostVote v ON v.post = p AND v.user.id = :userId " +
+           "WHERE p.id IN :ids")
+    List<Object[]> findVoteStates(@Param("ids") Collection<Long> ids, @Param("userId") Long userId);
 }
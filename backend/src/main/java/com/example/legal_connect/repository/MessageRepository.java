@@ -2,6 +2,7 @@ package com.example.legal_connect.repository;
 
 import com.example.legal_connect.entity.Message;
 import com.example.legal_connect.entity.Message.MessageRole;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -13,9 +14,14 @@ import java.util.List;
 public interface MessageRepository extends JpaRepository<Message, Long> {
 
     /**
-     * Find all messages by conversation ID ordered by created date
+     * Messages older than beforeId, newest first; page size comes from the pageable
      */
-    List<Message> findByConversationIdOrderByCreatedAtAsc(Long conversationId);
+    List<Message> findByConversationIdAndIdLessThanOrderByIdDesc(Long conversationId, Long beforeId, Pageable pageable);
+
+    /**
+     * Messages newer than afterId, oldest first; page size comes from the pageable
+     */
+    List<Message> findByConversationIdAndIdGreaterThanOrderByIdAsc(Long conversationId, Long afterId, Pageable pageable);
 
     /**
      * Find messages by conversation ID and role
@@ -9,17 +9,35 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Notifications are range-partitioned by month on created_at in PostgreSQL (see
+ * NotificationPartitionMaintenance). None of the queries here bound created_at, so
+ * none are pruned to a few partitions: each one probes the user's index entries in
+ * every partition. Retention keeps that to about app.notification.retention-days of
+ * read rows plus the unread ones (see NotificationMarkAllAsReadBenchmark for timings).
+ */
 @Repository
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
     
+    // The count query of the Page counts all of the user's rows
     Page<Notification> findByUserIdOrderByCreatedAtDesc(Long userId, Pageable pageable);
     
     Page<Notification> findByUserIdAndIsReadOrderByCreatedAtDesc(Long userId, Boolean isRead, Pageable pageable);
     
+    // Served by the partial idx_user_unread index, so read history does not slow it down
     long countByUserIdAndIsRead(Long userId, Boolean isRead);
     
+    // Unread aggregate for the same target with an event since the given time, used when coalescing notifications;
+    // an aggregate can be older than the window, so created_at is not bounded
+    Optional<Notification> findFirstByUserIdAndTypeAndRelatedEntityTypeAndRelatedEntityIdAndIsReadFalseAndLastEventAtGreaterThanEqualOrderByLastEventAtDesc(
+        Long userId, Notification.NotificationType type, String relatedEntityType, Long relatedEntityId, LocalDateTime since);
+    
+    // Only visits unread rows through idx_user_unread
     @Modifying
     @Query("UPDATE Notification n SET n.isRead = true WHERE n.user.id = :userId AND n.isRead = false")
-    void markAllAsReadByUserId(@Param("userId") Long userId);
+    int markAllAsReadByUserId(@Param("userId") Long userId);
 }
 
@@ -0,0 +1,37 @@
+package com.example.legal_connect.repository;
+
+import com.example.legal_connect.entity.PdfBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PdfBlobRepository extends JpaRepository<PdfBlob, String> {
+
+    /**
+     * Add a reference to the blob, creating its row with filePath if needed. Returns
+     * the blob's file path: filePath itself means the row was just created and the
+     * content is not stored yet. The row stays locked until the transaction ends.
+     */
+    @Query(value = "INSERT INTO pdf_blobs (sha256, file_path, file_size, ref_count, created_at) " +
+           "VALUES (:sha256, :filePath, :fileSize, 1, now()) " +
+           "ON CONFLICT (sha256) DO UPDATE SET ref_count = pdf_blobs.ref_count + 1 " +
+           "RETURNING file_path", nativeQuery = true)
+    String acquire(@Param("sha256") String sha256, @Param("filePath") String filePath, @Param("fileSize") long fileSize);
+
+    /**
+     * Remove a reference; returns the remaining count, or null if the blob is unknown
+     */
+    @Query(value = "UPDATE pdf_blobs SET ref_count = ref_count - 1 WHERE sha256 = :sha256 " +
+           "RETURNING ref_count", nativeQuery = true)
+    Integer release(@Param("sha256") String sha256);
+
+    /**
+     * Delete the blob row if nothing references it any more
+     */
+    @Modifying
+    @Query("DELETE FROM PdfBlob b WHERE b.sha256 = :sha256 AND b.refCount <= 0")
+    int deleteIfUnreferenced(@Param("sha256") String sha256);
+}
@@ -0,0 +1,26 @@
+package com.example.legal_connect.repository;
+
+import com.example.legal_connect.entity.PdfChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PdfChunkRepository extends JpaRepository<PdfChunk, Long> {
+
+    /**
+     * Chunks of a document in text order
+     */
+    List<PdfChunk> findByPdfDocumentIdOrderByChunkIndex(Long pdfDocumentId);
+
+    /**
+     * Delete the chunks of a document
+     */
+    @Modifying
+    @Query("DELETE FROM PdfChunk c WHERE c.pdfDocumentId = :pdfDocumentId")
+    int deleteByPdfDocumentId(@Param("pdfDocumentId") Long pdfDocumentId);
+}
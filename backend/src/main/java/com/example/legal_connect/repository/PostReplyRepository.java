@@ -6,9 +6,12 @@ import com.example.legal_connect.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -53,9 +56,53 @@ public interface PostReplyRepository extends JpaRepository<PostReply, Long> {
 
     long countByIsActiveTrueAndCreatedAtAfter(java.time.LocalDateTime since);
     
+    /**
+     * Apply vote counter deltas in place and return [upvote_count, downvote_count, author_id]
+     */
+    @Query(value = "UPDATE post_replies SET " +
+           "upvote_count = GREATEST(0, COALESCE(upvote_count, 0) + :upvoteDelta), " +
+           "downvote_count = GREATEST(0, COALESCE(downvote_count, 0) + :downvoteDelta) " +
+           "WHERE id = :replyId " +
+           "RETURNING upvote_count, downvote_count, author_id",
+           nativeQuery = true)
+    List<Object[]> applyVoteDelta(@Param("replyId") Long replyId,
+                                  @Param("upvoteDelta") int upvoteDelta,
+                                  @Param("downvoteDelta") int downvoteDelta);
+    
+    /**
+     * Reset vote counters that differ from the votes on record, skipping targets voted
+     * on since quietSince and those in busyIds, which have deltas not yet in their row
+     * (a removed vote leaves no timestamp behind); returns the number of rows corrected
+     */
+    @Modifying
+    @Query(value = "UPDATE post_replies t SET upvote_count = c.upvotes, downvote_count = c.downvotes " +
+           "FROM (SELECT x.id, " +
+           "COUNT(v.id) FILTER (WHERE v.vote_type = 'UPVOTE') AS upvotes, " +
+           "COUNT(v.id) FILTER (WHERE v.vote_type = 'DOWNVOTE') AS downvotes " +
+           "FROM post_replies x LEFT JOIN reply_votes v ON v.reply_id = x.id WHERE x.id NOT IN (:busyIds) GROUP BY x.id " +
+           "HAVING COALESCE(MAX(COALESCE(v.updated_at, v.created_at)), CAST('-infinity' AS timestamp)) < :quietSince) c " +
+           "WHERE t.id = c.id AND (t.upvote_count IS DISTINCT FROM c.upvotes OR t.downvote_count IS DISTINCT FROM c.downvotes)",
+           nativeQuery = true)
+    int recountVotes(@Param("quietSince") LocalDateTime quietSince, @Param("busyIds") Collection<Long> busyIds);
+    
+    /**
+     * Vote counters without loading the reply: [upvoteCount, downvoteCount, authorId]
+     */
+    @Query("SELECT r.upvoteCount, r.downvoteCount, r.author.id FROM PostReply r WHERE r.id = :replyId")
+    List<Object[]> findVoteCounts(@Param("replyId") Long replyId);
+    
     /**
      * Count all replies for posts in a specific category
      */
     @Query("SELECT COUNT(r) FROM PostReply r WHERE r.post.category.id = :categoryId AND r.isActive = true")
     long countByCategoryId(@Param("categoryId") Long categoryId);
-}
\ No newline at end of file
+    
+    /**
+     * Vote counters and the user's own vote for a set of replies in one query:
+     * [id, upvoteCount, downvoteCount, userVote]; userVote is null when the user has not voted
+     */
+    @Query("SELECT r.id, r.upvoteCount, r.downvoteCount, v.voteType FROM PostReply r " +
+           "LEFT JOIN ReplyVote v ON v.reply = r AND v.user.id = :userId " +
+           "WHERE r.id IN :ids")
+    List<Object[]> findVoteStates(@Param("ids") Collection<Long> ids, @Param("userId") Long userId);
+}
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -17,5 +18,25 @@ public interface PostVoteRepository extends JpaRepository<PostVote, Long> {
     long countByPostIdAndVoteType(@Param("postId") Long postId, @Param("voteType") PostVote.VoteType voteType);
     
     void deleteByPostIdAndUserId(Long postId, Long userId);
+    
+    /**
+     * Insert the user's vote or switch its type in one statement. Returns one row
+     * (true when inserted, false when switched), or none when the vote already had
+     * this type. Concurrent votes by the same user serialize on the unique key.
+     */
+    @Query(value = "INSERT INTO post_votes (post_id, user_id, vote_type, created_at, updated_at) " +
+           "VALUES (:postId, :userId, :voteType, now(), now()) " +
+           "ON CONFLICT (post_id, user_id) DO UPDATE SET vote_type = EXCLUDED.vote_type, updated_at = now() " +
+           "WHERE post_votes.vote_type <> EXCLUDED.vote_type " +
+           "RETURNING (xmax = 0)",
+           nativeQuery = true)
+    List<Boolean> upsertVote(@Param("postId") Long postId, @Param("userId") Long userId, @Param("voteType") String voteType);
+    
+    /**
+     * Delete the user's vote, returning the type it had (empty if there was none)
+     */
+    @Query(value = "DELETE FROM post_votes WHERE post_id = :postId AND user_id = :userId RETURNING vote_type",
+           nativeQuery = true)
+    List<String> deleteVote(@Param("postId") Long postId, @Param("userId") Long userId);
 }
 
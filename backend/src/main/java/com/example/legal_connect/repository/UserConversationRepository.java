@@ -2,27 +2,136 @@ package com.example.legal_connect.repository;
 
 import com.example.legal_connect.entity.UserConversation;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserConversationRepository extends JpaRepository<UserConversation, Long> {
     
+    /**
+     * Inbox rows: the conversation, the other participant, the last message snapshot
+     * and the unread counter of :userId, in one statement. Columns:
+     * [0] id, [1] created_at, [2] updated_at, [3] activity_at (last_message_at, or
+     * created_at before the first message), [4] participant id, [5] full_name,
+     * [6] email, [7] avatar, [8] role, [9] last message preview, [10] last message
+     * created_at, [11] last message sender_id, [12] unread count
+     */
+    String INBOX_SELECT = "SELECT uc.id, uc.created_at, uc.updated_at, " +
+           "COALESCE(uc.last_message_at, uc.created_at) AS activity_at, " +
+           "u.id AS participant_id, u.full_name, u.email, u.avatar, u.role, " +
+           "uc.last_message_preview, lm.created_at AS last_message_created_at, lm.sender_id, " +
+           "CASE WHEN uc.user1_id = :userId THEN uc.user1_unread ELSE uc.user2_unread END AS unread_count " +
+           "FROM user_conversations uc " +
+           "JOIN users u ON u.id = CASE WHEN uc.user1_id = :userId THEN uc.user2_id ELSE uc.user1_id END " +
+           "LEFT JOIN user_messages lm ON lm.id = uc.last_message_id " +
+           "WHERE (uc.user1_id = :userId OR uc.user2_id = :userId) AND uc.is_active = true ";
+    
+    String INBOX_ORDER = "ORDER BY activity_at DESC, uc.id DESC LIMIT :size";
+    
+    /**
+     * First inbox page, most recently active first
+     */
+    @Query(value = INBOX_SELECT + INBOX_ORDER, nativeQuery = true)
+    List<Object[]> findInbox(@Param("userId") Long userId, @Param("size") int size);
+    
+    /**
+     * Inbox page after the cursor (activity time and id of the last row of the previous page)
+     */
+    @Query(value = INBOX_SELECT +
+           "AND (COALESCE(uc.last_message_at, uc.created_at), uc.id) < (:beforeAt, :beforeId) " +
+           INBOX_ORDER, nativeQuery = true)
+    List<Object[]> findInboxBefore(@Param("userId") Long userId,
+                                   @Param("beforeAt") LocalDateTime beforeAt,
+                                   @Param("beforeId") Long beforeId,
+                                   @Param("size") int size);
+    
+    /**
+     * A single inbox row, for endpoints that return one conversation
+     */
+    @Query(value = INBOX_SELECT + "AND uc.id = :conversationId", nativeQuery = true)
+    List<Object[]> findInboxEntry(@Param("userId") Long userId, @Param("conversationId") Long conversationId);
+    
+    /**
+     * Record a new message: move the last message snapshot forward and count it as
+     * unread for the recipient. Messages may commit out of id order; one that lands
+     * at or below the recipient's watermark moves the watermark just below it, so it
+     * is not reported as read, and their counter is recounted.
+     */
+    @Modifying
+    @Query(value = "UPDATE user_conversations SET " +
+           "user1_unread = CASE WHEN user1_id = :senderId THEN user1_unread " +
+           "WHEN :messageId <= user1_last_read_id THEN (SELECT count(*) FROM user_messages um " +
+           "WHERE um.conversation_id = :conversationId AND um.sender_id <> user1_id " +
+           "AND um.id >= :messageId AND um.is_active = true) ELSE user1_unread + 1 END, " +
+           "user2_unread = CASE WHEN user2_id = :senderId THEN user2_unread " +
+           "WHEN :messageId <= user2_last_read_id THEN (SELECT count(*) FROM user_messages um " +
+           "WHERE um.conversation_id = :conversationId AND um.sender_id <> user2_id " +
+           "AND um.id >= :messageId AND um.is_active = true) ELSE user2_unread + 1 END, " +
+           "user1_last_read_id = CASE WHEN user1_id <> :senderId AND :messageId <= user1_last_read_id " +
+           "THEN :messageId - 1 ELSE user1_last_read_id END, " +
+           "user2_last_read_id = CASE WHEN user2_id <> :senderId AND :messageId <= user2_last_read_id " +
+           "THEN :messageId - 1 ELSE user2_last_read_id END, " +
+           "last_message_preview = CASE WHEN COALESCE(last_message_id, 0) < :messageId " +
+           "THEN :preview ELSE last_message_preview END, " +
+           "last_message_id = GREATEST(COALESCE(last_message_id, 0), :messageId), " +
+           "last_message_at = GREATEST(COALESCE(last_message_at, :sentAt), :sentAt), " +
+           "updated_at = now() " +
+           "WHERE id = :conversationId", nativeQuery = true)
+    int recordMessage(@Param("conversationId") Long conversationId,
+                      @Param("senderId") Long senderId,
+                      @Param("messageId") Long messageId,
+                      @Param("preview") String preview,
+                      @Param("sentAt") LocalDateTime sentAt);
+    
+    /**
+     * Mark everything up to the last message as read for :userId. Returns 0 if the
+     * conversation does not exist or the user is not a participant.
+     */
+    @Modifying
+    @Query(value = "UPDATE user_conversations SET " +
+           "user1_unread = CASE WHEN user1_id = :userId THEN 0 ELSE user1_unread END, " +
+           "user2_unread = CASE WHEN user2_id = :userId THEN 0 ELSE user2_unread END, " +
+           "user1_last_read_id = CASE WHEN user1_id = :userId " +
+           "THEN GREATEST(user1_last_read_id, last_message_id) ELSE user1_last_read_id END, " +
+           "user2_last_read_id = CASE WHEN user2_id = :userId " +
+           "THEN GREATEST(user2_last_read_id, last_message_id) ELSE user2_last_read_id END " +
+           "WHERE id = :conversationId AND (user1_id = :userId OR user2_id = :userId) " +
+           "AND is_active = true", nativeQuery = true)
+    int markRead(@Param("conversationId") Long conversationId, @Param("userId") Long userId);
+    
     @Query("SELECT uc FROM UserConversation uc " +
            "WHERE (uc.user1.id = :userId OR uc.user2.id = :userId) " +
            "AND uc.isActive = true " +
            "ORDER BY uc.lastMessageAt DESC NULLS LAST, uc.createdAt DESC")
     List<UserConversation> findByUserIdOrderByLastMessageAtDesc(@Param("userId") Long userId);
     
-    @Query("SELECT uc FROM UserConversation uc " +
-           "WHERE ((uc.user1.id = :user1Id AND uc.user2.id = :user2Id) " +
-           "OR (uc.user1.id = :user2Id AND uc.user2.id = :user1Id)) " +
+    /**
+     * Conversation of a pair of users by its canonical key; minUserId must be the smaller id
+     */
+    @Query("SELECT uc.id FROM UserConversation uc " +
+           "WHERE uc.minUserId = :minUserId AND uc.maxUserId = :maxUserId " +
            "AND uc.isActive = true")
-    Optional<UserConversation> findByUsers(@Param("user1Id") Long user1Id, @Param("user2Id") Long user2Id);
+    Optional<Long> findIdByPair(@Param("minUserId") Long minUserId, @Param("maxUserId") Long maxUserId);
+    
+    /**
+     * Create the conversation of a pair of users, or return the active one if a
+     * concurrent request created it first. The started-by user becomes user1. A
+     * deleted conversation of the pair stays deleted. The no-op update only makes
+     * RETURNING yield the existing row.
+     */
+    @Query(value = "INSERT INTO user_conversations " +
+           "(user1_id, user2_id, is_active, user1_unread, user2_unread, created_at, updated_at) " +
+           "VALUES (:user1Id, :user2Id, true, 0, 0, now(), now()) " +
+           "ON CONFLICT (min_user_id, max_user_id) WHERE is_active = true " +
+           "DO UPDATE SET updated_at = user_conversations.updated_at " +
+           "RETURNING id", nativeQuery = true)
+    Long upsertPair(@Param("user1Id") Long user1Id, @Param("user2Id") Long user2Id);
     
     @Query("SELECT uc FROM UserConversation uc " +
            "WHERE uc.id = :conversationId " +
@@ -34,4 +143,11 @@ public interface UserConversationRepository extends JpaRepository<UserConversati
            "WHERE (uc.user1.id = :userId OR uc.user2.id = :userId) " +
            "AND uc.isActive = true")
     long countByUserId(@Param("userId") Long userId);
-}
\ No newline at end of file
+    
+    /**
+     * Participants of an active conversation: [user1Id, user2Id]
+     */
+    @Query("SELECT uc.user1.id, uc.user2.id FROM UserConversation uc " +
+           "WHERE uc.id = :conversationId AND uc.isActive = true")
+    List<Object[]> findParticipantIds(@Param("conversationId") Long conversationId);
+}
@@ -1,8 +1,8 @@
 package com.example.legal_connect.repository;
 
 import com.example.legal_connect.entity.UserMessage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -12,39 +12,54 @@ import java.util.List;
 @Repository
 public interface UserMessageRepository extends JpaRepository<UserMessage, Long> {
     
-    @Query("SELECT um FROM UserMessage um " +
+    /**
+     * Messages older than :beforeId, newest first; page size comes from the pageable
+     */
+    @Query("SELECT um FROM UserMessage um JOIN FETCH um.sender " +
            "WHERE um.conversation.id = :conversationId " +
+           "AND um.id < :beforeId " +
            "AND um.isActive = true " +
-           "ORDER BY um.createdAt ASC")
-    List<UserMessage> findByConversationIdOrderByCreatedAtAsc(@Param("conversationId") Long conversationId);
+           "ORDER BY um.id DESC")
+    List<UserMessage> findPageBefore(@Param("conversationId") Long conversationId,
+                                     @Param("beforeId") Long beforeId,
+                                     Pageable pageable);
     
-    @Query("SELECT um FROM UserMessage um " +
-           "WHERE um.conversation.id = :conversationId " +
-           "AND um.sender.id != :userId " +
-           "AND um.isRead = false " +
-           "AND um.isActive = true")
-    List<UserMessage> findUnreadMessages(@Param("conversationId") Long conversationId, @Param("userId") Long userId);
-    
-    @Query("SELECT COUNT(um) FROM UserMessage um " +
-           "WHERE um.conversation.id = :conversationId " +
-           "AND um.sender.id != :userId " +
-           "AND um.isRead = false " +
-           "AND um.isActive = true")
-    long countUnreadMessages(@Param("conversationId") Long conversationId, @Param("userId") Long userId);
-    
-    @Modifying
-    @Query("UPDATE UserMessage um SET um.isRead = true " +
-           "WHERE um.conversation.id = :conversationId " +
-           "AND um.sender.id != :userId " +
-           "AND um.isRead = false " +
-           "AND um.isActive = true")
-    int markMessagesAsRead(@Param("conversationId") Long conversationId, @Param("userId") Long userId);
-    
-    @Query("SELECT um FROM UserMessage um " +
+    /**
+     * Messages newer than :afterId, oldest first; page size comes from the pageable
+     */
+    @Query("SELECT um FROM UserMessage um JOIN FETCH um.sender " +
            "WHERE um.conversation.id = :conversationId " +
+           "AND um.id > :afterId " +
            "AND um.isActive = true " +
-           "ORDER BY um.createdAt DESC")
-    List<UserMessage> findByConversationIdOrderByCreatedAtDesc(@Param("conversationId") Long conversationId);
+           "ORDER BY um.id ASC")
+    List<UserMessage> findPageAfter(@Param("conversationId") Long conversationId,
+                                    @Param("afterId") Long afterId,
+                                    Pageable pageable);
+    
+    /**
+     * Full-text search over the messages of every conversation of :userId, newest
+     * first, older than :beforeId. Uses the text search index created by
+     * UserMessageSearchIndex, so the to_tsvector expression must stay identical.
+     * Columns: [0] id, [1] conversation_id, [2] sender_id, [3] sender name,
+     * [4] snippet, [5] created_at
+     */
+    @Query(value = "SELECT um.id, um.conversation_id, um.sender_id, u.full_name, " +
+           "ts_headline('simple', replace(replace(replace(um.content, '&', '&amp;'), '<', '&lt;'), '>', '&gt;'), q, " +
+           "'StartSel=<mark>, StopSel=</mark>, MaxWords=25, MinWords=10, MaxFragments=2'), " +
+           "um.created_at " +
+           "FROM user_messages um " +
+           "JOIN users u ON u.id = um.sender_id, " +
+           "websearch_to_tsquery('simple', :query) q " +
+           "WHERE um.conversation_id IN (SELECT uc.id FROM user_conversations uc " +
+           "WHERE (uc.user1_id = :userId OR uc.user2_id = :userId) AND uc.is_active = true) " +
+           "AND to_tsvector('simple', um.content) @@ q " +
+           "AND um.id < :beforeId " +
+           "AND um.is_active = true " +
+           "ORDER BY um.id DESC LIMIT :size", nativeQuery = true)
+    List<Object[]> search(@Param("userId") Long userId,
+                          @Param("query") String query,
+                          @Param("beforeId") Long beforeId,
+                          @Param("size") int size);
     
     @Query("SELECT COUNT(um) FROM UserMessage um " +
            "WHERE um.conversation.id = :conversationId " +
@@ -4,9 +4,12 @@ import com.example.legal_connect.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,6 +17,15 @@ import java.util.Optional;
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     Optional<User> findByFullName(String fullName);
+    List<User> findByFullNameIn(Collection<String> fullNames);
+    
+    // Mention lookup, served by idx_users_full_name_lower (lowercased names)
+    @Query(value = "SELECT full_name FROM users WHERE is_enabled = true AND lower(full_name) IN (:names)",
+           nativeQuery = true)
+    List<String> findEnabledFullNamesIn(@Param("names") Collection<String> names);
+    
+    @Query("SELECT u.fullName FROM User u WHERE u.id = :id")
+    Optional<String> findFullNameById(@Param("id") Long id);
     boolean existsByEmail(String email);
     Optional<User> findByProviderIdAndAuthProvider(String providerId, User.AuthProvider authProvider);
     long countByCreatedAtAfter(LocalDateTime since);
@@ -0,0 +1,17 @@
+package com.example.legal_connect.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Produces assistant answers for AI chat conversations piece by piece.
+ *
+ * Implementations call onDelta with each new piece of text as soon as it is
+ * available and return once the answer is complete; the concatenated deltas are the
+ * whole answer. When interrupted they throw instead of returning a partial answer.
+ * Called on a worker thread; {@link AssistantStreamingService} runs one generation
+ * per conversation at a time within this application instance.
+ */
+public interface AssistantResponseGenerator {
+
+    void generate(Long conversationId, String prompt, Consumer<String> onDelta);
+}
@@ -0,0 +1,242 @@
+package com.example.legal_connect.service;
+
+import com.example.legal_connect.dto.conversation.MessageDto;
+import com.example.legal_connect.dto.conversation.SendMessageRequest;
+import com.example.legal_connect.dto.conversation.StreamMessageRequest;
+import com.example.legal_connect.entity.Message.MessageRole;
+import com.example.legal_connect.repository.ConversationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams assistant answers to the client as Server-Sent Events.
+ *
+ * The user's message is saved first and echoed as a "message" event. Each piece of
+ * text from the {@link AssistantResponseGenerator} is sent as a "delta" event; the
+ * whole answer is saved as one ASSISTANT message when generation ends and sent as a
+ * "done" event. A client that disconnects stops receiving events, but the answer is
+ * still completed and saved so it shows up in the history. Failures end the stream
+ * with an "error" event and save no answer, including generations interrupted or
+ * still queued when the application shuts down.
+ *
+ * Generation runs on a bounded pool, one generation per conversation at a time. A
+ * request first checks access to the conversation and reserves the conversation and
+ * a place in the pool, and only then charges the user's API key, so a refused request
+ * costs nothing. When the pool is full, or the conversation already has an answer
+ * being generated, the request is refused with {@link AssistantBusyException} instead
+ * of queueing. Metrics: assistant.stream.first-delta (time from the
+ * request to the first delta, i.e. time to first byte of the answer) and
+ * assistant.stream.duration.
+ */
+@Slf4j
+@Service
+public class AssistantStreamingService {
+
+    private final MessageService messageService;
+    private final ConversationRepository conversationRepository;
+    private final AssistantResponseGenerator generator;
+    private final ApiKeyValidationService apiKeyValidationService;
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor() {
+        @Override
+        protected void cancelRemainingTask(Runnable task) {
+            super.cancelRemainingTask(task);
+            if (task instanceof Generation generation) {
+                generation.abandon();
+            }
+        }
+    };
+    // Running plus queued generations; taken before charging, released when generation ends
+    private final Semaphore slots;
+    // Conversations with a running or queued generation
+    private final Set<Long> generating = ConcurrentHashMap.newKeySet();
+    private final Timer firstDeltaTimer;
+    private final Timer durationTimer;
+
+    @Value("${app.assistant.stream-timeout-ms}")
+    private long streamTimeoutMs;
+
+    public AssistantStreamingService(MessageService messageService,
+                                     ConversationRepository conversationRepository,
+                                     AssistantResponseGenerator generator,
+                                     ApiKeyValidationService apiKeyValidationService,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${app.assistant.pool-size}") int poolSize,
+                                     @Value("${app.assistant.queue-capacity}") int queueCapacity) {
+        this.messageService = messageService;
+        this.conversationRepository = conversationRepository;
+        this.generator = generator;
+        this.apiKeyValidationService = apiKeyValidationService;
+        this.slots = new Semaphore(poolSize + queueCapacity);
+        executor.setThreadNamePrefix("assistant-");
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.initialize();
+
+        this.firstDeltaTimer = Timer.builder("assistant.stream.first-delta")
+                .description("Time from the request to the first streamed delta").register(meterRegistry);
+        this.durationTimer = Timer.builder("assistant.stream.duration")
+                .description("Time from the request to the saved answer").register(meterRegistry);
+    }
+
+    /**
+     * Interrupts running generations and ends queued ones with an "error" event
+     */
+    @PreDestroy
+    void stop() {
+        executor.shutdown();
+    }
+
+    public SseEmitter stream(StreamMessageRequest request, Long userId) {
+        long startedAt = System.nanoTime();
+        Long conversationId = request.getConversationId();
+        conversationRepository.findByIdAndUserId(conversationId, userId)
+                .orElseThrow(() -> new RuntimeException("Conversation not found or access denied"));
+
+        if (!generating.add(conversationId)) {
+            throw new AssistantBusyException("An answer is already being generated for this conversation");
+        }
+        if (!slots.tryAcquire()) {
+            generating.remove(conversationId);
+            throw new AssistantBusyException("Assistant is busy, please try again shortly");
+        }
+        Generation generation = new Generation(request, userId, new SseEmitter(streamTimeoutMs), startedAt);
+        try {
+            apiKeyValidationService.validateAndUseApiKey(userId, "chat");
+            executor.execute(generation);
+        } catch (RuntimeException e) {
+            generation.release();
+            if (e instanceof TaskRejectedException) {
+                // Only while shutting down; the slot guaranteed room in the pool
+                throw new AssistantBusyException("Assistant is shutting down, please try again shortly");
+            }
+            throw e;
+        }
+        return generation.emitter;
+    }
+
+    private void generate(StreamMessageRequest request, Long userId, SseEmitter emitter, long startedAt) {
+        Long conversationId = request.getConversationId();
+        StreamState state = new StreamState(emitter);
+        try {
+            MessageDto question = messageService.sendMessage(
+                    new SendMessageRequest(conversationId, request.getContent(), MessageRole.USER), userId);
+            state.send("message", question);
+
+            StringBuilder answer = new StringBuilder();
+            generator.generate(conversationId, request.getContent(), delta -> {
+                if (answer.isEmpty()) {
+                    firstDeltaTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+                answer.append(delta);
+                state.send("delta", Map.of("content", delta));
+            });
+            if (Thread.currentThread().isInterrupted()) {
+                // A generator that returned early instead of failing; the answer is partial
+                throw new IllegalStateException("Generation was interrupted");
+            }
+
+            MessageDto saved = messageService.sendMessage(
+                    new SendMessageRequest(conversationId, answer.toString(), MessageRole.ASSISTANT), userId);
+            state.send("done", saved);
+            emitter.complete();
+        } catch (Exception e) {
+            log.error("Assistant stream for conversation {} failed: {}", conversationId, e.getMessage());
+            state.send("error", Map.of("message", "Failed to generate a response"));
+            emitter.complete();
+        } finally {
+            durationTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Every generation slot is taken, or the conversation already has one; the request
+     * was not charged
+     */
+    public static final class AssistantBusyException extends RuntimeException {
+        private AssistantBusyException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * One accepted request, holding its conversation and pool slot until it has run or
+     * been abandoned
+     */
+    private final class Generation implements Runnable {
+        private final StreamMessageRequest request;
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final long startedAt;
+
+        private Generation(StreamMessageRequest request, Long userId, SseEmitter emitter, long startedAt) {
+            this.request = request;
+            this.userId = userId;
+            this.emitter = emitter;
+            this.startedAt = startedAt;
+        }
+
+        @Override
+        public void run() {
+            try {
+                generate(request, userId, emitter, startedAt);
+            } finally {
+                release();
+            }
+        }
+
+        /**
+         * Still queued at shutdown: nothing was saved
+         */
+        private void abandon() {
+            log.warn("Assistant stream for conversation {} dropped at shutdown", request.getConversationId());
+            new StreamState(emitter).send("error", Map.of("message", "Failed to generate a response"));
+            emitter.complete();
+            release();
+        }
+
+        private void release() {
+            generating.remove(request.getConversationId());
+            slots.release();
+        }
+    }
+
+    /**
+     * Sends events until the client goes away, then ignores them
+     */
+    private static final class StreamState {
+        private final SseEmitter emitter;
+        private boolean clientGone;
+
+        private StreamState(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private void send(String name, Object data) {
+            if (clientGone) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                clientGone = true;
+                log.debug("Assistant stream client disconnected: {}", e.getMessage());
+            }
+        }
+    }
+}
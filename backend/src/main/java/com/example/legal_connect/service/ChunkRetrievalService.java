@@ -0,0 +1,242 @@
+package com.example.legal_connect.service;
+
+import com.example.legal_connect.dto.conversation.PdfChunkHitDto;
+import com.example.legal_connect.entity.PdfChunk;
+import com.example.legal_connect.entity.PdfDocument;
+import com.example.legal_connect.repository.ConversationRepository;
+import com.example.legal_connect.repository.PdfChunkRepository;
+import com.example.legal_connect.repository.PdfDocumentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Semantic search over the extracted text of PDF documents.
+ *
+ * Chunks are embedded with the {@link TextEmbedder} and kept in an {@link HnswIndex}
+ * under app.retrieval.index-dir, labelled with the chunk id and grouped by document,
+ * so a search can be limited to one conversation's PDF or to a set of documents.
+ * Every app.retrieval.sweep-interval-ms the chunks of documents whose extraction
+ * became READY are added one document at a time, on a thread of its own so a large
+ * backlog does not hold up the shared scheduler. The index is saved after each
+ * document, which then counts as complete; a document interrupted part way is
+ * resumed on the next sweep, skipping the chunks already added. On startup all READY
+ * documents not complete in the index are added, which also covers documents added
+ * after the last save. An index built with another dimension is rebuilt.
+ *
+ * Chunks of deleted documents stay in the index but are dropped from results, as
+ * search results are read back from pdf_chunks.
+ */
+@Slf4j
+@Service
+public class ChunkRetrievalService {
+
+    private static final String FIND_READY_DOCUMENTS =
+        "SELECT id FROM pdf_documents WHERE extraction_status = 'READY' ORDER BY id";
+
+    // READY is set with the heartbeat, so this finds documents finished since ?
+    private static final String FIND_READY_DOCUMENTS_SINCE =
+        "SELECT id FROM pdf_documents WHERE extraction_status = 'READY' AND extraction_heartbeat >= ? ORDER BY id";
+
+    private static final String FIND_CHUNKS =
+        "SELECT id, content FROM pdf_chunks WHERE pdf_document_id = ? ORDER BY chunk_index";
+
+    // Covers extractions that committed after the previous sweep read its start time
+    private static final Duration SWEEP_OVERLAP = Duration.ofMinutes(1);
+
+    private final TextEmbedder embedder;
+    private final JdbcTemplate jdbcTemplate;
+    private final PdfChunkRepository pdfChunkRepository;
+    private final PdfDocumentRepository pdfDocumentRepository;
+    private final ConversationRepository conversationRepository;
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    private HnswIndex index;
+    // Only read and written by the indexing thread
+    private Timestamp lastSweep;
+
+    @Value("${app.retrieval.index-dir}")
+    private String indexDir;
+
+    @Value("${app.retrieval.hnsw.m}")
+    private int m;
+
+    @Value("${app.retrieval.hnsw.ef-construction}")
+    private int efConstruction;
+
+    @Value("${app.retrieval.hnsw.ef-search}")
+    private int efSearch;
+
+    @Value("${app.retrieval.exact-search-max}")
+    private int exactSearchMax;
+
+    @Value("${app.retrieval.top-k}")
+    private int defaultTopK;
+
+    @Value("${app.retrieval.max-top-k}")
+    private int maxTopK;
+
+    public ChunkRetrievalService(TextEmbedder embedder,
+                                 JdbcTemplate jdbcTemplate,
+                                 PdfChunkRepository pdfChunkRepository,
+                                 PdfDocumentRepository pdfDocumentRepository,
+                                 ConversationRepository conversationRepository) {
+        this.embedder = embedder;
+        this.jdbcTemplate = jdbcTemplate;
+        this.pdfChunkRepository = pdfChunkRepository;
+        this.pdfDocumentRepository = pdfDocumentRepository;
+        this.conversationRepository = conversationRepository;
+    }
+
+    @PostConstruct
+    void open() throws IOException {
+        Path dir = Paths.get(indexDir);
+        try {
+            index = HnswIndex.open(dir, embedder.dimension(), m, efConstruction, exactSearchMax);
+        } catch (IllegalStateException e) {
+            log.warn("Rebuilding vector index: {}", e.getMessage());
+            HnswIndex.delete(dir);
+            index = HnswIndex.open(dir, embedder.dimension(), m, efConstruction, exactSearchMax);
+        }
+        log.info("Opened vector index {} with {} chunks", dir, index.size());
+
+        executor.setThreadNamePrefix("vector-index-");
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.initialize();
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        // Interrupts a running sweep, which stops before its next document
+        executor.shutdown();
+        index.close();
+    }
+
+    /**
+     * Add the chunks of newly extracted documents
+     */
+    @Scheduled(fixedDelayString = "${app.retrieval.sweep-interval-ms}")
+    public void indexReadyDocuments() {
+        try {
+            executor.execute(this::sweep);
+        } catch (TaskRejectedException e) {
+            log.debug("Vector index sweep skipped, previous sweep still busy");
+        }
+    }
+
+    private void sweep() {
+        int documents = 0;
+        int chunks = 0;
+        long startedAt = System.nanoTime();
+        try {
+            Timestamp sweepStart = jdbcTemplate.queryForObject("SELECT now()", Timestamp.class);
+            List<Long> documentIds = lastSweep == null
+                    ? jdbcTemplate.queryForList(FIND_READY_DOCUMENTS, Long.class)
+                    : jdbcTemplate.queryForList(FIND_READY_DOCUMENTS_SINCE, Long.class,
+                            Timestamp.from(lastSweep.toInstant().minus(SWEEP_OVERLAP)));
+            for (Long documentId : documentIds) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                if (index.isComplete(documentId)) {
+                    continue;
+                }
+                chunks += indexDocument(documentId);
+                documents++;
+            }
+            if (documents > 0) {
+                log.info("Indexed {} chunks of {} PDF documents in {} ms", chunks, documents,
+                        (System.nanoTime() - startedAt) / 1_000_000);
+            }
+            lastSweep = sweepStart;
+        } catch (IOException | DataAccessException e) {
+            // Retried from the same point on the next sweep
+            log.error("Error updating vector index", e);
+        }
+    }
+
+    /**
+     * Add the chunks of a document not added yet, then save; returns the number added
+     */
+    private int indexDocument(Long documentId) throws IOException {
+        Set<Long> indexed = index.labels(documentId);
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(FIND_CHUNKS, documentId);
+        int added = 0;
+        for (Map<String, Object> row : rows) {
+            long chunkId = ((Number) row.get("id")).longValue();
+            if (indexed.contains(chunkId)) {
+                continue;
+            }
+            index.add(chunkId, documentId, embedder.embed((String) row.get("content")));
+            added++;
+        }
+        index.complete(documentId);
+        index.save();
+        return added;
+    }
+
+    /**
+     * Chunks of the PDF of a conversation closest to the query
+     */
+    public List<PdfChunkHitDto> searchConversation(Long conversationId, Long userId, String query, Integer k) {
+        conversationRepository.findByIdAndUserId(conversationId, userId)
+                .orElseThrow(() -> new RuntimeException("Conversation not found or access denied"));
+        PdfDocument pdfDocument = pdfDocumentRepository.findByConversationId(conversationId)
+                .orElseThrow(() -> new RuntimeException("PDF document not found"));
+        return search(List.of(pdfDocument.getId()), query, k);
+    }
+
+    /**
+     * Chunks of the given documents closest to the query; all documents when null.
+     * The caller is responsible for access to the documents.
+     */
+    public List<PdfChunkHitDto> search(Collection<Long> documentIds, String query, Integer k) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query must not be empty");
+        }
+        int topK = Math.min(k == null ? defaultTopK : Math.max(k, 1), maxTopK);
+        List<HnswIndex.Hit> hits = index.search(embedder.embed(query), topK, efSearch, documentIds);
+
+        Map<Long, PdfChunk> chunks = pdfChunkRepository.findAllById(
+                hits.stream().map(HnswIndex.Hit::label).toList()).stream()
+                .collect(Collectors.toMap(PdfChunk::getId, Function.identity()));
+        List<PdfChunkHitDto> results = new ArrayList<>(hits.size());
+        for (HnswIndex.Hit hit : hits) {
+            PdfChunk chunk = chunks.get(hit.label());
+            if (chunk == null) {
+                continue;
+            }
+            results.add(PdfChunkHitDto.builder()
+                    .chunkId(chunk.getId())
+                    .pdfDocumentId(chunk.getPdfDocumentId())
+                    .chunkIndex(chunk.getChunkIndex())
+                    .pageStart(chunk.getPageStart())
+                    .pageEnd(chunk.getPageEnd())
+                    .content(chunk.getContent())
+                    .score(hit.score())
+                    .build());
+        }
+        return results;
+    }
+}
@@ -0,0 +1,765 @@
+package com.example.legal_connect.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * Approximate nearest neighbour index (HNSW, Malkov and Yashunin) over unit-length
+ * float vectors, scored by inner product. Each vector has a label (the id of what it
+ * stands for) and a group (e.g. a document) that searches can be restricted to.
+ *
+ * Vectors, node records and the level 0 links live in memory-mapped files in
+ * segments of 65536 nodes, so the heap holds only the upper levels (about one node in
+ * m) and the nodes of each group. {@link #save()} flushes the mapped files and then
+ * atomically replaces graph.bin (header, upper levels and complete groups); only
+ * nodes counted there are loaded, links to nodes added after it are dropped. A
+ * neighbour whose links were pruned for such a node loses that link, so callers save
+ * after each unit of work to keep the loss small. Adding is incremental and
+ * single-writer; searches run concurrently with each other.
+ *
+ * A group is complete once the caller says so with {@link #complete(long)}; a group
+ * whose adding was interrupted keeps the nodes added so far and can be resumed,
+ * skipping the {@link #labels(long)} already present.
+ *
+ * A restricted search whose groups hold at most exactSearchLimit nodes scans them
+ * exactly, which is both faster and exact for small sets such as one document.
+ * Larger sets are searched through the graph, keeping only matching nodes.
+ */
+class HnswIndex implements Closeable {
+
+    record Hit(long label, long group, float score) {
+    }
+
+    private static final int MAGIC = 0x484E5357;
+    private static final int VERSION = 2;
+    private static final int SEGMENT_SHIFT = 16;
+    private static final int SEGMENT_NODES = 1 << SEGMENT_SHIFT;
+    // label, group, level
+    private static final int NODE_BYTES = 20;
+
+    private final Path dir;
+    private final int dimension;
+    private final int m;
+    private final int efConstruction;
+    private final int exactSearchLimit;
+    private final double levelFactor;
+    private final MappedFile vectors;
+    private final MappedFile nodes;
+    private final MappedFile links0;
+    // node -> per level above 0: [count, neighbours...]
+    private final Map<Integer, int[][]> upperLinks = new HashMap<>();
+    private final Map<Long, IntList> groupNodes = new HashMap<>();
+    private final Set<Long> completeGroups = new HashSet<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+    private final Random random = new Random(42);
+    private final float[] scratch;
+    private int count;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    private HnswIndex(Path dir, int dimension, int m, int efConstruction, int exactSearchLimit) throws IOException {
+        if ((long) dimension * Float.BYTES * SEGMENT_NODES > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Vector dimension too large: " + dimension);
+        }
+        this.dir = dir;
+        this.dimension = dimension;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.exactSearchLimit = exactSearchLimit;
+        this.levelFactor = 1 / Math.log(m);
+        this.scratch = new float[dimension];
+        this.vectors = new MappedFile(dir.resolve("vectors.bin"), dimension * Float.BYTES);
+        this.nodes = new MappedFile(dir.resolve("nodes.bin"), NODE_BYTES);
+        this.links0 = new MappedFile(dir.resolve("links0.bin"), (1 + 2 * m) * Integer.BYTES);
+    }
+
+    /**
+     * Open the index stored in dir, or create an empty one. Throws
+     * IllegalStateException if it was built with another dimension or m.
+     */
+    static HnswIndex open(Path dir, int dimension, int m, int efConstruction, int exactSearchLimit) throws IOException {
+        Files.createDirectories(dir);
+        Path graph = dir.resolve("graph.bin");
+        if (Files.exists(graph)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(graph)))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    throw new IllegalStateException("Unknown vector index format in " + dir);
+                }
+                int storedDimension = in.readInt();
+                int storedM = in.readInt();
+                if (storedDimension != dimension || storedM != m) {
+                    throw new IllegalStateException("Vector index in " + dir + " has dimension " + storedDimension
+                            + " and m " + storedM + ", expected " + dimension + " and " + m);
+                }
+                HnswIndex index = new HnswIndex(dir, dimension, m, efConstruction, exactSearchLimit);
+                index.load(in);
+                return index;
+            }
+        }
+        return new HnswIndex(dir, dimension, m, efConstruction, exactSearchLimit);
+    }
+
+    /**
+     * Delete the files of the index stored in dir
+     */
+    static void delete(Path dir) throws IOException {
+        for (String name : List.of("graph.bin", "vectors.bin", "nodes.bin", "links0.bin")) {
+            Files.deleteIfExists(dir.resolve(name));
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    boolean isComplete(long group) {
+        lock.readLock().lock();
+        try {
+            return completeGroups.contains(group);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Mark all nodes of the group as added; recorded by the next save
+     */
+    void complete(long group) {
+        lock.writeLock().lock();
+        try {
+            completeGroups.add(group);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Labels of the nodes added to the group so far
+     */
+    Set<Long> labels(long group) {
+        lock.readLock().lock();
+        try {
+            IntList members = groupNodes.get(group);
+            if (members == null) {
+                return Set.of();
+            }
+            Set<Long> labels = new HashSet<>();
+            for (int i = 0; i < members.size; i++) {
+                labels.add(label(members.values[i]));
+            }
+            return labels;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void add(long label, long group, float[] vector) throws IOException {
+        float[] query = normalized(vector);
+        lock.writeLock().lock();
+        try {
+            int node = count;
+            vectors.ensure(node);
+            nodes.ensure(node);
+            links0.ensure(node);
+            ByteBuffer vectorSegment = vectors.segment(node);
+            int vectorOffset = vectors.offset(node);
+            for (int i = 0; i < dimension; i++) {
+                vectorSegment.putFloat(vectorOffset + i * Float.BYTES, query[i]);
+            }
+            int level = (int) (-Math.log(1 - random.nextDouble()) * levelFactor);
+            ByteBuffer nodeSegment = nodes.segment(node);
+            int nodeOffset = nodes.offset(node);
+            nodeSegment.putLong(nodeOffset, label);
+            nodeSegment.putLong(nodeOffset + 8, group);
+            nodeSegment.putInt(nodeOffset + 16, level);
+            links0.segment(node).putInt(links0.offset(node), 0);
+            if (level > 0) {
+                upperLinks.put(node, new int[level][1 + m]);
+            }
+
+            if (entryPoint >= 0) {
+                Heap entries = descend(query, level, node + 1);
+                for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                    Heap found = searchLayer(query, entries, efConstruction, l, null, node + 1);
+                    int[] selected = selectNeighbours(found.copy(), m);
+                    setLinks(node, l, selected, selected.length);
+                    for (int neighbour : selected) {
+                        link(neighbour, node, l);
+                    }
+                    entries = found;
+                }
+            }
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = node;
+            }
+            groupNodes.computeIfAbsent(group, g -> new IntList()).add(node);
+            count = node + 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The k best matches for the vector, restricted to the given groups unless null.
+     * ef is the size of the candidate list searched through the graph.
+     */
+    List<Hit> search(float[] vector, int k, int ef, Collection<Long> groups) {
+        float[] query = normalized(vector);
+        lock.readLock().lock();
+        try {
+            if (count == 0 || k <= 0) {
+                return List.of();
+            }
+            Heap found;
+            if (groups == null) {
+                found = searchLayer(query, descend(query, 0, count), Math.max(ef, k), 0, null, count);
+            } else {
+                int allowed = 0;
+                for (Long group : groups) {
+                    IntList members = groupNodes.get(group);
+                    allowed += members == null ? 0 : members.size;
+                }
+                if (allowed == 0) {
+                    return List.of();
+                }
+                if (allowed <= exactSearchLimit) {
+                    found = scan(query, k, groups);
+                } else {
+                    Set<Long> accepted = new HashSet<>(groups);
+                    found = searchLayer(query, descend(query, 0, count), Math.max(ef, k), 0,
+                            node -> accepted.contains(group(node)), count);
+                }
+            }
+            while (found.size > k) {
+                found.poll();
+            }
+            Hit[] hits = new Hit[found.size];
+            for (int i = hits.length - 1; i >= 0; i--) {
+                float score = found.peekScore();
+                int node = found.poll();
+                hits[i] = new Hit(label(node), group(node), score);
+            }
+            return Arrays.asList(hits);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Flush the mapped files and record the current nodes, upper levels and complete
+     * groups
+     */
+    void save() throws IOException {
+        lock.readLock().lock();
+        try {
+            vectors.force();
+            nodes.force();
+            links0.force();
+            Path graph = dir.resolve("graph.bin");
+            Path temp = dir.resolve("graph.bin.tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(dimension);
+                out.writeInt(m);
+                out.writeInt(count);
+                out.writeInt(entryPoint);
+                out.writeInt(maxLevel);
+                out.writeInt(upperLinks.size());
+                for (Map.Entry<Integer, int[][]> entry : upperLinks.entrySet()) {
+                    int[][] levels = entry.getValue();
+                    out.writeInt(entry.getKey());
+                    out.writeInt(levels.length);
+                    for (int[] links : levels) {
+                        out.writeInt(links[0]);
+                        for (int i = 1; i <= links[0]; i++) {
+                            out.writeInt(links[i]);
+                        }
+                    }
+                }
+                out.writeInt(completeGroups.size());
+                for (Long group : completeGroups) {
+                    out.writeLong(group);
+                }
+            }
+            Files.move(temp, graph, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            vectors.close();
+            nodes.close();
+            links0.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load(DataInputStream in) throws IOException {
+        count = in.readInt();
+        entryPoint = in.readInt();
+        maxLevel = in.readInt();
+        if (count > 0) {
+            vectors.ensure(count - 1);
+            nodes.ensure(count - 1);
+            links0.ensure(count - 1);
+        }
+        int upperNodes = in.readInt();
+        for (int n = 0; n < upperNodes; n++) {
+            int node = in.readInt();
+            int[][] levels = new int[in.readInt()][1 + m];
+            for (int[] links : levels) {
+                int size = in.readInt();
+                for (int i = 0; i < size; i++) {
+                    int neighbour = in.readInt();
+                    if (neighbour < count) {
+                        links[++links[0]] = neighbour;
+                    }
+                }
+            }
+            upperLinks.put(node, levels);
+        }
+        int groups = in.readInt();
+        for (int i = 0; i < groups; i++) {
+            completeGroups.add(in.readLong());
+        }
+
+        for (int node = 0; node < count; node++) {
+            // Drop links to nodes added after the save
+            ByteBuffer segment = links0.segment(node);
+            int offset = links0.offset(node);
+            int size = segment.getInt(offset);
+            int kept = 0;
+            for (int i = 1; i <= size; i++) {
+                int neighbour = segment.getInt(offset + i * Integer.BYTES);
+                if (neighbour < count) {
+                    segment.putInt(offset + ++kept * Integer.BYTES, neighbour);
+                }
+            }
+            segment.putInt(offset, kept);
+            groupNodes.computeIfAbsent(group(node), g -> new IntList()).add(node);
+        }
+    }
+
+    /**
+     * Greedy search from the entry point down to the level above the given one
+     */
+    private Heap descend(float[] query, int level, int limit) {
+        int current = entryPoint;
+        float currentScore = score(query, current);
+        for (int l = maxLevel; l > level; l--) {
+            int previous = -1;
+            while (current != previous) {
+                previous = current;
+                int size = neighbourCount(previous, l);
+                for (int i = 0; i < size; i++) {
+                    int neighbour = neighbour(previous, l, i);
+                    if (neighbour >= limit) {
+                        continue;
+                    }
+                    float neighbourScore = score(query, neighbour);
+                    if (neighbourScore > currentScore) {
+                        current = neighbour;
+                        currentScore = neighbourScore;
+                    }
+                }
+            }
+        }
+        Heap entries = new Heap(false, 1);
+        entries.push(current, currentScore);
+        return entries;
+    }
+
+    /**
+     * Best-first search of one level; returns up to ef nodes accepted by the filter,
+     * worst on top
+     */
+    private Heap searchLayer(float[] query, Heap entries, int ef, int level, IntPredicate accept, int limit) {
+        Visited seen = visited.get();
+        seen.reset(limit);
+        Heap candidates = new Heap(true, ef * 2);
+        Heap results = new Heap(false, ef + 1);
+        for (int i = 0; i < entries.size; i++) {
+            int node = entries.nodes[i];
+            seen.add(node);
+            candidates.push(node, entries.scores[i]);
+            if (accept == null || accept.test(node)) {
+                results.push(node, entries.scores[i]);
+            }
+        }
+        while (results.size > ef) {
+            results.poll();
+        }
+
+        while (candidates.size > 0) {
+            if (results.size >= ef && candidates.peekScore() < results.peekScore()) {
+                break;
+            }
+            int current = candidates.poll();
+            int size = neighbourCount(current, level);
+            for (int i = 0; i < size; i++) {
+                int neighbour = neighbour(current, level, i);
+                if (neighbour >= limit || !seen.add(neighbour)) {
+                    continue;
+                }
+                float neighbourScore = score(query, neighbour);
+                if (results.size < ef || neighbourScore > results.peekScore()) {
+                    candidates.push(neighbour, neighbourScore);
+                    if (accept == null || accept.test(neighbour)) {
+                        results.push(neighbour, neighbourScore);
+                        if (results.size > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private Heap scan(float[] query, int k, Collection<Long> groups) {
+        Heap results = new Heap(false, k + 1);
+        for (Long group : groups) {
+            IntList members = groupNodes.get(group);
+            if (members == null) {
+                continue;
+            }
+            for (int i = 0; i < members.size; i++) {
+                int node = members.values[i];
+                float nodeScore = score(query, node);
+                if (results.size < k || nodeScore > results.peekScore()) {
+                    results.push(node, nodeScore);
+                    if (results.size > k) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Keep candidates closer to the base than to any already kept neighbour, so links
+     * point in different directions (the heuristic of the HNSW paper). Consumes the heap.
+     */
+    private int[] selectNeighbours(Heap candidates, int max) {
+        int size = candidates.size;
+        int[] ordered = new int[size];
+        float[] orderedScores = new float[size];
+        for (int i = size - 1; i >= 0; i--) {
+            orderedScores[i] = candidates.peekScore();
+            ordered[i] = candidates.poll();
+        }
+        int[] selected = new int[Math.min(max, size)];
+        int kept = 0;
+        for (int i = 0; i < size && kept < selected.length; i++) {
+            vector(ordered[i], scratch);
+            boolean diverse = true;
+            for (int j = 0; j < kept; j++) {
+                if (score(scratch, selected[j]) > orderedScores[i]) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[kept++] = ordered[i];
+            }
+        }
+        return Arrays.copyOf(selected, kept);
+    }
+
+    /**
+     * Add a link from node to target, pruning the node's links when it has too many
+     */
+    private void link(int node, int target, int level) {
+        int max = level == 0 ? 2 * m : m;
+        int size = neighbourCount(node, level);
+        if (size < max) {
+            setNeighbour(node, level, size, target);
+            setNeighbourCount(node, level, size + 1);
+            return;
+        }
+        float[] base = new float[dimension];
+        vector(node, base);
+        Heap candidates = new Heap(false, size + 1);
+        candidates.push(target, score(base, target));
+        for (int i = 0; i < size; i++) {
+            int neighbour = neighbour(node, level, i);
+            candidates.push(neighbour, score(base, neighbour));
+        }
+        int[] selected = selectNeighbours(candidates, max);
+        setLinks(node, level, selected, selected.length);
+    }
+
+    private void setLinks(int node, int level, int[] neighbours, int size) {
+        for (int i = 0; i < size; i++) {
+            setNeighbour(node, level, i, neighbours[i]);
+        }
+        setNeighbourCount(node, level, size);
+    }
+
+    private int neighbourCount(int node, int level) {
+        if (level == 0) {
+            return links0.segment(node).getInt(links0.offset(node));
+        }
+        return upperLinks.get(node)[level - 1][0];
+    }
+
+    private int neighbour(int node, int level, int i) {
+        if (level == 0) {
+            return links0.segment(node).getInt(links0.offset(node) + (i + 1) * Integer.BYTES);
+        }
+        return upperLinks.get(node)[level - 1][i + 1];
+    }
+
+    private void setNeighbourCount(int node, int level, int size) {
+        if (level == 0) {
+            links0.segment(node).putInt(links0.offset(node), size);
+        } else {
+            upperLinks.get(node)[level - 1][0] = size;
+        }
+    }
+
+    private void setNeighbour(int node, int level, int i, int neighbour) {
+        if (level == 0) {
+            links0.segment(node).putInt(links0.offset(node) + (i + 1) * Integer.BYTES, neighbour);
+        } else {
+            upperLinks.get(node)[level - 1][i + 1] = neighbour;
+        }
+    }
+
+    private float score(float[] query, int node) {
+        ByteBuffer segment = vectors.segment(node);
+        int offset = vectors.offset(node);
+        float sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            sum += query[i] * segment.getFloat(offset + i * Float.BYTES);
+        }
+        return sum;
+    }
+
+    private void vector(int node, float[] into) {
+        ByteBuffer segment = vectors.segment(node);
+        int offset = vectors.offset(node);
+        for (int i = 0; i < dimension; i++) {
+            into[i] = segment.getFloat(offset + i * Float.BYTES);
+        }
+    }
+
+    private long label(int node) {
+        return nodes.segment(node).getLong(nodes.offset(node));
+    }
+
+    private long group(int node) {
+        return nodes.segment(node).getLong(nodes.offset(node) + 8);
+    }
+
+    private float[] normalized(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected a vector of " + dimension + " floats, got " + vector.length);
+        }
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        float scale = norm > 0 ? (float) (1 / Math.sqrt(norm)) : 0;
+        float[] result = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            result[i] = vector[i] * scale;
+        }
+        return result;
+    }
+
+    /**
+     * Fixed-size records in a file mapped segment by segment
+     */
+    private static final class MappedFile implements Closeable {
+        private final FileChannel channel;
+        private final int recordBytes;
+        private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+        private MappedFile(Path path, int recordBytes) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            this.recordBytes = recordBytes;
+        }
+
+        private void ensure(int node) throws IOException {
+            while (segments.size() <= node >>> SEGMENT_SHIFT) {
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE,
+                        (long) segments.size() * SEGMENT_NODES * recordBytes, (long) SEGMENT_NODES * recordBytes);
+                segment.order(ByteOrder.LITTLE_ENDIAN);
+                segments.add(segment);
+            }
+        }
+
+        private ByteBuffer segment(int node) {
+            return segments.get(node >>> SEGMENT_SHIFT);
+        }
+
+        private int offset(int node) {
+            return (node & (SEGMENT_NODES - 1)) * recordBytes;
+        }
+
+        private void force() {
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Binary heap of nodes by score; a max heap polls the best first, a min heap the worst
+     */
+    private static final class Heap {
+        private final boolean max;
+        private int[] nodes;
+        private float[] scores;
+        private int size;
+
+        private Heap(boolean max, int capacity) {
+            this.max = max;
+            this.nodes = new int[Math.max(capacity, 4)];
+            this.scores = new float[nodes.length];
+        }
+
+        private Heap copy() {
+            Heap copy = new Heap(max, nodes.length);
+            System.arraycopy(nodes, 0, copy.nodes, 0, size);
+            System.arraycopy(scores, 0, copy.scores, 0, size);
+            copy.size = size;
+            return copy;
+        }
+
+        private void push(int node, float score) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(score, scores[parent])) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            scores[i] = score;
+        }
+
+        private float peekScore() {
+            return scores[0];
+        }
+
+        private int poll() {
+            int top = nodes[0];
+            int lastNode = nodes[--size];
+            float lastScore = scores[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && before(scores[child + 1], scores[child])) {
+                    child++;
+                }
+                if (!before(scores[child], lastScore)) {
+                    break;
+                }
+                nodes[i] = nodes[child];
+                scores[i] = scores[child];
+                i = child;
+            }
+            nodes[i] = lastNode;
+            scores[i] = lastScore;
+            return top;
+        }
+
+        private boolean before(float a, float b) {
+            return max ? a > b : a < b;
+        }
+    }
+
+    /**
+     * Nodes seen by a search, cleared in constant time by bumping the generation
+     */
+    private static final class Visited {
+        private int[] marks = new int[0];
+        private int generation;
+
+        private void reset(int capacity) {
+            if (marks.length < capacity) {
+                marks = new int[Math.max(capacity, marks.length * 2)];
+                generation = 0;
+            }
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        private boolean add(int node) {
+            if (marks[node] == generation) {
+                return false;
+            }
+            marks[node] = generation;
+            return true;
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.example.legal_connect.service;
+
+import com.example.legal_connect.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Finds @mentions of known users in HTML content.
+ *
+ * The content is scanned once: tags are skipped, a few entities are decoded and
+ * whitespace is collapsed into a reusable char buffer. The phrases of one to
+ * MAX_NAME_WORDS words after each '@' are looked up on lower(full_name) (see
+ * UserFullNameIndex), LOOKUP_BATCH_SIZE at a time so a post full of '@' stays within
+ * the driver's bind parameter limit, and the names found are matched against the text through
+ * a trie, taking the longest name that ends on a word boundary, so
+ * "@Nguyen Van A cảm ơn" yields "Nguyen Van A" and not the rest of the sentence.
+ * Only the names a post could mention are loaded, and new or renamed users are
+ * found at once.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MentionExtractor {
+
+    // Longest full name, in words, that can be mentioned
+    static final int MAX_NAME_WORDS = 6;
+    private static final int MAX_NAME_LENGTH = 255;
+    // Candidates per lookup query, each one a bind parameter
+    static final int LOOKUP_BATCH_SIZE = 1000;
+
+    private final UserRepository userRepository;
+
+    /**
+     * Extract the distinct full names of known users mentioned in the content,
+     * in order of first appearance
+     */
+    public List<String> extract(String content) {
+        if (content == null || content.indexOf('@') < 0) {
+            return new ArrayList<>();
+        }
+        char[] text = new char[content.length()];
+        int length = toVisibleText(content, text);
+        Set<String> candidates = candidates(text, length);
+        if (candidates.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<String> names = new ArrayList<>();
+        List<String> batch = new ArrayList<>(Math.min(candidates.size(), LOOKUP_BATCH_SIZE));
+        for (String candidate : candidates) {
+            batch.add(candidate);
+            if (batch.size() == LOOKUP_BATCH_SIZE) {
+                names.addAll(userRepository.findEnabledFullNamesIn(batch));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            names.addAll(userRepository.findEnabledFullNamesIn(batch));
+        }
+        log.debug("Mention lookup: {} candidates, {} known names", candidates.size(), names.size());
+        return extract(text, length, NameTrie.of(names));
+    }
+
+    /**
+     * Lowercased phrases that could be a mentioned name: the text after each '@' up
+     * to every word end, for at most MAX_NAME_WORDS words and up to the first
+     * character that does not occur in names
+     */
+    static Set<String> candidates(char[] text, int length) {
+        Set<String> candidates = new LinkedHashSet<>();
+        StringBuilder phrase = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            if (text[i] != '@' || (i > 0 && Character.isLetterOrDigit(text[i - 1]))) {
+                continue;
+            }
+            phrase.setLength(0);
+            int words = 0;
+            for (int j = i + 1; j < length && phrase.length() < MAX_NAME_LENGTH; j++) {
+                char c = text[j];
+                if ((c == ' ' && ++words >= MAX_NAME_WORDS) || !isNameChar(c)) {
+                    break;
+                }
+                phrase.append(Character.toLowerCase(c));
+                if (Character.isLetterOrDigit(c) && (j + 1 == length || !Character.isLetterOrDigit(text[j + 1]))) {
+                    candidates.add(phrase.toString());
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == ' ' || c == '.' || c == '-' || c == '\'';
+    }
+
+    static List<String> extract(String html, NameTrie trie) {
+        if (html == null) {
+            return new ArrayList<>();
+        }
+        char[] text = new char[html.length()];
+        return extract(text, toVisibleText(html, text), trie);
+    }
+
+    private static List<String> extract(char[] text, int length, NameTrie trie) {
+        List<String> mentions = new ArrayList<>();
+        if (trie.isEmpty()) {
+            return mentions;
+        }
+        Set<String> seen = new HashSet<>();
+
+        for (int i = 0; i < length; i++) {
+            if (text[i] != '@' || (i > 0 && Character.isLetterOrDigit(text[i - 1]))) {
+                continue;
+            }
+            NameTrie.Node match = trie.longestMatch(text, i + 1, length);
+            if (match != null) {
+                if (seen.add(match.name)) {
+                    mentions.add(match.name);
+                }
+                i += match.depth;
+            }
+        }
+        return mentions;
+    }
+
+    /**
+     * Plain text of the HTML with tags removed and whitespace collapsed
+     */
+    public static String toPlainText(String html) {
+        if (html == null) {
+            return "";
+        }
+        char[] text = new char[html.length()];
+        int length = toVisibleText(html, text);
+        return new String(text, 0, length).trim();
+    }
+
+    /**
+     * Write the visible characters of the HTML into the buffer and return how many
+     * were written. Inline tags are dropped without a gap so "@<b>Name</b>" still
+     * reads "@Name"; every other tag acts as a space. A '<' that no '>' closes is
+     * kept as text.
+     */
+    static int toVisibleText(String html, char[] out) {
+        int length = html.length();
+        int n = 0;
+        boolean lastSpace = true;
+
+        for (int i = 0; i < length; i++) {
+            char c = html.charAt(i);
+
+            if (c == '<') {
+                int close = html.indexOf('>', i + 1);
+                if (close >= 0) {
+                    boolean inline = isInlineTag(html, i + 1, close);
+                    i = close;
+                    if (inline) {
+                        continue;
+                    }
+                    c = ' ';
+                }
+            } else if (c == '&') {
+                int semi = html.indexOf(';', i + 1);
+                if (semi > i && semi - i <= 7) {
+                    char decoded = decodeEntity(html, i + 1, semi);
+                    if (decoded != 0) {
+                        c = decoded;
+                        i = semi;
+                    }
+                }
+            }
+
+            if (Character.isWhitespace(c) || c == '\u00A0') {
+                if (!lastSpace) {
+                    out[n++] = ' ';
+                    lastSpace = true;
+                }
+            } else {
+                out[n++] = c;
+                lastSpace = false;
+            }
+        }
+        return n;
+    }
+
+    private static final String[] INLINE_TAGS = {
+        "a", "b", "code", "em", "i", "mark", "s", "span", "strong", "sub", "sup", "u"
+    };
+
+    private static boolean isInlineTag(String html, int start, int end) {
+        if (start < end && html.charAt(start) == '/') {
+            start++;
+        }
+        int nameEnd = start;
+        while (nameEnd < end && Character.isLetterOrDigit(html.charAt(nameEnd))) {
+            nameEnd++;
+        }
+        int nameLength = nameEnd - start;
+        for (String tag : INLINE_TAGS) {
+            if (tag.length() == nameLength && html.regionMatches(true, start, tag, 0, nameLength)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static char decodeEntity(String html, int start, int end) {
+        int length = end - start;
+        if (html.regionMatches(start, "nbsp", 0, length) && length == 4) return ' ';
+        if (html.regionMatches(start, "amp", 0, length) && length == 3) return '&';
+        if (html.regionMatches(start, "lt", 0, length) && length == 2) return '<';
+        if (html.regionMatches(start, "gt", 0, length) && length == 2) return '>';
+        if (html.regionMatches(start, "quot", 0, length) && length == 4) return '"';
+        if (html.regionMatches(start, "#39", 0, length) && length == 3) return '\'';
+        if (html.regionMatches(start, "#64", 0, length) && length == 3) return '@';
+        return 0;
+    }
+
+    /**
+     * Case-insensitive character trie over normalized full names. Children are kept
+     * in sorted arrays so lookups allocate nothing.
+     */
+    static final class NameTrie {
+
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        static final class Node {
+            char[] keys = NO_KEYS;
+            Node[] children = NO_CHILDREN;
+            String name;
+            int depth;
+
+            Node child(char key) {
+                int index = Arrays.binarySearch(keys, key);
+                return index >= 0 ? children[index] : null;
+            }
+
+            Node addChild(char key) {
+                int index = Arrays.binarySearch(keys, key);
+                if (index >= 0) {
+                    return children[index];
+                }
+                int insertAt = -index - 1;
+                char[] newKeys = new char[keys.length + 1];
+                Node[] newChildren = new Node[children.length + 1];
+                System.arraycopy(keys, 0, newKeys, 0, insertAt);
+                System.arraycopy(children, 0, newChildren, 0, insertAt);
+                System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+                System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+                Node node = new Node();
+                node.depth = depth + 1;
+                newKeys[insertAt] = key;
+                newChildren[insertAt] = node;
+                keys = newKeys;
+                children = newChildren;
+                return node;
+            }
+        }
+
+        private final Node root = new Node();
+        private int size;
+
+        static NameTrie of(Collection<String> names) {
+            NameTrie trie = new NameTrie();
+            for (String name : names) {
+                trie.add(name);
+            }
+            return trie;
+        }
+
+        void add(String name) {
+            if (name == null || name.isBlank()) {
+                return;
+            }
+            String key = name.strip();
+            Node node = root;
+            boolean lastSpace = false;
+            for (int i = 0; i < key.length(); i++) {
+                char c = key.charAt(i);
+                if (Character.isWhitespace(c) || c == '\u00A0') {
+                    if (lastSpace) {
+                        continue;
+                    }
+                    c = ' ';
+                    lastSpace = true;
+                } else {
+                    c = Character.toLowerCase(c);
+                    lastSpace = false;
+                }
+                node = node.addChild(c);
+            }
+            if (node.name == null) {
+                node.name = name;
+                size++;
+            }
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * Longest known name starting at {@code from} that is followed by a word
+         * boundary, or null when none matches
+         */
+        Node longestMatch(char[] text, int from, int end) {
+            Node node = root;
+            Node best = null;
+            for (int i = from; i < end; i++) {
+                node = node.child(Character.toLowerCase(text[i]));
+                if (node == null) {
+                    break;
+                }
+                if (node.name != null && (i + 1 == end || !Character.isLetterOrDigit(text[i + 1]))) {
+                    best = node;
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -7,8 +7,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 @Service
 @RequiredArgsConstructor
@@ -19,30 +17,13 @@ public class MentionService {
     private final ForumRepository forumRepository;
     private final PostReplyRepository replyRepository;
     private final NotificationService notificationService;
-    
-    private static final Pattern MENTION_PATTERN = Pattern.compile("@([\\w\\s]+)");
+    private final MentionExtractor mentionExtractor;
     
     /**
-     * Extract usernames from content that match @username pattern
+     * Extract full names of known users mentioned as @Full Name in the content
      */
     public List<String> extractMentionsFromContent(String content) {
-        List<String> mentions = new ArrayList<>();
-        if (content == null || content.trim().isEmpty()) {
-            return mentions;
-        }
-        
-        // Remove HTML tags first to get clean text
-        String cleanContent = content.replaceAll("<[^>]*>", " ");
-        
-        Matcher matcher = MENTION_PATTERN.matcher(cleanContent);
-        while (matcher.find()) {
-            String username = matcher.group(1).trim();
-            if (!username.isEmpty() && !mentions.contains(username)) {
-                mentions.add(username);
-            }
-        }
-        
-        return mentions;
+        return mentionExtractor.extract(content);
     }
     
     /**
@@ -60,7 +41,7 @@ public class MentionService {
         User author = userRepository.findById(authorId)
             .orElseThrow(() -> new RuntimeException("Author not found"));
         
-        createAndNotifyMentions(mentionedNames, author, post, null, content);
+        createAndNotifyMentions(findMentionedUsers(mentionedNames), author, post, null, content);
     }
     
     /**
@@ -78,30 +59,42 @@ public class MentionService {
         User author = userRepository.findById(authorId)
             .orElseThrow(() -> new RuntimeException("Author not found"));
         
+        List<User> mentionedUsers = findMentionedUsers(mentionedNames);
+        
         // Update mentioned user IDs in reply
-        List<Long> mentionedUserIds = new ArrayList<>();
-        for (String name : mentionedNames) {
-            Optional<User> user = userRepository.findByFullName(name);
-            user.ifPresent(u -> mentionedUserIds.add(u.getId()));
+        if (!mentionedUsers.isEmpty()) {
+            reply.setMentionedUserIds(String.join(",", mentionedUsers.stream()
+                .map(u -> String.valueOf(u.getId())).toArray(String[]::new)));
+            replyRepository.save(reply);
         }
         
-        if (!mentionedUserIds.isEmpty()) {
-            reply.setMentionedUserIds(String.join(",", mentionedUserIds.stream()
-                .map(String::valueOf).toArray(String[]::new)));
-            replyRepository.save(reply);
+        createAndNotifyMentions(mentionedUsers, author, null, reply, content);
+    }
+    
+    /**
+     * Resolve mentioned names in one query, keeping mention order and one user per name
+     */
+    private List<User> findMentionedUsers(List<String> mentionedNames) {
+        Map<String, User> usersByName = new HashMap<>();
+        for (User user : userRepository.findByFullNameIn(mentionedNames)) {
+            usersByName.merge(user.getFullName(), user,
+                (existing, candidate) -> existing.getId() <= candidate.getId() ? existing : candidate);
         }
         
-        createAndNotifyMentions(mentionedNames, author, null, reply, content);
+        List<User> users = new ArrayList<>(usersByName.size());
+        for (String name : mentionedNames) {
+            User user = usersByName.get(name);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
     }
     
-    private void createAndNotifyMentions(List<String> mentionedNames, User author, 
+    private void createAndNotifyMentions(List<User> mentionedUsers, User author, 
                                         Post post, PostReply reply, String content) {
-        for (String mentionedName : mentionedNames) {
-            Optional<User> mentionedUser = userRepository.findByFullName(mentionedName);
-            
-            if (mentionedUser.isPresent() && !mentionedUser.get().getId().equals(author.getId())) {
-                User mentioned = mentionedUser.get();
-                
+        for (User mentioned : mentionedUsers) {
+            if (!mentioned.getId().equals(author.getId())) {
                 // Create mention entity
                 Mention mention = Mention.builder()
                     .mentionedUser(mentioned)
@@ -132,7 +125,7 @@ public class MentionService {
     
     private String getContentSnippet(String content, int maxLength) {
         if (content == null) return "";
-        String cleanContent = content.replaceAll("<[^>]*>", " ").trim();
+        String cleanContent = MentionExtractor.toPlainText(content);
         if (cleanContent.length() <= maxLength) {
             return cleanContent;
         }
@@ -1,10 +1,9 @@
 package com.example.legal_connect.service;
 
+import com.example.legal_connect.dto.common.MessageHistoryPageDto;
 import com.example.legal_connect.dto.conversation.MessageDto;
 import com.example.legal_connect.dto.conversation.SendMessageRequest;
 
-import java.util.List;
-
 public interface MessageService {
     
     /**
@@ -13,9 +12,11 @@ public interface MessageService {
     MessageDto sendMessage(SendMessageRequest request, Long userId);
     
     /**
-     * Get all messages for a conversation
+     * Get a page of messages of a conversation in chronological order: the newest
+     * messages, or those right before the message id before, or right after the
+     * message id after. The page carries the cursors of the pages beyond it.
      */
-    List<MessageDto> getConversationMessages(Long conversationId, Long userId);
+    MessageHistoryPageDto<MessageDto> getConversationMessages(Long conversationId, Long userId, Long before, Long after, Integer size);
     
     /**
      * Save a message
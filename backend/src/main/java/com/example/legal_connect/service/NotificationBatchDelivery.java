@@ -0,0 +1,81 @@
+package com.example.legal_connect.service;
+
+import com.example.legal_connect.dto.forum.NotificationEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes batches of notification events for the broker consumers.
+ *
+ * A batch is tried up to app.notification.max-attempts times with exponential
+ * back-off, which rides out short database outages. If it still fails, each event is
+ * written on its own so that one bad event (e.g. for a deleted user) does not take
+ * the rest of the batch down; only the events that fail alone are returned, for the
+ * caller to dead-letter.
+ */
+@Slf4j
+@Component
+public class NotificationBatchDelivery {
+
+    private static final long MAX_BACK_OFF_MS = 5000;
+
+    private final NotificationService notificationService;
+    private final int maxAttempts;
+    private final long backOffMs;
+
+    public NotificationBatchDelivery(NotificationService notificationService,
+                                     @Value("${app.notification.max-attempts}") int maxAttempts,
+                                     @Value("${app.notification.retry-backoff-ms}") long backOffMs) {
+        this.notificationService = notificationService;
+        this.maxAttempts = maxAttempts;
+        this.backOffMs = backOffMs;
+    }
+
+    /**
+     * Write the events; returns those that could not be written
+     */
+    public List<NotificationEvent> deliver(List<NotificationEvent> batch) {
+        long delayMs = backOffMs;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                notificationService.saveBatch(batch);
+                return List.of();
+            } catch (Exception e) {
+                log.warn("Notification batch of {} failed (attempt {}/{}): {}",
+                        batch.size(), attempt, maxAttempts, e.getMessage());
+            }
+            if (attempt < maxAttempts && !sleep(delayMs)) {
+                break;
+            }
+            delayMs = Math.min(delayMs * 2, MAX_BACK_OFF_MS);
+        }
+        if (batch.size() == 1) {
+            return List.copyOf(batch);
+        }
+
+        List<NotificationEvent> failed = new ArrayList<>();
+        for (NotificationEvent event : batch) {
+            try {
+                notificationService.saveBatch(List.of(event));
+            } catch (Exception e) {
+                log.error("Notification for user {} failed: {}", event.getUserId(), e.getMessage());
+                failed.add(event);
+            }
+        }
+        return failed;
+    }
+
+    private boolean sleep(long delayMs) {
+        try {
+            Thread.sleep(delayMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
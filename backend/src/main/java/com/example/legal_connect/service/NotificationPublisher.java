@@ -0,0 +1,16 @@
+package com.example.legal_connect.service;
+
+import com.example.legal_connect.dto.forum.NotificationEvent;
+
+/**
+ * Ships notification events from the transaction that produced them to the batch
+ * writer in {@link NotificationService}. Implementations listen for the event after
+ * commit, so a rolled back vote or reply never notifies anyone.
+ */
+public interface NotificationPublisher {
+    
+    /**
+     * Hand one event to the broker
+     */
+    void publish(NotificationEvent event);
+}
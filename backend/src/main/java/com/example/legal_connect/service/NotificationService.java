@@ -1,15 +1,31 @@
 package com.example.legal_connect.service;
 
 import com.example.legal_connect.dto.forum.NotificationDto;
+import com.example.legal_connect.dto.forum.NotificationEvent;
 import com.example.legal_connect.entity.Notification;
-import com.example.legal_connect.entity.User;
 import com.example.legal_connect.repository.NotificationRepository;
 import com.example.legal_connect.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
 
 @Service
 @RequiredArgsConstructor
@@ -17,24 +33,181 @@ public class NotificationService {
     
     private final NotificationRepository notificationRepository;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UnreadNotificationCounter unreadCounter;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final JdbcTemplate jdbcTemplate;
     
-    @Transactional
-    public NotificationDto createNotification(Long userId, Notification.NotificationType type, 
-                                             String message, Long relatedEntityId, String relatedEntityType) {
-        User user = userRepository.findById(userId)
-            .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        Notification notification = Notification.builder()
-            .user(user)
+    @Value("${app.notification.coalesce-window-ms}")
+    private long coalesceWindowMs;
+    
+    /**
+     * Queue a notification. It is handed to the {@link NotificationPublisher} once the
+     * caller's transaction commits and written later by {@link #saveBatch}.
+     */
+    public void createNotification(Long userId, Notification.NotificationType type, 
+                                   String message, Long relatedEntityId, String relatedEntityType) {
+        eventPublisher.publishEvent(NotificationEvent.builder()
+            .userId(userId)
             .type(type)
             .message(message)
             .relatedEntityId(relatedEntityId)
             .relatedEntityType(relatedEntityType)
+            .createdAt(LocalDateTime.now())
+            .build());
+    }
+    
+    /**
+     * Queue a notification about something another user did. Notifications of a
+     * coalesced type (see {@link Notification.NotificationType#isCoalesced()}) on the
+     * same target are merged into one "X và N người khác ..." row.
+     */
+    public void createNotification(Long userId, Notification.NotificationType type, String actorName,
+                                   String action, Long relatedEntityId, String relatedEntityType) {
+        eventPublisher.publishEvent(NotificationEvent.builder()
+            .userId(userId)
+            .type(type)
+            .message(actorName + " " + action)
+            .actorName(actorName)
+            .action(action)
+            .relatedEntityId(relatedEntityId)
+            .relatedEntityType(relatedEntityType)
+            .createdAt(LocalDateTime.now())
+            .build());
+    }
+    
+    /**
+     * Write a batch of queued notifications in one transaction. Users are attached
+     * as references, so no user rows are loaded.
+     *
+     * Coalesced events update the user's unread aggregate row for the same target if
+     * it had an event within the coalescing window, and otherwise start a new one.
+     * Each target is locked for the rest of the transaction before it is looked up
+     * (pg_advisory_xact_lock, taken in key order so batches cannot deadlock), so
+     * consumers on different nodes do not both start an aggregate for it.
+     */
+    @Transactional
+    public List<Notification> saveBatch(List<NotificationEvent> events) {
+        List<Notification> created = new ArrayList<>();
+        List<Notification> updated = new ArrayList<>();
+        Map<CoalesceKey, Notification> aggregates = new HashMap<>();
+        LocalDateTime windowStart = LocalDateTime.now().minus(Duration.ofMillis(coalesceWindowMs));
+        lockCoalesceKeys(events);
+        
+        for (NotificationEvent event : events) {
+            if (!isCoalesced(event)) {
+                created.add(toNotification(event));
+                continue;
+            }
+            
+            CoalesceKey key = CoalesceKey.of(event);
+            Notification aggregate = aggregates.get(key);
+            if (aggregate == null) {
+                aggregate = notificationRepository
+                    .findFirstByUserIdAndTypeAndRelatedEntityTypeAndRelatedEntityIdAndIsReadFalseAndLastEventAtGreaterThanEqualOrderByLastEventAtDesc(
+                        event.getUserId(), event.getType(), event.getRelatedEntityType(),
+                        event.getRelatedEntityId(), windowStart)
+                    .orElse(null);
+                if (aggregate == null) {
+                    Notification first = toNotification(event);
+                    created.add(first);
+                    aggregates.put(key, first);
+                    continue;
+                }
+                updated.add(aggregate);
+                aggregates.put(key, aggregate);
+            }
+            merge(aggregate, event);
+        }
+        
+        List<Notification> saved = notificationRepository.saveAll(created);
+        afterCommit(() -> deliver(saved, updated));
+        return saved;
+    }
+    
+    private boolean isCoalesced(NotificationEvent event) {
+        return event.getType().isCoalesced() && event.getActorName() != null;
+    }
+    
+    private void lockCoalesceKeys(List<NotificationEvent> events) {
+        TreeSet<CoalesceKey> keys = new TreeSet<>(CoalesceKey.LOCK_ORDER);
+        for (NotificationEvent event : events) {
+            if (isCoalesced(event)) {
+                keys.add(CoalesceKey.of(event));
+            }
+        }
+        for (CoalesceKey key : keys) {
+            jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?, ?)",
+                key.userId().intValue(), key.targetHash());
+        }
+    }
+    
+    private Notification toNotification(NotificationEvent event) {
+        return Notification.builder()
+            .user(userRepository.getReferenceById(event.getUserId()))
+            .type(event.getType())
+            .message(event.getMessage())
+            .relatedEntityId(event.getRelatedEntityId())
+            .relatedEntityType(event.getRelatedEntityType())
             .isRead(false)
+            .actorCount(1)
+            .createdAt(event.getCreatedAt())
+            .lastEventAt(event.getCreatedAt())
             .build();
+    }
+    
+    /**
+     * Fold one more actor into an aggregate; the newest actor is named first and
+     * last_event_at moves to the newest event. created_at is the partition key and
+     * stays put, so the row is never moved between partitions.
+     */
+    private void merge(Notification aggregate, NotificationEvent event) {
+        int actorCount = (aggregate.getActorCount() != null ? aggregate.getActorCount() : 1) + 1;
+        aggregate.setActorCount(actorCount);
+        aggregate.setMessage(event.getActorName() + " và " + (actorCount - 1) + " người khác " + event.getAction());
+        if (event.getCreatedAt() != null
+                && (aggregate.getLastEventAt() == null || event.getCreatedAt().isAfter(aggregate.getLastEventAt()))) {
+            aggregate.setLastEventAt(event.getCreatedAt());
+        }
+    }
+    
+    private record CoalesceKey(Long userId, Notification.NotificationType type,
+                               String relatedEntityType, Long relatedEntityId) {
         
-        notification = notificationRepository.save(notification);
-        return convertToDto(notification);
+        static final Comparator<CoalesceKey> LOCK_ORDER = Comparator
+            .comparingInt((CoalesceKey key) -> key.userId().intValue())
+            .thenComparingInt(CoalesceKey::targetHash);
+        
+        static CoalesceKey of(NotificationEvent event) {
+            return new CoalesceKey(event.getUserId(), event.getType(),
+                event.getRelatedEntityType(), event.getRelatedEntityId());
+        }
+        
+        int targetHash() {
+            return Objects.hash(type.name(), relatedEntityType, relatedEntityId);
+        }
+    }
+    
+    /**
+     * Bump unread counters for new rows and push new and updated notifications to
+     * /user/queue/notifications; clients replace an updated one by id
+     */
+    private void deliver(List<Notification> created, List<Notification> updated) {
+        Map<Long, Long> createdPerUser = new HashMap<>();
+        for (Notification notification : created) {
+            createdPerUser.merge(notification.getUser().getId(), 1L, Long::sum);
+            push(notification);
+        }
+        updated.forEach(this::push);
+        createdPerUser.forEach(unreadCounter::add);
+    }
+    
+    private void push(Notification notification) {
+        messagingTemplate.convertAndSendToUser(
+            String.valueOf(notification.getUser().getId()),
+            "/queue/notifications",
+            convertToDto(notification)
+        );
     }
     
     public Page<NotificationDto> getUserNotifications(Long userId, Boolean unreadOnly, Pageable pageable) {
@@ -59,18 +232,35 @@ public class NotificationService {
             throw new RuntimeException("Unauthorized access to notification");
         }
         
-        notification.setIsRead(true);
-        notification = notificationRepository.save(notification);
+        if (!Boolean.TRUE.equals(notification.getIsRead())) {
+            notification.setIsRead(true);
+            notification = notificationRepository.save(notification);
+            afterCommit(() -> unreadCounter.add(userId, -1));
+        }
         return convertToDto(notification);
     }
     
     @Transactional
     public void markAllAsRead(Long userId) {
-        notificationRepository.markAllAsReadByUserId(userId);
+        int updated = notificationRepository.markAllAsReadByUserId(userId);
+        afterCommit(() -> unreadCounter.add(userId, -updated));
     }
     
     public long getUnreadCount(Long userId) {
-        return notificationRepository.countByUserIdAndIsRead(userId, false);
+        return unreadCounter.get(userId, () -> notificationRepository.countByUserIdAndIsRead(userId, false));
+    }
+    
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
     }
     
     private NotificationDto convertToDto(Notification notification) {
@@ -81,7 +271,10 @@ public class NotificationService {
             .relatedEntityId(notification.getRelatedEntityId())
             .relatedEntityType(notification.getRelatedEntityType())
             .isRead(notification.getIsRead())
+            .actorCount(notification.getActorCount())
             .createdAt(notification.getCreatedAt())
+            .lastEventAt(notification.getLastEventAt() != null
+                ? notification.getLastEventAt() : notification.getCreatedAt())
             .build();
     }
 }
@@ -0,0 +1,300 @@
+package com.example.legal_connect.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import java.io.File;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Extracts the text of uploaded PDFs in the background and stores it as overlapping
+ * chunks (pdf_chunks) for question answering.
+ *
+ * A document is queued after its upload commits and processed on a bounded pool.
+ * Pages are read one at a time; every app.pdf.extraction.checkpoint-pages pages the
+ * new chunks are inserted together with a checkpoint (see {@link PdfTextChunker}) and
+ * the progress shown to the user (pages_extracted of page_count). A worker claims a
+ * document by moving it to EXTRACTING with a fresh claim token and refreshes its
+ * heartbeat at each checkpoint. Checkpoints and the final status only apply while the
+ * token is still the document's, so a worker whose claim went stale and was taken
+ * over stops at its next write instead of overwriting the new worker's progress.
+ *
+ * Every app.pdf.extraction.sweep-interval-ms, PENDING documents (the queue was full,
+ * or uploaded before extraction existed) and EXTRACTING documents whose heartbeat is
+ * older than app.pdf.extraction.stale-after-ms (the node stopped) are queued again and
+ * resume from their checkpoint. A document with the same content as one already
+ * extracted gets a copy of its chunks instead of being parsed again.
+ */
+@Slf4j
+@Service
+public class PdfExtractionService {
+
+    private static final String CLAIM =
+        "UPDATE pdf_documents SET extraction_status = 'EXTRACTING', extraction_claim = ?, extraction_heartbeat = now() "
+            + "WHERE id = ? AND (extraction_status = 'PENDING' OR (extraction_status = 'EXTRACTING' "
+            + "AND (extraction_heartbeat IS NULL OR extraction_heartbeat < ?)))";
+
+    private static final String FIND_RESUMABLE =
+        "SELECT id FROM pdf_documents WHERE extraction_status = 'PENDING' OR (extraction_status = 'EXTRACTING' "
+            + "AND (extraction_heartbeat IS NULL OR extraction_heartbeat < ?)) ORDER BY id LIMIT ?";
+
+    private static final String LOAD =
+        "SELECT file_path, content_hash, COALESCE(extraction_next_chunk, 0) AS next_chunk, "
+            + "COALESCE(extraction_next_chunk_start, 0) AS next_chunk_start, "
+            + "COALESCE(extraction_resume_page, 1) AS resume_page, "
+            + "COALESCE(extraction_resume_offset, 0) AS resume_offset FROM pdf_documents WHERE id = ?";
+
+    private static final String FIND_EXTRACTED_TWIN =
+        "SELECT id FROM pdf_documents WHERE content_hash = ? AND extraction_status = 'READY' AND id <> ? LIMIT 1";
+
+    private static final String COPY_CHUNKS =
+        "INSERT INTO pdf_chunks (pdf_document_id, chunk_index, page_start, page_end, start_offset, end_offset, content) "
+            + "SELECT ?, chunk_index, page_start, page_end, start_offset, end_offset, content "
+            + "FROM pdf_chunks WHERE pdf_document_id = ?";
+
+    private static final String DELETE_CHUNKS_FROM =
+        "DELETE FROM pdf_chunks WHERE pdf_document_id = ? AND chunk_index >= ?";
+
+    private static final String INSERT_CHUNK =
+        "INSERT INTO pdf_chunks (pdf_document_id, chunk_index, page_start, page_end, start_offset, end_offset, content) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String CHECKPOINT =
+        "UPDATE pdf_documents SET page_count = ?, pages_extracted = ?, extraction_next_chunk = ?, "
+            + "extraction_next_chunk_start = ?, extraction_resume_page = ?, extraction_resume_offset = ?, "
+            + "extraction_heartbeat = now() WHERE id = ? AND extraction_claim = ? AND extraction_status = 'EXTRACTING'";
+
+    private static final String COPY_PROGRESS =
+        "UPDATE pdf_documents d SET page_count = t.page_count, pages_extracted = t.page_count, "
+            + "extraction_next_chunk = t.extraction_next_chunk, extraction_status = 'READY', extraction_heartbeat = now() "
+            + "FROM pdf_documents t WHERE d.id = ? AND t.id = ? AND d.extraction_claim = ? "
+            + "AND d.extraction_status = 'EXTRACTING'";
+
+    private static final String FINISH =
+        "UPDATE pdf_documents SET extraction_status = 'READY', extraction_error = NULL, extraction_heartbeat = now() "
+            + "WHERE id = ? AND extraction_claim = ? AND extraction_status = 'EXTRACTING'";
+
+    private static final String FAIL =
+        "UPDATE pdf_documents SET extraction_status = 'FAILED', extraction_error = ? "
+            + "WHERE id = ? AND extraction_claim = ? AND extraction_status = 'EXTRACTING'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+    private final int queueCapacity;
+
+    @Value("${app.pdf.extraction.chunk-size}")
+    private int chunkSize;
+
+    @Value("${app.pdf.extraction.chunk-overlap}")
+    private int chunkOverlap;
+
+    @Value("${app.pdf.extraction.checkpoint-pages}")
+    private int checkpointPages;
+
+    @Value("${app.pdf.extraction.stale-after-ms}")
+    private long staleAfterMs;
+
+    public PdfExtractionService(JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${app.pdf.extraction.pool-size}") int poolSize,
+                                @Value("${app.pdf.extraction.queue-capacity}") int queueCapacity) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.queueCapacity = queueCapacity;
+        executor.setThreadNamePrefix("pdf-extract-");
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.initialize();
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdown();
+    }
+
+    /**
+     * Queue a newly stored document once the current transaction commits
+     */
+    public void enqueueAfterCommit(Long documentId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(documentId);
+                }
+            });
+        } else {
+            submit(documentId);
+        }
+    }
+
+    /**
+     * Queue documents left pending or abandoned by a stopped worker
+     */
+    @Scheduled(fixedDelayString = "${app.pdf.extraction.sweep-interval-ms}")
+    public void resumePending() {
+        List<Long> ids = jdbcTemplate.queryForList(FIND_RESUMABLE, Long.class, staleBefore(), queueCapacity);
+        for (Long id : ids) {
+            submit(id);
+        }
+    }
+
+    private void submit(Long documentId) {
+        if (!running.add(documentId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    extract(documentId);
+                } finally {
+                    running.remove(documentId);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            // Still PENDING; the next sweep picks it up
+            running.remove(documentId);
+            log.debug("PDF extraction queue full, deferring document {}", documentId);
+        }
+    }
+
+    private void extract(Long documentId) {
+        String claim = UUID.randomUUID().toString();
+        if (jdbcTemplate.update(CLAIM, claim, documentId, staleBefore()) == 0) {
+            return;
+        }
+        try {
+            Map<String, Object> row = jdbcTemplate.queryForMap(LOAD, documentId);
+            String contentHash = (String) row.get("content_hash");
+            int nextChunk = ((Number) row.get("next_chunk")).intValue();
+            if (contentHash != null && copyFromTwin(documentId, claim, contentHash)) {
+                return;
+            }
+
+            long startedAt = System.nanoTime();
+            PdfTextChunker chunker = new PdfTextChunker(chunkSize, chunkOverlap, nextChunk,
+                    ((Number) row.get("next_chunk_start")).longValue(),
+                    ((Number) row.get("resume_page")).intValue(),
+                    ((Number) row.get("resume_offset")).longValue());
+            // Chunks past the checkpoint cannot exist (they commit together), but be safe
+            jdbcTemplate.update(DELETE_CHUNKS_FROM, documentId, nextChunk);
+
+            int pageCount;
+            try (PDDocument pdf = Loader.loadPDF(new File((String) row.get("file_path")))) {
+                pageCount = pdf.getNumberOfPages();
+                PDFTextStripper stripper = new PDFTextStripper();
+                for (int page = chunker.resumePage(); page <= pageCount; page++) {
+                    stripper.setStartPage(page);
+                    stripper.setEndPage(page);
+                    chunker.addPage(page, stripper.getText(pdf));
+                    if (page == pageCount) {
+                        chunker.finish();
+                    }
+                    if (page % checkpointPages == 0 || page == pageCount) {
+                        checkpoint(documentId, claim, pageCount, page, chunker);
+                    }
+                }
+                if (pageCount < chunker.resumePage()) {
+                    // No pages
+                    chunker.finish();
+                    checkpoint(documentId, claim, pageCount, pageCount, chunker);
+                }
+            }
+            if (jdbcTemplate.update(FINISH, documentId, claim) == 0) {
+                throw claimLost(documentId);
+            }
+            log.info("Extracted {} pages of PDF document {} in {} ms", pageCount, documentId,
+                    (System.nanoTime() - startedAt) / 1_000_000);
+        } catch (ClaimLostException e) {
+            log.warn(e.getMessage());
+        } catch (Exception e) {
+            log.error("PDF extraction of document {} failed: {}", documentId, e.getMessage());
+            jdbcTemplate.update(FAIL, truncate(e.getMessage()), documentId, claim);
+        }
+    }
+
+    private void checkpoint(Long documentId, String claim, int pageCount, int page, PdfTextChunker chunker) {
+        List<PdfTextChunker.Chunk> chunks = chunker.drain();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!chunks.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_CHUNK, chunks, chunks.size(), (ps, chunk) -> {
+                    ps.setLong(1, documentId);
+                    ps.setInt(2, chunk.index());
+                    ps.setInt(3, chunk.pageStart());
+                    ps.setInt(4, chunk.pageEnd());
+                    ps.setLong(5, chunk.startOffset());
+                    ps.setLong(6, chunk.endOffset());
+                    ps.setString(7, chunk.content());
+                });
+            }
+            int updated = jdbcTemplate.update(CHECKPOINT, pageCount, page, chunker.nextIndex(), chunker.nextStart(),
+                    chunker.resumePage(), chunker.resumeOffset(), documentId, claim);
+            if (updated == 0) {
+                // Rolls back the chunks too
+                throw claimLost(documentId);
+            }
+        });
+    }
+
+    private boolean copyFromTwin(Long documentId, String claim, String contentHash) {
+        List<Long> twins = jdbcTemplate.queryForList(FIND_EXTRACTED_TWIN, Long.class, contentHash, documentId);
+        if (twins.isEmpty()) {
+            return false;
+        }
+        Long twinId = twins.get(0);
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update(DELETE_CHUNKS_FROM, documentId, 0);
+            jdbcTemplate.update(COPY_CHUNKS, documentId, twinId);
+            if (jdbcTemplate.update(COPY_PROGRESS, documentId, twinId, claim) == 0) {
+                throw claimLost(documentId);
+            }
+        });
+        log.info("PDF document {} has the same content as {}, copied its chunks", documentId, twinId);
+        return true;
+    }
+
+    private Timestamp staleBefore() {
+        return Timestamp.valueOf(LocalDateTime.now().minusNanos(staleAfterMs * 1_000_000));
+    }
+
+    /**
+     * The document was deleted, or reclaimed by another worker after our heartbeat went stale
+     */
+    private static ClaimLostException claimLost(Long documentId) {
+        return new ClaimLostException("PDF document " + documentId + " is no longer being extracted here");
+    }
+
+    private String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > 255 ? message.substring(0, 255) : message;
+    }
+
+    private static final class ClaimLostException extends RuntimeException {
+        private ClaimLostException(String message) {
+            super(message);
+        }
+    }
+}
@@ -1,22 +1,37 @@
 package com.example.legal_connect.service;
 
+import com.example.legal_connect.dto.conversation.PdfDocumentDto;
 import com.example.legal_connect.dto.conversation.PdfUploadResponse;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.nio.file.Path;
+import java.time.Instant;
+
 public interface PdfService {
     
+    /**
+     * A stored PDF file with what is needed to serve it; the file is read by the caller
+     */
+    record PdfFile(Path path, long size, Instant lastModified, String originalFileName, String contentHash) {
+    }
+    
     /**
      * Upload PDF file and create a conversation
      */
     PdfUploadResponse uploadPdfAndCreateConversation(MultipartFile file, String title, String summary, Long userId);
     
     /**
-     * Get PDF document for a conversation
+     * Get the PDF file of a conversation
+     */
+    PdfFile getPdfFile(Long conversationId, Long userId);
+    
+    /**
+     * Get the PDF document of a conversation, including its text extraction progress
      */
-    byte[] getPdfContent(Long conversationId, Long userId);
+    PdfDocumentDto getPdfDocument(Long conversationId, Long userId);
     
     /**
-     * Delete PDF file from storage
+     * Delete the PDF document of a conversation; the file is deleted with its last reference
      */
     void deletePdfFile(Long conversationId);
     
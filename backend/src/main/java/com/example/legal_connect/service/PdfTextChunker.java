@@ -0,0 +1,142 @@
+package com.example.legal_connect.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits the text of a document, fed page by page, into overlapping chunks of about
+ * chunkSize characters. A chunk ends at whitespace when there is some in its second
+ * half, and the next one starts overlap characters before that end.
+ *
+ * Only text not yet fully chunked is kept, starting at the page the next chunk starts
+ * in. That page and its offset, with the next chunk index and start, are the
+ * checkpoint: a chunker created from them and fed the pages from that page on
+ * produces the same chunks as one that never stopped.
+ */
+class PdfTextChunker {
+
+    record Chunk(int index, int pageStart, int pageEnd, long startOffset, long endOffset, String content) {
+    }
+
+    private final int chunkSize;
+    private final int overlap;
+    private final StringBuilder buffer = new StringBuilder();
+    // [page number, offset of the page's first character] of the pages in the buffer
+    private final List<long[]> pages = new ArrayList<>();
+    private final List<Chunk> ready = new ArrayList<>();
+    private long bufferStart;
+    private int nextIndex;
+    private long nextStart;
+    private int lastPage;
+
+    PdfTextChunker(int chunkSize, int overlap, int nextIndex, long nextStart, int resumePage, long resumeOffset) {
+        if (overlap < 0 || overlap >= chunkSize / 2) {
+            throw new IllegalArgumentException("Chunk overlap must be less than half the chunk size");
+        }
+        this.chunkSize = chunkSize;
+        this.overlap = overlap;
+        this.nextIndex = nextIndex;
+        this.nextStart = nextStart;
+        this.bufferStart = resumeOffset;
+        this.lastPage = resumePage - 1;
+    }
+
+    void addPage(int page, String text) {
+        pages.add(new long[] {page, bufferStart + buffer.length()});
+        buffer.append(text);
+        lastPage = page;
+        split(false);
+    }
+
+    /**
+     * Chunk the remaining text; call after the last page
+     */
+    void finish() {
+        split(true);
+    }
+
+    /**
+     * Chunks produced since the last call
+     */
+    List<Chunk> drain() {
+        List<Chunk> chunks = new ArrayList<>(ready);
+        ready.clear();
+        return chunks;
+    }
+
+    int nextIndex() {
+        return nextIndex;
+    }
+
+    long nextStart() {
+        return nextStart;
+    }
+
+    int resumePage() {
+        return pages.isEmpty() ? lastPage + 1 : (int) pages.get(0)[0];
+    }
+
+    long resumeOffset() {
+        return bufferStart;
+    }
+
+    private void split(boolean last) {
+        long bufferEnd = bufferStart + buffer.length();
+        while (nextStart < bufferEnd && (last || nextStart + chunkSize <= bufferEnd)) {
+            long end = Math.min(nextStart + chunkSize, bufferEnd);
+            if (end < bufferEnd) {
+                end = breakAtWhitespace(nextStart, end);
+            }
+            String content = text(nextStart, end).strip();
+            if (!content.isEmpty()) {
+                ready.add(new Chunk(nextIndex++, pageAt(nextStart), pageAt(end - 1), nextStart, end, content));
+            }
+            if (last && end == bufferEnd) {
+                nextStart = end;
+            } else {
+                nextStart = end - overlap;
+            }
+        }
+        discardChunkedPages();
+    }
+
+    private long breakAtWhitespace(long start, long end) {
+        for (long i = end; i > start + chunkSize / 2; i--) {
+            if (Character.isWhitespace(buffer.charAt((int) (i - 1 - bufferStart)))) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private int pageAt(long offset) {
+        int page = (int) pages.get(0)[0];
+        for (long[] entry : pages) {
+            if (entry[1] > offset) {
+                break;
+            }
+            page = (int) entry[0];
+        }
+        return page;
+    }
+
+    /**
+     * Drop the pages before the one the next chunk starts in
+     */
+    private void discardChunkedPages() {
+        int keep = 0;
+        while (keep + 1 < pages.size() && pages.get(keep + 1)[1] <= nextStart) {
+            keep++;
+        }
+        if (keep > 0) {
+            long newStart = pages.get(keep)[1];
+            buffer.delete(0, (int) (newStart - bufferStart));
+            bufferStart = newStart;
+            pages.subList(0, keep).clear();
+        }
+    }
+
+    private String text(long start, long end) {
+        return buffer.substring((int) (start - bufferStart), (int) (end - bufferStart));
+    }
+}
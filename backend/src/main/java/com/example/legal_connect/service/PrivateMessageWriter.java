@@ -0,0 +1,461 @@
+package com.example.legal_connect.service;
+
+import com.example.legal_connect.dto.messaging.SendUserMessageRequest;
+import com.example.legal_connect.entity.UserConversation;
+import com.example.legal_connect.repository.UserConversationRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Array;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Write-behind persistence for private messages sent over WebSocket.
+ *
+ * A message gets its id from the user_messages sequence and is appended to a local
+ * journal, which is fsynced before {@link #write} returns, so once the sender has its
+ * id the message survives a crash. Ids are reserved app.messaging.id-block-size at a
+ * time in one query and handed out locally, so sending does not wait for the
+ * database. History is ordered by id, so a block older than
+ * app.messaging.id-block-max-age-ms is dropped rather than used, keeping ids close
+ * to the time messages are sent. The fsync runs outside the journal lock and covers
+ * everything appended before it, so concurrent writers share one fsync (group commit).
+ *
+ * Queued messages are inserted in batches every app.messaging.flush-interval-ms,
+ * together with one update per conversation for its last message snapshot and unread
+ * counters. Ids are not in insert order (blocks, other nodes, the REST path), so a
+ * message may be inserted below a recipient's read watermark; the watermark then
+ * moves back just below it and their unread counter is recounted, so the message is
+ * not reported as read. If a batch fails its messages are inserted one at a time: a message the
+ * database rejects (e.g. its conversation or sender was deleted) is appended to
+ * dead-letter.journal and dropped, the others are retried on the next flush. Each
+ * flush starts a new journal segment; a segment is deleted once everything in it is
+ * in the database or dead-lettered, and segments left over from a crash are queued
+ * for the first flush on startup. Inserts ignore ids that already exist, so
+ * replaying a segment twice is harmless.
+ */
+@Slf4j
+@Component
+public class PrivateMessageWriter {
+
+    private static final String SEGMENT_PREFIX = "messages-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String DEAD_LETTER_FILE = "dead-letter.journal";
+
+    private static final String INSERT_MESSAGE =
+        "INSERT INTO user_messages (id, conversation_id, sender_id, content, is_read, is_active, created_at) "
+            + "VALUES (?, ?, ?, ?, false, true, ?) ON CONFLICT (id) DO NOTHING";
+
+    // Same effect as UserConversationRepository.recordMessage for every message of the
+    // batch in the conversation: ? 1-2 newest id and its preview, 3 newest id, 4-5 newest
+    // time, 6-7 ids and senders, 8 conversation. n holds, per participant, the lowest id
+    // and the number of the batch's messages they received.
+    private static final String UPDATE_CONVERSATION =
+        "UPDATE user_conversations uc SET "
+            + "user1_unread = CASE WHEN n.lowest1 <= uc.user1_last_read_id THEN (SELECT count(*) FROM user_messages um "
+            + "WHERE um.conversation_id = uc.id AND um.sender_id <> uc.user1_id AND um.id >= n.lowest1 "
+            + "AND um.is_active = true) ELSE uc.user1_unread + n.received1 END, "
+            + "user2_unread = CASE WHEN n.lowest2 <= uc.user2_last_read_id THEN (SELECT count(*) FROM user_messages um "
+            + "WHERE um.conversation_id = uc.id AND um.sender_id <> uc.user2_id AND um.id >= n.lowest2 "
+            + "AND um.is_active = true) ELSE uc.user2_unread + n.received2 END, "
+            + "user1_last_read_id = CASE WHEN n.lowest1 <= uc.user1_last_read_id THEN n.lowest1 - 1 "
+            + "ELSE uc.user1_last_read_id END, "
+            + "user2_last_read_id = CASE WHEN n.lowest2 <= uc.user2_last_read_id THEN n.lowest2 - 1 "
+            + "ELSE uc.user2_last_read_id END, "
+            + "last_message_preview = CASE WHEN COALESCE(uc.last_message_id, 0) < ? THEN ? ELSE uc.last_message_preview END, "
+            + "last_message_id = GREATEST(COALESCE(uc.last_message_id, 0), ?), "
+            + "last_message_at = GREATEST(COALESCE(uc.last_message_at, ?), ?), updated_at = now() "
+            + "FROM (SELECT c.id, "
+            + "min(m.id) FILTER (WHERE m.sender_id <> c.user1_id) AS lowest1, "
+            + "count(*) FILTER (WHERE m.sender_id <> c.user1_id) AS received1, "
+            + "min(m.id) FILTER (WHERE m.sender_id <> c.user2_id) AS lowest2, "
+            + "count(*) FILTER (WHERE m.sender_id <> c.user2_id) AS received2 "
+            + "FROM user_conversations c, unnest(?::bigint[], ?::bigint[]) AS m(id, sender_id) "
+            + "WHERE c.id = ? GROUP BY c.id) n "
+            + "WHERE uc.id = n.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserConversationRepository userConversationRepository;
+    private final ObjectMapper objectMapper;
+
+    private final Map<Long, long[]> participants = new ConcurrentHashMap<>();
+
+    // Guarded by itself: ids reserved from the sequence and not handed out yet
+    private final Deque<Long> reservedIds = new ArrayDeque<>();
+    private long reservedAt;
+
+    // Guarded by journalLock: appends and segment rotation must not interleave
+    private final Object journalLock = new Object();
+    private final List<PendingMessage> queue = new ArrayList<>();
+    private FileChannel segment;
+    private Path segmentPath;
+    private long segmentCounter;
+    private long appended;
+
+    // Guarded by syncLock: number of appends known to be on disk
+    private final Object syncLock = new Object();
+    private long synced;
+
+    // Guarded by this (the flushing thread)
+    private final List<PendingMessage> retry = new ArrayList<>();
+    private final List<Path> retrySegments = new ArrayList<>();
+
+    @Value("${app.messaging.journal-dir}")
+    private Path journalDir;
+
+    @Value("${app.messaging.batch-size}")
+    private int batchSize;
+
+    @Value("${app.messaging.id-block-size}")
+    private int idBlockSize;
+
+    @Value("${app.messaging.id-block-max-age-ms}")
+    private long idBlockMaxAgeMs;
+
+    @Value("${app.messaging.participant-cache-size}")
+    private int participantCacheSize;
+
+    /**
+     * A message accepted but possibly not yet inserted
+     */
+    public record PendingMessage(Long id, Long conversationId, Long senderId, String content, LocalDateTime createdAt) {
+    }
+
+    public PrivateMessageWriter(JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                UserConversationRepository userConversationRepository,
+                                ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.userConversationRepository = userConversationRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        Files.createDirectories(journalDir);
+        List<Path> leftovers;
+        try (Stream<Path> files = Files.list(journalDir)) {
+            leftovers = files
+                .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                .sorted()
+                .toList();
+        }
+        synchronized (this) {
+            for (Path leftover : leftovers) {
+                replay(leftover);
+            }
+        }
+        synchronized (journalLock) {
+            openSegment();
+        }
+        // Never throws; what cannot be inserted now is retried by the scheduled flush
+        flush();
+    }
+
+    @PreDestroy
+    void stop() {
+        flush();
+        synchronized (journalLock) {
+            closeSegment();
+        }
+    }
+
+    /**
+     * Accept a message from the sender: check that they belong to the conversation,
+     * assign its id and journal it. Returns the message with its id and timestamp.
+     */
+    public PendingMessage write(Long conversationId, Long senderId, String content) {
+        // Same rules as SendUserMessageRequest on the REST path
+        if (content == null || content.isBlank()) {
+            throw new IllegalArgumentException("Content is required");
+        }
+        if (content.length() > SendUserMessageRequest.MAX_CONTENT_LENGTH) {
+            throw new IllegalArgumentException("Content must not exceed "
+                + SendUserMessageRequest.MAX_CONTENT_LENGTH + " characters");
+        }
+        long[] members = participants(conversationId);
+        if (members[0] != senderId && members[1] != senderId) {
+            throw new RuntimeException("Conversation not found or access denied");
+        }
+
+        PendingMessage message = new PendingMessage(nextId(), conversationId, senderId, content, LocalDateTime.now());
+        ByteBuffer buffer = ByteBuffer.wrap(toJournalLine(message));
+        long ticket;
+        synchronized (journalLock) {
+            try {
+                while (buffer.hasRemaining()) {
+                    segment.write(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to journal message", e);
+            }
+            queue.add(message);
+            ticket = ++appended;
+        }
+        awaitSynced(ticket);
+        return message;
+    }
+
+    /**
+     * Return once the append with this ticket is on disk. The first waiter fsyncs
+     * everything appended so far; those queued behind it usually find their append
+     * already covered.
+     */
+    private void awaitSynced(long ticket) {
+        synchronized (syncLock) {
+            if (synced >= ticket) {
+                return;
+            }
+            FileChannel channel;
+            long upTo;
+            synchronized (journalLock) {
+                channel = segment;
+                upTo = appended;
+            }
+            try {
+                channel.force(false);
+            } catch (ClosedChannelException e) {
+                // Rotated meanwhile; the flush synced the segment before closing it
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to sync message journal", e);
+            }
+            synced = upTo;
+        }
+    }
+
+    /**
+     * Insert everything journaled so far. Appends only wait for the segment switch,
+     * not for the database.
+     */
+    @Scheduled(fixedDelayString = "${app.messaging.flush-interval-ms}")
+    public synchronized void flush() {
+        List<PendingMessage> batch = new ArrayList<>(retry);
+        List<Path> segments = new ArrayList<>(retrySegments);
+        retry.clear();
+        retrySegments.clear();
+
+        synchronized (journalLock) {
+            if (!queue.isEmpty()) {
+                batch.addAll(queue);
+                queue.clear();
+                segments.add(segmentPath);
+                closeSegment();
+                openSegment();
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<PendingMessage> failed;
+        try {
+            insert(batch);
+            failed = List.of();
+            log.debug("Persisted {} private messages", batch.size());
+        } catch (Exception e) {
+            log.warn("Failed to persist batch of {} private messages, inserting one at a time: {}",
+                batch.size(), e.getMessage());
+            failed = insertEach(batch);
+        }
+
+        if (!failed.isEmpty()) {
+            log.warn("Failed to persist {} private messages, retrying next cycle", failed.size());
+            retry.addAll(failed);
+            retrySegments.addAll(segments);
+            return;
+        }
+        for (Path done : segments) {
+            try {
+                Files.deleteIfExists(done);
+            } catch (IOException e) {
+                log.warn("Failed to delete message journal {}: {}", done, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Insert messages one at a time after their batch failed. Messages the database
+     * rejects are dead-lettered; returns those to retry. Stops at the first failure
+     * that is not about the message itself (e.g. the database is down).
+     */
+    private List<PendingMessage> insertEach(List<PendingMessage> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            PendingMessage message = batch.get(i);
+            try {
+                insert(List.of(message));
+            } catch (DataIntegrityViolationException e) {
+                deadLetter(message, e);
+            } catch (Exception e) {
+                return new ArrayList<>(batch.subList(i, batch.size()));
+            }
+        }
+        return List.of();
+    }
+
+    private void deadLetter(PendingMessage message, Exception cause) {
+        log.error("Dropping private message {} to conversation {}: {}",
+            message.id(), message.conversationId(), cause.getMessage());
+        // The conversation or a participant may be gone
+        participants.remove(message.conversationId());
+        try {
+            Files.write(journalDir.resolve(DEAD_LETTER_FILE), toJournalLine(message),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.error("Failed to write private message {} to the dead-letter journal: {}", message.id(), e.getMessage());
+        }
+    }
+
+    private void insert(List<PendingMessage> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            // Only messages actually inserted count; a replayed message may already be there
+            Map<Long, List<PendingMessage>> inserted = new LinkedHashMap<>();
+            for (int from = 0; from < batch.size(); from += batchSize) {
+                List<PendingMessage> chunk = batch.subList(from, Math.min(from + batchSize, batch.size()));
+                int[][] counts = jdbcTemplate.batchUpdate(INSERT_MESSAGE, chunk, chunk.size(), (ps, message) -> {
+                    ps.setLong(1, message.id());
+                    ps.setLong(2, message.conversationId());
+                    ps.setLong(3, message.senderId());
+                    ps.setString(4, message.content());
+                    ps.setTimestamp(5, Timestamp.valueOf(message.createdAt()));
+                });
+                for (int i = 0; i < chunk.size(); i++) {
+                    if (counts[0][i] != 0) {
+                        PendingMessage message = chunk.get(i);
+                        inserted.computeIfAbsent(message.conversationId(), id -> new ArrayList<>()).add(message);
+                    }
+                }
+            }
+            List<List<PendingMessage>> conversations = new ArrayList<>(inserted.values());
+            jdbcTemplate.batchUpdate(UPDATE_CONVERSATION, conversations, conversations.size(), (ps, messages) -> {
+                Long[] ids = messages.stream().map(PendingMessage::id).toArray(Long[]::new);
+                Long[] senders = messages.stream().map(PendingMessage::senderId).toArray(Long[]::new);
+                PendingMessage newest = messages.stream().max(Comparator.comparing(PendingMessage::id)).orElseThrow();
+                Timestamp newestAt = Timestamp.valueOf(messages.stream()
+                    .map(PendingMessage::createdAt).max(Comparator.naturalOrder()).orElseThrow());
+                Array idArray = ps.getConnection().createArrayOf("bigint", ids);
+                Array senderArray = ps.getConnection().createArrayOf("bigint", senders);
+                ps.setLong(1, newest.id());
+                ps.setString(2, UserConversation.preview(newest.content()));
+                ps.setLong(3, newest.id());
+                ps.setTimestamp(4, newestAt);
+                ps.setTimestamp(5, newestAt);
+                ps.setArray(6, idArray);
+                ps.setArray(7, senderArray);
+                ps.setLong(8, newest.conversationId());
+            });
+        });
+    }
+
+    /**
+     * Queue the messages of a segment left over from a crash for the next flush, which
+     * deletes the segment once they are in
+     */
+    private void replay(Path leftover) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(leftover, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.error("Cannot read message journal {}, leaving it in place: {}", leftover, e.getMessage());
+            return;
+        }
+        int count = 0;
+        for (String line : lines) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                retry.add(objectMapper.readValue(line, PendingMessage.class));
+                count++;
+            } catch (IOException e) {
+                // A torn last line from a crash mid-write; it was never acknowledged
+                log.warn("Skipping unreadable journal entry in {}", leftover.getFileName());
+            }
+        }
+        retrySegments.add(leftover);
+        log.info("Replaying {} private messages from {}", count, leftover.getFileName());
+    }
+
+    private long[] participants(Long conversationId) {
+        long[] members = participants.get(conversationId);
+        if (members != null) {
+            return members;
+        }
+        Object[] row = userConversationRepository.findParticipantIds(conversationId).stream().findFirst()
+            .orElseThrow(() -> new RuntimeException("Conversation not found or access denied"));
+        members = new long[] {((Number) row[0]).longValue(), ((Number) row[1]).longValue()};
+        if (participants.size() >= participantCacheSize) {
+            participants.clear();
+        }
+        participants.put(conversationId, members);
+        return members;
+    }
+
+    private Long nextId() {
+        synchronized (reservedIds) {
+            long now = System.currentTimeMillis();
+            if (reservedIds.isEmpty() || now - reservedAt > idBlockMaxAgeMs) {
+                // Unused ids of a stale block are left as a gap in the sequence
+                reservedIds.clear();
+                reservedIds.addAll(jdbcTemplate.queryForList(
+                    "SELECT nextval(pg_get_serial_sequence('user_messages', 'id')) FROM generate_series(1, ?)",
+                    Long.class, idBlockSize));
+                reservedAt = now;
+            }
+            return reservedIds.poll();
+        }
+    }
+
+    private byte[] toJournalLine(PendingMessage message) {
+        try {
+            return (objectMapper.writeValueAsString(message) + "\n").getBytes(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to serialize message", e);
+        }
+    }
+
+    private void openSegment() {
+        segmentPath = journalDir.resolve(String.format("%s%d-%06d%s",
+            SEGMENT_PREFIX, System.currentTimeMillis(), segmentCounter++, SEGMENT_SUFFIX));
+        try {
+            segment = FileChannel.open(segmentPath,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open message journal " + segmentPath, e);
+        }
+    }
+
+    private void closeSegment() {
+        try {
+            if (segment != null) {
+                // Writers still waiting on this segment count on it being synced
+                segment.force(false);
+                segment.close();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to close message journal {}: {}", segmentPath, e.getMessage());
+        }
+    }
+}
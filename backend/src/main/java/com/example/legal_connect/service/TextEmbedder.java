@@ -0,0 +1,15 @@
+package com.example.legal_connect.service;
+
+/**
+ * Turns text into a vector for similarity search over document chunks.
+ *
+ * Implementations return vectors of {@link #dimension()} floats; texts with similar
+ * meaning should get vectors with a high inner product. The vector index is tied to
+ * the embedder that filled it and is rebuilt when the dimension changes.
+ */
+public interface TextEmbedder {
+
+    int dimension();
+
+    float[] embed(String text);
+}
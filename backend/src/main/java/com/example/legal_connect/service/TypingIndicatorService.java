@@ -0,0 +1,131 @@
+package com.example.legal_connect.service;
+
+import com.example.legal_connect.dto.chat.ChatMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Forwards typing indicators as state changes instead of per keystroke.
+ *
+ * One state is kept per (sender, target), where the target is the receiver or the
+ * public channel. "Typing" is forwarded when the sender starts, then at most once
+ * per app.chat.typing.refresh-interval-ms while they keep typing so receivers can
+ * expire a stale indicator on their own. "Stopped" is forwarded once, either when the
+ * client says so or when no typing event arrived for app.chat.typing.timeout-ms.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TypingIndicatorService {
+
+    private static final String PUBLIC_TARGET = "*";
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private final Map<String, TypingState> states = new ConcurrentHashMap<>();
+
+    @Value("${app.chat.typing.refresh-interval-ms}")
+    private long refreshIntervalMs;
+
+    @Value("${app.chat.typing.timeout-ms}")
+    private long timeoutMs;
+
+    private static final class TypingState {
+        private final ChatMessage message;
+        private long lastForwardedAt;
+        private long expiresAt;
+
+        private TypingState(ChatMessage message) {
+            this.message = message;
+        }
+    }
+
+    /**
+     * Record a typing event; forwards it only if it starts typing or refreshes it
+     */
+    public void typing(ChatMessage chatMessage) {
+        long now = currentTimeMillis();
+        boolean[] forward = new boolean[1];
+        states.compute(key(chatMessage), (key, state) -> {
+            if (state == null) {
+                state = new TypingState(chatMessage);
+            }
+            if (state.lastForwardedAt == 0 || now - state.lastForwardedAt >= refreshIntervalMs) {
+                state.lastForwardedAt = now;
+                forward[0] = true;
+            }
+            state.expiresAt = now + timeoutMs;
+            return state;
+        });
+
+        if (forward[0]) {
+            send(chatMessage);
+        }
+    }
+
+    /**
+     * Record a stop event; forwards it only if the sender was typing
+     */
+    public void stopTyping(ChatMessage chatMessage) {
+        if (states.remove(key(chatMessage)) != null) {
+            send(chatMessage);
+        }
+    }
+
+    /**
+     * Send "stopped" for senders whose typing indicator timed out
+     */
+    @Scheduled(fixedDelayString = "${app.chat.typing.sweep-interval-ms}")
+    public void expireTyping() {
+        long now = currentTimeMillis();
+        for (String key : states.keySet()) {
+            TypingState[] expired = new TypingState[1];
+            // Checked under the entry lock so a concurrent typing event cannot be lost
+            states.computeIfPresent(key, (k, state) -> {
+                if (state.expiresAt > now) {
+                    return state;
+                }
+                expired[0] = state;
+                return null;
+            });
+            if (expired[0] != null) {
+                ChatMessage typing = expired[0].message;
+                send(ChatMessage.builder()
+                        .senderId(typing.getSenderId())
+                        .senderName(typing.getSenderName())
+                        .receiverId(typing.getReceiverId())
+                        .conversationId(typing.getConversationId())
+                        .type(ChatMessage.MessageType.STOP_TYPING)
+                        .timestamp(LocalDateTime.now())
+                        .build());
+                log.debug("Typing indicator of {} expired", typing.getSenderId());
+            }
+        }
+    }
+
+    // Overridden by tests
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private void send(ChatMessage chatMessage) {
+        if (chatMessage.getReceiverId() != null) {
+            messagingTemplate.convertAndSendToUser(chatMessage.getReceiverId(), "/queue/typing", chatMessage);
+        } else {
+            messagingTemplate.convertAndSend("/topic/typing", chatMessage);
+        }
+    }
+
+    private String key(ChatMessage chatMessage) {
+        String target = chatMessage.getReceiverId() != null ? chatMessage.getReceiverId() : PUBLIC_TARGET;
+        return chatMessage.getSenderId() + "|" + target;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.legal_connect.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-user unread notification counters in Redis.
+ *
+ * A counter is seeded from the database on the first read and then only moved by
+ * deltas. Deltas are applied only while the key exists, so a missing counter is
+ * never resurrected at a wrong value; the TTL bounds any drift from races between
+ * seeding and concurrent writes. When Redis is unavailable reads fall back to the
+ * database count.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UnreadNotificationCounter {
+
+    private static final String KEY_PREFIX = "notifications:unread:";
+
+    private static final RedisScript<Long> ADD_IF_PRESENT = new DefaultRedisScript<>(
+        "if redis.call('EXISTS', KEYS[1]) == 1 then "
+            + "local count = redis.call('INCRBY', KEYS[1], ARGV[1]) "
+            + "if count < 0 then redis.call('SET', KEYS[1], 0, 'KEEPTTL') count = 0 end "
+            + "return count "
+            + "end "
+            + "return -1",
+        Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${app.notification.unread-count-ttl-ms}")
+    private long ttlMs;
+
+    /**
+     * Current unread count, loading and caching it from the database when missing
+     */
+    public long get(Long userId, LongSupplier loader) {
+        String key = key(userId);
+        try {
+            String cached = redisTemplate.opsForValue().get(key);
+            if (cached != null) {
+                return Long.parseLong(cached);
+            }
+            long count = loader.getAsLong();
+            redisTemplate.opsForValue().setIfAbsent(key, Long.toString(count), Duration.ofMillis(ttlMs));
+            return count;
+        } catch (DataAccessException e) {
+            log.warn("Failed to read unread counter for user {}: {}", userId, e.getMessage());
+            return loader.getAsLong();
+        }
+    }
+
+    /**
+     * Move the counter by delta if it is cached; never goes below zero
+     */
+    public void add(Long userId, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        try {
+            redisTemplate.execute(ADD_IF_PRESENT, List.of(key(userId)), Long.toString(delta));
+        } catch (DataAccessException e) {
+            log.warn("Failed to update unread counter for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private String key(Long userId) {
+        return KEY_PREFIX + userId;
+    }
+}
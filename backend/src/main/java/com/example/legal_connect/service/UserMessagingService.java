@@ -1,20 +1,32 @@
 package com.example.legal_connect.service;
 
+import com.example.legal_connect.dto.common.MessageHistoryPageDto;
 import com.example.legal_connect.dto.messaging.*;
 
-import java.util.List;
+import java.time.LocalDateTime;
 
 public interface UserMessagingService {
     
     /**
-     * Get all conversations for a user
+     * Get a page of a user's conversations, most recently active first. Pass the
+     * lastMessageAt and id of the last conversation of the previous page as
+     * before/beforeId to get the next page (the nextBefore/nextBeforeId of the
+     * previous result); null for the first page.
      */
-    List<UserConversationDto> getUserConversations(Long userId);
+    UserConversationPageDto getUserConversations(Long userId, LocalDateTime before, Long beforeId, Integer size);
     
     /**
-     * Get messages for a specific conversation
+     * Get a page of messages of a conversation in chronological order: the newest
+     * messages, or those right before the message id before, or right after the
+     * message id after. The page carries the cursors of the pages beyond it.
      */
-    List<UserMessageDto> getConversationMessages(Long conversationId, Long userId);
+    MessageHistoryPageDto<UserMessageDto> getConversationMessages(Long conversationId, Long userId, Long before, Long after, Integer size);
+    
+    /**
+     * Full-text search over all of a user's conversations, newest first. Pass the
+     * nextBefore of the previous result to get the next page.
+     */
+    MessageSearchResultDto searchMessages(Long userId, String query, Long before, Integer size);
     
     /**
      * Create a new conversation between two users
@@ -0,0 +1,221 @@
+package com.example.legal_connect.service;
+
+import com.example.legal_connect.repository.ForumRepository;
+import com.example.legal_connect.repository.PostReplyRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Buffers vote counter changes in memory and writes them to posts / post_replies in
+ * batches, so a viral post takes one counter UPDATE per flush instead of one per
+ * vote serialized on its row lock.
+ *
+ * Individual votes are still written to post_votes / reply_votes synchronously; only
+ * the denormalized counters lag, by at most one flush interval. Readers add the
+ * pending delta to the stored counters; a delta being flushed stays in it until the
+ * flush commits, so counters never go backwards in between. Deltas are kept per
+ * target in a ConcurrentHashMap as immutable values replaced inside compute, so
+ * concurrent votes on different targets do not contend and none is lost when a
+ * flush drains an entry.
+ *
+ * Pending deltas are lost if the process dies before the next flush, so every
+ * app.vote.recount-interval-ms the counters are recounted from the votes, skipping
+ * targets voted on within app.vote.recount-quiet-ms. A removed vote leaves no
+ * timestamp, so the recount also skips targets with a delta still buffered here: it
+ * flushes first and runs under the flush lock, so the only such deltas are those that
+ * arrived since, and their ids are passed to the query. Deltas buffered on other nodes
+ * are not seen; a counter they throw off is corrected by the next recount.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class VoteCounterAggregator {
+
+    private final ForumRepository forumRepository;
+    private final PostReplyRepository replyRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Long, Delta> pendingPosts = new ConcurrentHashMap<>();
+    private final Map<Long, Delta> pendingReplies = new ConcurrentHashMap<>();
+
+    @Value("${app.vote.recount-quiet-ms}")
+    private long recountQuietMs;
+
+    /**
+     * Counter change for one post or reply not yet in its row: the part waiting for
+     * the next flush and the part the current flush is writing
+     */
+    public static final class Delta {
+        private final int upvotes;
+        private final int downvotes;
+        private final int flushingUpvotes;
+        private final int flushingDownvotes;
+
+        private Delta(int upvotes, int downvotes, int flushingUpvotes, int flushingDownvotes) {
+            this.upvotes = upvotes;
+            this.downvotes = downvotes;
+            this.flushingUpvotes = flushingUpvotes;
+            this.flushingDownvotes = flushingDownvotes;
+        }
+
+        public int getUpvotes() {
+            return upvotes + flushingUpvotes;
+        }
+
+        public int getDownvotes() {
+            return downvotes + flushingDownvotes;
+        }
+
+        private boolean isEmpty() {
+            return upvotes == 0 && downvotes == 0 && flushingUpvotes == 0 && flushingDownvotes == 0;
+        }
+    }
+
+    private static final Delta EMPTY = new Delta(0, 0, 0, 0);
+
+    // More buffered targets than this after a flush and the recount waits for a quieter cycle
+    private static final int MAX_SKIPPED_TARGETS = 10_000;
+
+    /**
+     * Record a post counter change once the current transaction commits
+     */
+    public void addPostDelta(Long postId, int upvotes, int downvotes) {
+        afterCommit(() -> add(pendingPosts, postId, upvotes, downvotes));
+    }
+
+    /**
+     * Record a reply counter change once the current transaction commits
+     */
+    public void addReplyDelta(Long replyId, int upvotes, int downvotes) {
+        afterCommit(() -> add(pendingReplies, replyId, upvotes, downvotes));
+    }
+
+    public Delta pendingForPost(Long postId) {
+        return pendingPosts.getOrDefault(postId, EMPTY);
+    }
+
+    public Delta pendingForReply(Long replyId) {
+        return pendingReplies.getOrDefault(replyId, EMPTY);
+    }
+
+    @Scheduled(fixedDelayString = "${app.vote.flush-interval-ms}")
+    @PreDestroy
+    public synchronized void flush() {
+        flush(pendingPosts, "post", (id, delta) ->
+            forumRepository.applyVoteDelta(id, delta.upvotes, delta.downvotes));
+        flush(pendingReplies, "reply", (id, delta) ->
+            replyRepository.applyVoteDelta(id, delta.upvotes, delta.downvotes));
+    }
+
+    /**
+     * Correct counters that drifted from the votes on record, e.g. by deltas lost in a
+     * crash
+     */
+    @Scheduled(fixedDelayString = "${app.vote.recount-interval-ms}", initialDelayString = "${app.vote.recount-interval-ms}")
+    public synchronized void recount() {
+        flush();
+        LocalDateTime quietSince = LocalDateTime.now().minusNanos(recountQuietMs * 1_000_000);
+        List<Long> busyPosts = busyIds(pendingPosts);
+        List<Long> busyReplies = busyIds(pendingReplies);
+        if (busyPosts.size() + busyReplies.size() > MAX_SKIPPED_TARGETS) {
+            log.debug("Skipping the vote recount, {} targets have buffered deltas", busyPosts.size() + busyReplies.size());
+            return;
+        }
+        Integer posts = transactionTemplate.execute(status -> forumRepository.recountVotes(quietSince, busyPosts));
+        Integer replies = transactionTemplate.execute(status -> replyRepository.recountVotes(quietSince, busyReplies));
+        if (posts != null && posts > 0 || replies != null && replies > 0) {
+            log.info("Recounted vote counters of {} posts and {} replies", posts, replies);
+        }
+    }
+
+    private void flush(Map<Long, Delta> pending, String target, BiConsumer<Long, Delta> writer) {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        // Moved to the flushing part inside computeIfPresent, which excludes concurrent adds to the same entry
+        List<Map.Entry<Long, Delta>> drained = new ArrayList<>();
+        for (Long id : pending.keySet()) {
+            pending.computeIfPresent(id, (key, delta) -> {
+                if (delta.upvotes == 0 && delta.downvotes == 0) {
+                    return delta.isEmpty() ? null : delta;
+                }
+                drained.add(Map.entry(key, new Delta(delta.upvotes, delta.downvotes, 0, 0)));
+                return new Delta(0, 0, delta.flushingUpvotes + delta.upvotes,
+                    delta.flushingDownvotes + delta.downvotes);
+            });
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+
+        boolean written = false;
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                drained.forEach(entry -> writer.accept(entry.getKey(), entry.getValue())));
+            written = true;
+            log.debug("Flushed vote counters for {} {} rows", drained.size(), target);
+        } catch (Exception e) {
+            log.warn("Failed to flush {} vote counters, retrying next cycle: {}", target, e.getMessage());
+        }
+
+        // Written: drop the flushing part, now in the rows; failed: hand it back to the next flush
+        for (Map.Entry<Long, Delta> entry : drained) {
+            Delta flushed = entry.getValue();
+            int retryUpvotes = written ? 0 : flushed.upvotes;
+            int retryDownvotes = written ? 0 : flushed.downvotes;
+            pending.computeIfPresent(entry.getKey(), (key, delta) -> {
+                Delta rest = new Delta(delta.upvotes + retryUpvotes, delta.downvotes + retryDownvotes,
+                    delta.flushingUpvotes - flushed.upvotes, delta.flushingDownvotes - flushed.downvotes);
+                return rest.isEmpty() ? null : rest;
+            });
+        }
+    }
+
+    /**
+     * Targets with a buffered delta, plus 0 (no such id) so the IN list is never empty
+     */
+    private static List<Long> busyIds(Map<Long, Delta> pending) {
+        List<Long> ids = new ArrayList<>(pending.keySet());
+        ids.add(0L);
+        return ids;
+    }
+
+    private void add(Map<Long, Delta> pending, Long id, int upvotes, int downvotes) {
+        pending.compute(id, (key, delta) -> {
+            if (delta == null) {
+                delta = EMPTY;
+            }
+            Delta sum = new Delta(delta.upvotes + upvotes, delta.downvotes + downvotes,
+                delta.flushingUpvotes, delta.flushingDownvotes);
+            return sum.isEmpty() ? null : sum;
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -1,13 +1,22 @@
 package com.example.legal_connect.service;
 
+import com.example.legal_connect.dto.forum.BatchVoteDto;
 import com.example.legal_connect.dto.forum.VoteDto;
 import com.example.legal_connect.entity.*;
 import com.example.legal_connect.repository.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
@@ -19,178 +28,159 @@ public class VotingService {
     private final PostReplyRepository replyRepository;
     private final UserRepository userRepository;
     private final NotificationService notificationService;
+    private final VoteCounterAggregator voteCounterAggregator;
     
+    /**
+     * Cast, switch or remove (voteType NONE) the user's vote on a post.
+     *
+     * The vote row is written with a single upsert or delete. The counter change is
+     * handed to {@link VoteCounterAggregator} and flushed in batches, so votes on a
+     * hot post do not queue on its row lock; the returned counts include pending
+     * changes and this vote.
+     */
     @Transactional
     public VoteDto votePost(Long postId, Long userId, String voteTypeStr) {
-        Post post = forumRepository.findById(postId)
-            .orElseThrow(() -> new RuntimeException("Post not found"));
-        User user = userRepository.findById(userId)
-            .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        Optional<PostVote> existingVote = postVoteRepository.findByPostIdAndUserId(postId, userId);
-        
-        // Handle NONE - remove vote
+        VoteDelta delta;
+        String userVote = null;
         if ("NONE".equals(voteTypeStr)) {
-            if (existingVote.isPresent()) {
-                PostVote vote = existingVote.get();
-                if (vote.getVoteType() == PostVote.VoteType.UPVOTE) {
-                    int currentCount = post.getUpvoteCount() != null ? post.getUpvoteCount() : 0;
-                    post.setUpvoteCount(Math.max(0, currentCount - 1));
-                } else {
-                    int currentCount = post.getDownvoteCount() != null ? post.getDownvoteCount() : 0;
-                    post.setDownvoteCount(Math.max(0, currentCount - 1));
-                }
-                postVoteRepository.delete(vote);
-                forumRepository.save(post);
-                System.out.println("Removed vote, new counts: upvote=" + post.getUpvoteCount() + ", downvote=" + post.getDownvoteCount());
+            delta = VoteDelta.removed(postVoteRepository.deleteVote(postId, userId));
+        } else {
+            PostVote.VoteType voteType = PostVote.VoteType.valueOf(voteTypeStr);
+            userVote = voteType.name();
+            try {
+                delta = VoteDelta.upserted(voteType.name(), postVoteRepository.upsertVote(postId, userId, voteType.name()));
+            } catch (DataIntegrityViolationException e) {
+                throw new RuntimeException("Post not found");
             }
-            return getPostVoteStats(postId, userId);
         }
         
-        PostVote.VoteType voteType = PostVote.VoteType.valueOf(voteTypeStr);
+        // Pending first: a flush moves counts from it into the row, never the other way
+        VoteCounterAggregator.Delta pending = voteCounterAggregator.pendingForPost(postId);
+        Object[] row = forumRepository.findVoteCounts(postId).stream().findFirst()
+            .orElseThrow(() -> new RuntimeException("Post not found"));
+        if (!delta.isEmpty()) {
+            voteCounterAggregator.addPostDelta(postId, delta.upvotes(), delta.downvotes());
+        }
         
-        if (existingVote.isPresent()) {
-            // Update existing vote
-            PostVote vote = existingVote.get();
-            if (vote.getVoteType() != voteType) {
-                // Switch vote type
-                if (vote.getVoteType() == PostVote.VoteType.UPVOTE) {
-                    int upCount = post.getUpvoteCount() != null ? post.getUpvoteCount() : 0;
-                    int downCount = post.getDownvoteCount() != null ? post.getDownvoteCount() : 0;
-                    post.setUpvoteCount(Math.max(0, upCount - 1));
-                    post.setDownvoteCount(downCount + 1);
-                } else {
-                    int upCount = post.getUpvoteCount() != null ? post.getUpvoteCount() : 0;
-                    int downCount = post.getDownvoteCount() != null ? post.getDownvoteCount() : 0;
-                    post.setDownvoteCount(Math.max(0, downCount - 1));
-                    post.setUpvoteCount(upCount + 1);
-                }
-                vote.setVoteType(voteType);
-                postVoteRepository.save(vote);
-                System.out.println("Switched vote type to: " + voteType);
-            }
-        } else {
-            // Create new vote
-            PostVote vote = PostVote.builder()
-                .post(post)
-                .user(user)
-                .voteType(voteType)
-                .build();
-            PostVote savedVote = postVoteRepository.save(vote);
-            System.out.println("Created new vote: ID=" + savedVote.getId() + ", User=" + userId + ", Post=" + postId + ", Type=" + voteType);
-            
-            if (voteType == PostVote.VoteType.UPVOTE) {
-                int currentCount = post.getUpvoteCount() != null ? post.getUpvoteCount() : 0;
-                post.setUpvoteCount(currentCount + 1);
-                System.out.println("Incremented upvote count to: " + post.getUpvoteCount());
-                // Notify post author about upvote (but not if they upvoted themselves)
-                if (!post.getAuthor().getId().equals(userId)) {
-                    notificationService.createNotification(
-                        post.getAuthor().getId(),
-                        Notification.NotificationType.UPVOTE,
-                        user.getFullName() + " đã upvote bài viết của bạn: " + post.getTitle(),
-                        postId,
-                        "POST"
-                    );
-                }
-            } else {
-                int currentCount = post.getDownvoteCount() != null ? post.getDownvoteCount() : 0;
-                post.setDownvoteCount(currentCount + 1);
-                System.out.println("Incremented downvote count to: " + post.getDownvoteCount());
-            }
+        // Notify post author about upvote (but not if they upvoted themselves)
+        Long authorId = ((Number) row[2]).longValue();
+        if (delta.newUpvote() && !authorId.equals(userId)) {
+            notificationService.createNotification(
+                authorId,
+                Notification.NotificationType.UPVOTE,
+                userRepository.findFullNameById(userId).orElse(""),
+                "đã upvote bài viết của bạn: " + row[3],
+                postId,
+                "POST"
+            );
         }
         
-        Post savedPost = forumRepository.save(post);
-        System.out.println("Saved post with upvote=" + savedPost.getUpvoteCount() + ", downvote=" + savedPost.getDownvoteCount());
-        return getPostVoteStats(postId, userId);
+        return toVoteDto(row, pending, delta, userVote);
     }
     
+    /**
+     * Cast, switch or remove (voteType NONE) the user's vote on a reply; see {@link #votePost}
+     */
     @Transactional
     public VoteDto voteReply(Long replyId, Long userId, String voteTypeStr) {
-        PostReply reply = replyRepository.findById(replyId)
+        VoteDelta delta;
+        String userVote = null;
+        if ("NONE".equals(voteTypeStr)) {
+            delta = VoteDelta.removed(replyVoteRepository.deleteVote(replyId, userId));
+        } else {
+            ReplyVote.VoteType voteType = ReplyVote.VoteType.valueOf(voteTypeStr);
+            userVote = voteType.name();
+            try {
+                delta = VoteDelta.upserted(voteType.name(), replyVoteRepository.upsertVote(replyId, userId, voteType.name()));
+            } catch (DataIntegrityViolationException e) {
+                throw new RuntimeException("Reply not found");
+            }
+        }
+        
+        // Pending first: a flush moves counts from it into the row, never the other way
+        VoteCounterAggregator.Delta pending = voteCounterAggregator.pendingForReply(replyId);
+        Object[] row = replyRepository.findVoteCounts(replyId).stream().findFirst()
             .orElseThrow(() -> new RuntimeException("Reply not found"));
-        User user = userRepository.findById(userId)
-            .orElseThrow(() -> new RuntimeException("User not found"));
+        if (!delta.isEmpty()) {
+            voteCounterAggregator.addReplyDelta(replyId, delta.upvotes(), delta.downvotes());
+        }
         
-        Optional<ReplyVote> existingVote = replyVoteRepository.findByReplyIdAndUserId(replyId, userId);
+        // Notify reply author about upvote (but not if they upvoted themselves)
+        Long authorId = ((Number) row[2]).longValue();
+        if (delta.newUpvote() && !authorId.equals(userId)) {
+            notificationService.createNotification(
+                authorId,
+                Notification.NotificationType.UPVOTE,
+                userRepository.findFullNameById(userId).orElse(""),
+                "đã upvote câu trả lời của bạn",
+                replyId,
+                "REPLY"
+            );
+        }
         
-        // Handle NONE - remove vote
-        if ("NONE".equals(voteTypeStr)) {
-            if (existingVote.isPresent()) {
-                ReplyVote vote = existingVote.get();
-                if (vote.getVoteType() == ReplyVote.VoteType.UPVOTE) {
-                    int currentCount = reply.getUpvoteCount() != null ? reply.getUpvoteCount() : 0;
-                    reply.setUpvoteCount(Math.max(0, currentCount - 1));
-                } else {
-                    int currentCount = reply.getDownvoteCount() != null ? reply.getDownvoteCount() : 0;
-                    reply.setDownvoteCount(Math.max(0, currentCount - 1));
-                }
-                replyVoteRepository.delete(vote);
-                replyRepository.save(reply);
-                System.out.println("Removed reply vote, new counts: upvote=" + reply.getUpvoteCount() + ", downvote=" + reply.getDownvoteCount());
-            }
-            return getReplyVoteStats(replyId, userId);
+        return toVoteDto(row, pending, delta, userVote);
+    }
+    
+    /**
+     * Stored counters plus changes not yet flushed, including this vote's own delta
+     * which only reaches the aggregator on commit
+     */
+    private VoteDto toVoteDto(Object[] row, VoteCounterAggregator.Delta pending, VoteDelta delta, String userVote) {
+        return toVoteDto(
+            (Integer) row[0],
+            (Integer) row[1],
+            pending.getUpvotes() + delta.upvotes(),
+            pending.getDownvotes() + delta.downvotes(),
+            userVote);
+    }
+    
+    private VoteDto toVoteDto(Integer upvotes, Integer downvotes, int pendingUp, int pendingDown, String userVote) {
+        return VoteDto.builder()
+            .upvoteCount(Math.max(0, (upvotes != null ? upvotes : 0) + pendingUp))
+            .downvoteCount(Math.max(0, (downvotes != null ? downvotes : 0) + pendingDown))
+            .userVote(userVote)
+            .build();
+    }
+    
+    /**
+     * Counter change caused by one vote statement
+     */
+    private record VoteDelta(int upvotes, int downvotes, boolean newUpvote) {
+        
+        private static final VoteDelta NONE = new VoteDelta(0, 0, false);
+        
+        boolean isEmpty() {
+            return upvotes == 0 && downvotes == 0;
         }
         
-        ReplyVote.VoteType voteType = ReplyVote.VoteType.valueOf(voteTypeStr);
+        /**
+         * From the vote types returned by a delete
+         */
+        static VoteDelta removed(List<String> deletedTypes) {
+            if (deletedTypes.isEmpty()) {
+                return NONE;
+            }
+            return "UPVOTE".equals(deletedTypes.get(0)) ? new VoteDelta(-1, 0, false) : new VoteDelta(0, -1, false);
+        }
         
-        if (existingVote.isPresent()) {
-            // Update existing vote
-            ReplyVote vote = existingVote.get();
-            if (vote.getVoteType() != voteType) {
-                // Switch vote type
-                if (vote.getVoteType() == ReplyVote.VoteType.UPVOTE) {
-                    int upCount = reply.getUpvoteCount() != null ? reply.getUpvoteCount() : 0;
-                    int downCount = reply.getDownvoteCount() != null ? reply.getDownvoteCount() : 0;
-                    reply.setUpvoteCount(Math.max(0, upCount - 1));
-                    reply.setDownvoteCount(downCount + 1);
-                } else {
-                    int upCount = reply.getUpvoteCount() != null ? reply.getUpvoteCount() : 0;
-                    int downCount = reply.getDownvoteCount() != null ? reply.getDownvoteCount() : 0;
-                    reply.setDownvoteCount(Math.max(0, downCount - 1));
-                    reply.setUpvoteCount(upCount + 1);
-                }
-                vote.setVoteType(voteType);
-                replyVoteRepository.save(vote);
-                System.out.println("Switched reply vote type to: " + voteType);
+        /**
+         * From the result of an upsert: no row when unchanged, true when inserted,
+         * false when switched from the other type
+         */
+        static VoteDelta upserted(String voteType, List<Boolean> result) {
+            if (result.isEmpty()) {
+                return NONE;
             }
-        } else {
-            // Create new vote
-            ReplyVote vote = ReplyVote.builder()
-                .reply(reply)
-                .user(user)
-                .voteType(voteType)
-                .build();
-            ReplyVote savedVote = replyVoteRepository.save(vote);
-            System.out.println("Created new reply vote: ID=" + savedVote.getId() + ", User=" + userId + ", Reply=" + replyId + ", Type=" + voteType);
-            
-            if (voteType == ReplyVote.VoteType.UPVOTE) {
-                int currentCount = reply.getUpvoteCount() != null ? reply.getUpvoteCount() : 0;
-                reply.setUpvoteCount(currentCount + 1);
-                System.out.println("Incremented reply upvote count to: " + reply.getUpvoteCount());
-                // Notify reply author about upvote (but not if they upvoted themselves)
-                if (!reply.getAuthor().getId().equals(userId)) {
-                    notificationService.createNotification(
-                        reply.getAuthor().getId(),
-                        Notification.NotificationType.UPVOTE,
-                        user.getFullName() + " đã upvote câu trả lời của bạn",
-                        replyId,
-                        "REPLY"
-                    );
-                }
-            } else {
-                int currentCount = reply.getDownvoteCount() != null ? reply.getDownvoteCount() : 0;
-                reply.setDownvoteCount(currentCount + 1);
-                System.out.println("Incremented reply downvote count to: " + reply.getDownvoteCount());
+            boolean upvote = "UPVOTE".equals(voteType);
+            if (Boolean.TRUE.equals(result.get(0))) {
+                return upvote ? new VoteDelta(1, 0, true) : new VoteDelta(0, 1, false);
             }
+            return upvote ? new VoteDelta(1, -1, false) : new VoteDelta(-1, 1, false);
         }
-        
-        PostReply savedReply = replyRepository.save(reply);
-        System.out.println("Saved reply with upvote=" + savedReply.getUpvoteCount() + ", downvote=" + savedReply.getDownvoteCount());
-        return getReplyVoteStats(replyId, userId);
     }
     
     public VoteDto getPostVoteStats(Long postId, Long userId) {
+        VoteCounterAggregator.Delta pending = voteCounterAggregator.pendingForPost(postId);
         Post post = forumRepository.findById(postId)
             .orElseThrow(() -> new RuntimeException("Post not found"));
         
@@ -202,14 +192,12 @@ public class VotingService {
             }
         }
         
-        return VoteDto.builder()
-            .upvoteCount(post.getUpvoteCount())
-            .downvoteCount(post.getDownvoteCount())
-            .userVote(userVote)
-            .build();
+        return toVoteDto(post.getUpvoteCount(), post.getDownvoteCount(),
+            pending.getUpvotes(), pending.getDownvotes(), userVote);
     }
     
     public VoteDto getReplyVoteStats(Long replyId, Long userId) {
+        VoteCounterAggregator.Delta pending = voteCounterAggregator.pendingForReply(replyId);
         PostReply reply = replyRepository.findById(replyId)
             .orElseThrow(() -> new RuntimeException("Reply not found"));
         
@@ -221,11 +209,43 @@ public class VotingService {
             }
         }
         
-        return VoteDto.builder()
-            .upvoteCount(reply.getUpvoteCount())
-            .downvoteCount(reply.getDownvoteCount())
-            .userVote(userVote)
+        return toVoteDto(reply.getUpvoteCount(), reply.getDownvoteCount(),
+            pending.getUpvotes(), pending.getDownvotes(), userVote);
+    }
+    
+    /**
+     * Vote counts and the user's own vote for many posts and replies at once, as a
+     * feed page needs them: one query per target type instead of two per item.
+     * Ids that do not exist are left out of the result.
+     */
+    public BatchVoteDto getVoteStates(Collection<Long> postIds, Collection<Long> replyIds, Long userId) {
+        return BatchVoteDto.builder()
+            .posts(toVoteStates(postIds, ids -> forumRepository.findVoteStates(ids, userId),
+                voteCounterAggregator::pendingForPost))
+            .replies(toVoteStates(replyIds, ids -> replyRepository.findVoteStates(ids, userId),
+                voteCounterAggregator::pendingForReply))
             .build();
     }
+    
+    private Map<Long, VoteDto> toVoteStates(Collection<Long> ids,
+                                            Function<Collection<Long>, List<Object[]>> query,
+                                            Function<Long, VoteCounterAggregator.Delta> pendingLookup) {
+        Map<Long, VoteDto> states = new LinkedHashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return states;
+        }
+        // Pending before the rows, as in votePost
+        Map<Long, VoteCounterAggregator.Delta> pendingById = new HashMap<>();
+        for (Long id : ids) {
+            pendingById.put(id, pendingLookup.apply(id));
+        }
+        for (Object[] row : query.apply(new LinkedHashSet<>(ids))) {
+            Long id = (Long) row[0];
+            VoteCounterAggregator.Delta pending = pendingById.get(id);
+            states.put(id, toVoteDto((Integer) row[1], (Integer) row[2],
+                pending.getUpvotes(), pending.getDownvotes(),
+                row[3] != null ? ((Enum<?>) row[3]).name() : null));
+        }
+        return states;
+    }
 }
-
@@ -8,6 +8,7 @@ import com.example.legal_connect.mapper.ConversationMapper;
 import com.example.legal_connect.repository.ConversationRepository;
 import com.example.legal_connect.service.ConversationService;
 import com.example.legal_connect.service.MessageService;
+import com.example.legal_connect.service.PdfService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -23,6 +24,7 @@ public class ConversationServiceImpl implements ConversationService {
 
     private final ConversationRepository conversationRepository;
     private final MessageService messageService;
+    private final PdfService pdfService;
     private final ConversationMapper conversationMapper;
 
     @Override
@@ -106,6 +108,11 @@ public class ConversationServiceImpl implements ConversationService {
         Conversation conversation = conversationRepository.findByIdAndUserId(conversationId, userId)
                 .orElseThrow(() -> new RuntimeException("Conversation not found or access denied"));
         
+        // Release the PDF first so a file shared with other documents is kept
+        if (conversation.getType() == ConversationType.PDF_QA) {
+            pdfService.deletePdfFile(conversationId);
+        }
+        
         conversationRepository.delete(conversation);
     }
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.example.legal_connect.service.impl;
+
+import com.example.legal_connect.service.TextEmbedder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Local embedder without a model: words and pairs of adjacent words are hashed into
+ * app.retrieval.dimension buckets with a random sign (feature hashing), and the
+ * vector is scaled to unit length. Texts sharing words score high, synonyms do not.
+ * Deterministic across runs and machines, for development and tests.
+ */
+@Component
+@ConditionalOnProperty(name = "app.retrieval.embedder", havingValue = "hashing", matchIfMissing = true)
+public class HashingTextEmbedder implements TextEmbedder {
+
+    // Letters keep their Vietnamese diacritics
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final float PAIR_WEIGHT = 0.5f;
+
+    private final int dimension;
+
+    public HashingTextEmbedder(@Value("${app.retrieval.dimension}") int dimension) {
+        this.dimension = dimension;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[dimension];
+        String previous = null;
+        for (String word : SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            add(vector, word.hashCode(), 1f);
+            if (previous != null) {
+                add(vector, previous.hashCode() * 31 + word.hashCode(), PAIR_WEIGHT);
+            }
+            previous = word;
+        }
+
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < dimension; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    private void add(float[] vector, int hash, float weight) {
+        long mixed = mix(hash);
+        int bucket = (int) Long.remainderUnsigned(mixed, dimension);
+        vector[bucket] += (mixed >>> 63) == 0 ? weight : -weight;
+    }
+
+    // SplitMix64 finalizer, spreads String.hashCode over all bits
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
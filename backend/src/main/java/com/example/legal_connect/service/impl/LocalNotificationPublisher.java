@@ -0,0 +1,109 @@
+package com.example.legal_connect.service.impl;
+
+import com.example.legal_connect.dto.forum.NotificationEvent;
+import com.example.legal_connect.service.NotificationBatchDelivery;
+import com.example.legal_connect.service.NotificationPublisher;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-JVM stand-in for the RabbitMQ broker, used by tests and single-node setups
+ * without RabbitMQ. Same batching, retry and dead-letter behavior (see
+ * {@link NotificationBatchDelivery}), but events live in memory and are lost on
+ * shutdown.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.notification.broker", havingValue = "local")
+public class LocalNotificationPublisher implements NotificationPublisher {
+
+    private final NotificationBatchDelivery batchDelivery;
+    private final int batchSize;
+    private final long batchTimeoutMs;
+
+    private final BlockingQueue<NotificationEvent> queue = new LinkedBlockingQueue<>();
+    private final List<NotificationEvent> deadLetters = new CopyOnWriteArrayList<>();
+
+    private Thread worker;
+
+    public LocalNotificationPublisher(NotificationBatchDelivery batchDelivery,
+                                      @Value("${app.notification.batch-size}") int batchSize,
+                                      @Value("${app.notification.batch-timeout-ms}") long batchTimeoutMs) {
+        this.batchDelivery = batchDelivery;
+        this.batchSize = batchSize;
+        this.batchTimeoutMs = batchTimeoutMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        worker = Thread.ofPlatform().daemon().name("notification-local-broker").start(this::run);
+    }
+
+    @PreDestroy
+    public void stop() {
+        worker.interrupt();
+    }
+
+    @Override
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void publish(NotificationEvent event) {
+        queue.offer(event);
+    }
+
+    /**
+     * Deliver everything queued so far on the calling thread
+     */
+    public void flush() {
+        List<NotificationEvent> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            deliver(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Events that could not be written, even on their own
+     */
+    public List<NotificationEvent> getDeadLetters() {
+        return List.copyOf(deadLetters);
+    }
+
+    private void run() {
+        List<NotificationEvent> batch = new ArrayList<>(batchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                NotificationEvent first = queue.poll(batchTimeoutMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                deliver(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void deliver(List<NotificationEvent> batch) {
+        List<NotificationEvent> failed = batchDelivery.deliver(batch);
+        if (!failed.isEmpty()) {
+            log.error("Dead-lettering {} of {} notifications", failed.size(), batch.size());
+            deadLetters.addAll(failed);
+        }
+    }
+}
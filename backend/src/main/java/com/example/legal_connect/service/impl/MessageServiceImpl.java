@@ -1,5 +1,6 @@
 package com.example.legal_connect.service.impl;
 
+import com.example.legal_connect.dto.common.MessageHistoryPageDto;
 import com.example.legal_connect.dto.conversation.MessageDto;
 import com.example.legal_connect.dto.conversation.SendMessageRequest;
 import com.example.legal_connect.entity.Conversation;
@@ -11,9 +12,14 @@ import com.example.legal_connect.repository.MessageRepository;
 import com.example.legal_connect.service.MessageService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @Service
@@ -26,6 +32,12 @@ public class MessageServiceImpl implements MessageService {
     private final ConversationRepository conversationRepository;
     private final ConversationMapper conversationMapper;
 
+    @Value("${app.messaging.history-page-size}")
+    private int historyPageSize;
+
+    @Value("${app.messaging.history-max-page-size}")
+    private int historyMaxPageSize;
+
     @Override
     public MessageDto sendMessage(SendMessageRequest request, Long userId) {
         log.info("Sending message for conversation: {} by user: {}, role: {}", 
@@ -47,15 +59,36 @@ public class MessageServiceImpl implements MessageService {
 
     @Override
     @Transactional(readOnly = true)
-    public List<MessageDto> getConversationMessages(Long conversationId, Long userId) {
+    public MessageHistoryPageDto<MessageDto> getConversationMessages(Long conversationId, Long userId, Long before, Long after, Integer size) {
         log.info("Getting messages for conversation: {} by user: {}", conversationId, userId);
         
         // Verify user has access to the conversation
         conversationRepository.findByIdAndUserId(conversationId, userId)
                 .orElseThrow(() -> new RuntimeException("Conversation not found or access denied"));
         
-        List<Message> messages = messageRepository.findByConversationIdOrderByCreatedAtAsc(conversationId);
-        return conversationMapper.toMessageDtoList(messages);
+        int pageSize = size == null || size <= 0 ? historyPageSize : Math.min(size, historyMaxPageSize);
+        // One extra row tells whether there is a page beyond this one
+        Pageable page = PageRequest.of(0, pageSize + 1);
+        List<Message> messages;
+        if (after != null) {
+            messages = new ArrayList<>(messageRepository.findByConversationIdAndIdGreaterThanOrderByIdAsc(conversationId, after, page));
+        } else {
+            messages = new ArrayList<>(messageRepository.findByConversationIdAndIdLessThanOrderByIdDesc(
+                    conversationId, before != null ? before : Long.MAX_VALUE, page));
+        }
+        boolean more = messages.size() > pageSize;
+        if (more) {
+            messages.remove(pageSize);
+        }
+        if (after == null) {
+            Collections.reverse(messages);
+        }
+        
+        return MessageHistoryPageDto.<MessageDto>builder()
+                .messages(conversationMapper.toMessageDtoList(messages))
+                .nextBefore(after == null && more ? messages.get(0).getId() : null)
+                .nextAfter(after != null && more ? messages.get(messages.size() - 1).getId() : null)
+                .build();
     }
 
     @Override
@@ -1,10 +1,13 @@
 package com.example.legal_connect.service.impl;
 
+import com.example.legal_connect.dto.chat.OnlineUsersDelta;
 import com.example.legal_connect.dto.chat.OnlineUsersResponse;
 import com.example.legal_connect.dto.chat.UserOnlineStatus;
 import com.example.legal_connect.service.OnlineUserService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -12,11 +15,33 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
+/**
+ * In-memory presence registry.
+ *
+ * A user may be connected through several sessions (tabs, devices). Sessions are
+ * indexed by id so a disconnect is a map lookup, and each user's set of open
+ * sessions is only changed inside {@code userSessions.compute}, which makes the
+ * first-session join and last-session leave decisions atomic. The user goes offline
+ * when the last session closes.
+ *
+ * Presence changes are not broadcast one by one: they are collected per user (the
+ * latest change wins) and sent to /topic/online-users as a joined/left delta with a
+ * sequence number every app.presence.broadcast-interval-ms. Full snapshots are only
+ * sent on request, so a reconnect storm costs one small message per interval instead
+ * of a full list per connection.
+ *
+ * This registry only sees the sockets of its own node; use app.presence.store=redis
+ * when running more than one instance.
+ */
 @Slf4j
 @Service
+@ConditionalOnProperty(name = "app.presence.store", havingValue = "local", matchIfMissing = true)
 public class OnlineUserServiceImpl implements OnlineUserService {
 
     private final Map<String, UserOnlineStatus> onlineUsers = new ConcurrentHashMap<>();
+    private final Map<String, String> sessionUsers = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> userSessions = new ConcurrentHashMap<>();
+    private final PresenceChangeBuffer presenceChanges = new PresenceChangeBuffer();
     private final SimpMessagingTemplate messagingTemplate;
 
     public OnlineUserServiceImpl(SimpMessagingTemplate messagingTemplate) {
@@ -35,31 +60,81 @@ public class OnlineUserServiceImpl implements OnlineUserService {
                 .sessionId(sessionId)
                 .build();
 
-        onlineUsers.put(userId, userStatus);
+        String previousUserId = sessionUsers.put(sessionId, userId);
+        if (previousUserId != null && !previousUserId.equals(userId)) {
+            detachSession(previousUserId, sessionId);
+        }
+
+        boolean[] joined = new boolean[1];
+        userSessions.compute(userId, (id, sessions) -> {
+            if (sessions == null) {
+                sessions = new HashSet<>();
+            }
+            joined[0] = sessions.isEmpty();
+            sessions.add(sessionId);
+            onlineUsers.put(userId, userStatus);
+            if (joined[0]) {
+                presenceChanges.joined(userStatus);
+            }
+            return sessions;
+        });
+
         log.info("User {} ({}) joined - Session: {}", userName, userType, sessionId);
-        broadcastOnlineUsers();
     }
 
     @Override
     public void removeUser(String userId) {
-        UserOnlineStatus removedUser = onlineUsers.remove(userId);
+        UserOnlineStatus[] removed = new UserOnlineStatus[1];
+        userSessions.compute(userId, (id, sessions) -> {
+            if (sessions != null) {
+                sessions.forEach(sessionId -> sessionUsers.remove(sessionId, userId));
+            }
+            removed[0] = onlineUsers.remove(userId);
+            if (removed[0] != null) {
+                presenceChanges.left(userId);
+            }
+            return null;
+        });
+
+        UserOnlineStatus removedUser = removed[0];
         if (removedUser != null) {
             log.info("User {} ({}) left - Session: {}", 
                     removedUser.getUserName(), removedUser.getUserType(), removedUser.getSessionId());
-            broadcastOnlineUsers();
         }
     }
 
     @Override
     public void removeUserBySessionId(String sessionId) {
-        Optional<Map.Entry<String, UserOnlineStatus>> userEntry = onlineUsers.entrySet().stream()
-                .filter(entry -> sessionId.equals(entry.getValue().getSessionId()))
-                .findFirst();
+        String userId = sessionUsers.remove(sessionId);
+        if (userId != null) {
+            detachSession(userId, sessionId);
+        }
+    }
 
-        if (userEntry.isPresent()) {
-            String userId = userEntry.get().getKey();
-            removeUser(userId);
+    /**
+     * Drop one session of the user; the user goes offline if it was the last one
+     */
+    private void detachSession(String userId, String sessionId) {
+        UserOnlineStatus[] left = new UserOnlineStatus[1];
+        userSessions.computeIfPresent(userId, (id, sessions) -> {
+            sessions.remove(sessionId);
+            if (sessions.isEmpty()) {
+                left[0] = onlineUsers.remove(userId);
+                presenceChanges.left(userId);
+                return null;
+            }
+            UserOnlineStatus status = onlineUsers.get(userId);
+            if (status != null && sessionId.equals(status.getSessionId())) {
+                status.setSessionId(sessions.iterator().next());
+            }
+            return sessions;
+        });
+
+        if (left[0] == null) {
+            log.debug("Session {} of user {} closed, other sessions still open", sessionId, userId);
+            return;
         }
+        log.info("User {} ({}) left - Session: {}", left[0].getUserName(), left[0].getUserType(), sessionId);
     }
 
     @Override
@@ -72,18 +147,22 @@ public class OnlineUserServiceImpl implements OnlineUserService {
 
     @Override
     public OnlineUsersResponse getOnlineUsers() {
-        List<UserOnlineStatus> users = onlineUsers.values().stream()
-                .filter(user -> "USER".equals(user.getUserType()))
-                .collect(Collectors.toList());
-
-        List<UserOnlineStatus> lawyers = onlineUsers.values().stream()
-                .filter(user -> "LAWYER".equals(user.getUserType()))
-                .collect(Collectors.toList());
+        long snapshotSequence = presenceChanges.currentSequence();
+        List<UserOnlineStatus> users = new ArrayList<>();
+        List<UserOnlineStatus> lawyers = new ArrayList<>();
+        for (UserOnlineStatus user : onlineUsers.values()) {
+            if ("USER".equals(user.getUserType())) {
+                users.add(user);
+            } else if ("LAWYER".equals(user.getUserType())) {
+                lawyers.add(user);
+            }
+        }
 
         return OnlineUsersResponse.builder()
                 .users(users)
                 .lawyers(lawyers)
                 .totalOnline(onlineUsers.size())
+                .sequence(snapshotSequence)
                 .build();
     }
 
@@ -109,8 +188,16 @@ public class OnlineUserServiceImpl implements OnlineUserService {
                 .collect(Collectors.toList());
     }
 
-    private void broadcastOnlineUsers() {
-        OnlineUsersResponse response = getOnlineUsers();
-        messagingTemplate.convertAndSend("/topic/online-users", response);
+    /**
+     * Send the presence changes collected since the last run as one delta
+     */
+    @Scheduled(fixedDelayString = "${app.presence.broadcast-interval-ms}")
+    public void broadcastPresenceChanges() {
+        OnlineUsersDelta delta = presenceChanges.drain(onlineUsers.size());
+        if (delta != null) {
+            messagingTemplate.convertAndSend("/topic/online-users", delta);
+            log.debug("Presence delta {}: {} joined, {} left",
+                    delta.getSequence(), delta.getJoined().size(), delta.getLeft().size());
+        }
     }
-}
\ No newline at end of file
+}
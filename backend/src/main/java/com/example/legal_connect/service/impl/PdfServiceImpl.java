@@ -7,21 +7,32 @@ import com.example.legal_connect.entity.Conversation;
 import com.example.legal_connect.entity.PdfDocument;
 import com.example.legal_connect.mapper.ConversationMapper;
 import com.example.legal_connect.repository.ConversationRepository;
+import com.example.legal_connect.repository.PdfBlobRepository;
+import com.example.legal_connect.repository.PdfChunkRepository;
 import com.example.legal_connect.repository.PdfDocumentRepository;
+import com.example.legal_connect.service.PdfExtractionService;
 import com.example.legal_connect.service.PdfService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.util.UUID;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 @RequiredArgsConstructor
@@ -31,6 +42,9 @@ public class PdfServiceImpl implements PdfService {
 
     private final ConversationRepository conversationRepository;
     private final PdfDocumentRepository pdfDocumentRepository;
+    private final PdfBlobRepository pdfBlobRepository;
+    private final PdfChunkRepository pdfChunkRepository;
+    private final PdfExtractionService pdfExtractionService;
     private final ConversationMapper conversationMapper;
 
     @Value("${app.pdf.upload-dir}")
@@ -59,21 +73,26 @@ public class PdfServiceImpl implements PdfService {
             
             conversation = conversationRepository.save(conversation);
 
-            // Save file to storage
-            String fileName = generateUniqueFileName(file.getOriginalFilename());
-            Path filePath = saveFileToStorage(file, fileName);
+            // Save file to storage, once per distinct content
+            StoredFile stored = saveFileToStorage(file);
+            String contentHash = stored.contentHash();
+            Path filePath = stored.path();
 
             // Save PDF document info to database
             PdfDocument pdfDocument = PdfDocument.builder()
                     .conversationId(conversation.getId())
                     .originalFileName(file.getOriginalFilename())
                     .filePath(filePath.toString())
+                    .contentHash(contentHash)
                     .fileSize(file.getSize())
                     .contentType(file.getContentType())
                     .build();
 
             pdfDocument = pdfDocumentRepository.save(pdfDocument);
 
+            // Extract the text in the background; the status endpoint reports progress
+            pdfExtractionService.enqueueAfterCommit(pdfDocument.getId());
+
             // Convert to DTOs
             ConversationDto conversationDto = conversationMapper.toDto(conversation);
             PdfDocumentDto pdfDocumentDto = conversationMapper.toPdfDocumentDto(pdfDocument);
@@ -82,14 +101,17 @@ public class PdfServiceImpl implements PdfService {
 
         } catch (Exception e) {
             log.error("Error uploading PDF file", e);
+            // Undo the conversation and the blob reference; a file written for a new
+            // blob is removed when the transaction rolls back
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return PdfUploadResponse.error("Error uploading file: " + e.getMessage());
         }
     }
 
     @Override
     @Transactional(readOnly = true)
-    public byte[] getPdfContent(Long conversationId, Long userId) {
-        log.info("Getting PDF content for conversation: {} by user: {}", conversationId, userId);
+    public PdfFile getPdfFile(Long conversationId, Long userId) {
+        log.info("Getting PDF file for conversation: {} by user: {}", conversationId, userId);
         
         // Verify user has access to the conversation
         conversationRepository.findByIdAndUserId(conversationId, userId)
@@ -100,26 +122,46 @@ public class PdfServiceImpl implements PdfService {
 
         try {
             Path filePath = Paths.get(pdfDocument.getFilePath());
-            return Files.readAllBytes(filePath);
+            return new PdfFile(filePath, Files.size(filePath), Files.getLastModifiedTime(filePath).toInstant(),
+                    pdfDocument.getOriginalFileName(), pdfDocument.getContentHash());
         } catch (IOException e) {
             log.error("Error reading PDF file", e);
             throw new RuntimeException("Error reading PDF file", e);
         }
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public PdfDocumentDto getPdfDocument(Long conversationId, Long userId) {
+        conversationRepository.findByIdAndUserId(conversationId, userId)
+                .orElseThrow(() -> new RuntimeException("Conversation not found or access denied"));
+
+        return pdfDocumentRepository.findByConversationId(conversationId)
+                .map(conversationMapper::toPdfDocumentDto)
+                .orElseThrow(() -> new RuntimeException("PDF document not found"));
+    }
+
     @Override
     public void deletePdfFile(Long conversationId) {
         log.info("Deleting PDF file for conversation: {}", conversationId);
         
         pdfDocumentRepository.findByConversationId(conversationId)
                 .ifPresent(pdfDocument -> {
-                    try {
-                        Path filePath = Paths.get(pdfDocument.getFilePath());
-                        Files.deleteIfExists(filePath);
-                        pdfDocumentRepository.deleteByConversationId(conversationId);
-                    } catch (IOException e) {
-                        log.error("Error deleting PDF file", e);
+                    pdfChunkRepository.deleteByPdfDocumentId(pdfDocument.getId());
+                    pdfDocumentRepository.delete(pdfDocument);
+                    String contentHash = pdfDocument.getContentHash();
+                    if (contentHash != null) {
+                        Integer remaining = pdfBlobRepository.release(contentHash);
+                        // Other documents still use the file
+                        if (remaining != null && remaining > 0) {
+                            return;
+                        }
+                        pdfBlobRepository.deleteIfUnreferenced(contentHash);
                     }
+                    // Once the delete has committed; a later upload of the same content
+                    // stores it under a new path, so this never removes its file
+                    Path filePath = Paths.get(pdfDocument.getFilePath());
+                    onCompletion(true, () -> deleteFile(filePath));
                 });
     }
 
@@ -152,25 +194,76 @@ public class PdfServiceImpl implements PdfService {
         return true;
     }
 
-    private String generateUniqueFileName(String originalFilename) {
-        String extension = "";
-        if (originalFilename != null && originalFilename.contains(".")) {
-            extension = originalFilename.substring(originalFilename.lastIndexOf("."));
+    private record StoredFile(String contentHash, Path path) {
+    }
+
+    /**
+     * Copy the upload to a temporary file while hashing it, then store it under
+     * blobs/ab/abcd...-xxxxxxxx.pdf unless the content is already stored, in which
+     * case only a reference is added. Each new blob gets a fresh path, so deleting
+     * the file of a released blob cannot race with storing the same content again.
+     */
+    private StoredFile saveFileToStorage(MultipartFile file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        Path blobDir = Paths.get(uploadDir, "blobs");
+        Files.createDirectories(blobDir);
+        Path tempPath = Files.createTempFile(blobDir, "upload-", ".tmp");
+        try {
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(in, tempPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String contentHash = HexFormat.of().formatHex(digest.digest());
+
+            Path filePath = blobDir.resolve(contentHash.substring(0, 2))
+                    .resolve(contentHash + "-" + HexFormat.of().toHexDigits(ThreadLocalRandom.current().nextInt()) + ".pdf");
+            String storedPath = pdfBlobRepository.acquire(contentHash, filePath.toString(), file.getSize());
+            if (!storedPath.equals(filePath.toString())) {
+                log.info("PDF content {} is already stored, adding a reference", contentHash);
+                return new StoredFile(contentHash, Paths.get(storedPath));
+            }
+
+            Files.createDirectories(filePath.getParent());
+            Files.move(tempPath, filePath, StandardCopyOption.ATOMIC_MOVE);
+            // The blob row goes away if the upload rolls back, and nothing else knows this path
+            onCompletion(false, () -> deleteFile(filePath));
+            return new StoredFile(contentHash, filePath);
+        } finally {
+            Files.deleteIfExists(tempPath);
         }
-        return UUID.randomUUID().toString() + extension;
     }
 
-    private Path saveFileToStorage(MultipartFile file, String fileName) throws IOException {
-        // Create upload directory if it doesn't exist
-        Path uploadPath = Paths.get(uploadDir);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+    /**
+     * Run the action once the current transaction has committed (committed true) or
+     * rolled back (committed false); right away for a commit outside a transaction
+     */
+    private void onCompletion(boolean committed, Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (committed) {
+                action.run();
+            }
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                // Nothing on STATUS_UNKNOWN: the file may be in use after all
+                if (status == (committed ? STATUS_COMMITTED : STATUS_ROLLED_BACK)) {
+                    action.run();
+                }
+            }
+        });
+    }
 
-        // Save file
-        Path filePath = uploadPath.resolve(fileName);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-        
-        return filePath;
+    private void deleteFile(Path filePath) {
+        try {
+            Files.deleteIfExists(filePath);
+        } catch (IOException e) {
+            log.error("Error deleting PDF file {}", filePath, e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,76 @@
+package com.example.legal_connect.service.impl;
+
+import com.example.legal_connect.dto.chat.OnlineUsersDelta;
+import com.example.legal_connect.dto.chat.UserOnlineStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Presence changes waiting for the next broadcast. Only the latest change per user
+ * is kept, so a user who leaves and rejoins within one window shows up once.
+ */
+class PresenceChangeBuffer {
+
+    private final Map<String, PresenceChange> pendingChanges = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    void joined(UserOnlineStatus status) {
+        pendingChanges.put(status.getUserId(), new PresenceChange(status));
+    }
+
+    void left(String userId) {
+        pendingChanges.put(userId, PresenceChange.LEFT);
+    }
+
+    /**
+     * Sequence of the latest delta handed out by {@link #drain}
+     */
+    long currentSequence() {
+        return sequence.get();
+    }
+
+    /**
+     * Take the pending changes as the next delta, or null when there are none
+     */
+    OnlineUsersDelta drain(int totalOnline) {
+        if (pendingChanges.isEmpty()) {
+            return null;
+        }
+
+        List<UserOnlineStatus> joined = new ArrayList<>();
+        List<String> left = new ArrayList<>();
+        for (String userId : pendingChanges.keySet()) {
+            PresenceChange change = pendingChanges.remove(userId);
+            if (change == null) {
+                continue;
+            }
+            if (change.status() != null) {
+                joined.add(change.status());
+            } else {
+                left.add(userId);
+            }
+        }
+        if (joined.isEmpty() && left.isEmpty()) {
+            return null;
+        }
+
+        return OnlineUsersDelta.builder()
+                .sequence(sequence.incrementAndGet())
+                .joined(joined)
+                .left(left)
+                .totalOnline(totalOnline)
+                .build();
+    }
+
+    /**
+     * Latest presence change of a user within the broadcast window; a null status
+     * means the user left
+     */
+    private record PresenceChange(UserOnlineStatus status) {
+        static final PresenceChange LEFT = new PresenceChange(null);
+    }
+}
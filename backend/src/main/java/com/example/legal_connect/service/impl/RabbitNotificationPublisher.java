@@ -0,0 +1,50 @@
+package com.example.legal_connect.service.impl;
+
+import com.example.legal_connect.config.NotificationQueueConfig;
+import com.example.legal_connect.dto.forum.NotificationEvent;
+import com.example.legal_connect.service.NotificationBatchDelivery;
+import com.example.legal_connect.service.NotificationPublisher;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.notification.broker", havingValue = "rabbit", matchIfMissing = true)
+public class RabbitNotificationPublisher implements NotificationPublisher {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final NotificationBatchDelivery batchDelivery;
+
+    @Override
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void publish(NotificationEvent event) {
+        try {
+            rabbitTemplate.convertAndSend(NotificationQueueConfig.EXCHANGE, NotificationQueueConfig.ROUTING_KEY, event);
+        } catch (Exception e) {
+            // The triggering action already committed; losing a notification must not fail it
+            log.error("Failed to publish notification for user {}: {}", event.getUserId(), e.getMessage());
+        }
+    }
+
+    @RabbitListener(queues = NotificationQueueConfig.QUEUE, containerFactory = "notificationBatchContainerFactory")
+    public void consume(List<NotificationEvent> events) {
+        log.debug("Writing batch of {} notifications", events.size());
+        List<NotificationEvent> failed = batchDelivery.deliver(events);
+        if (!failed.isEmpty()) {
+            log.error("Dead-lettering {} of {} notifications", failed.size(), events.size());
+            for (NotificationEvent event : failed) {
+                rabbitTemplate.convertAndSend(NotificationQueueConfig.DEAD_LETTER_EXCHANGE,
+                        NotificationQueueConfig.DEAD_LETTER_QUEUE, event);
+            }
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package com.example.legal_connect.service.impl;
+
+import com.example.legal_connect.dto.chat.OnlineUsersDelta;
+import com.example.legal_connect.dto.chat.OnlineUsersResponse;
+import com.example.legal_connect.dto.chat.UserOnlineStatus;
+import com.example.legal_connect.service.OnlineUserService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Presence registry shared by all nodes through Redis.
+ *
+ * Keys (all under "presence:"):
+ * - users: hash userId -> status JSON, one entry per online user
+ * - sessions: hash sessionId -> userId
+ * - user-sessions:{userId} / node-sessions:{nodeId}: sets of session ids
+ * - nodes: sorted set nodeId -> last heartbeat (epoch ms)
+ * - last-seen: sorted set userId -> last activity (epoch ms)
+ *
+ * Joins and leaves run as Lua scripts so the first-session / last-session decision
+ * is atomic across nodes, and publish the change on the presence:changes channel.
+ * Every node applies published changes to a local near-cache, which serves all reads
+ * (isUserOnline is a map lookup) and feeds the node's own delta broadcasts. Each node
+ * heartbeats into presence:nodes; sessions of a node whose heartbeat is older than
+ * app.presence.node-ttl-ms are closed by whichever node claims it first. A node
+ * closes the sessions left under its own id on startup, in case it restarted with
+ * a fixed app.presence.node-id before being declared dead.
+ *
+ * The per-user and per-node session sets expire after app.presence.session-key-ttl-ms
+ * without a join, heartbeat or activity, so keys of sessions nobody closed (e.g. the
+ * whole cluster stopped at once) do not pile up.
+ *
+ * The scripts build the per-user key from the user id, so this needs a single Redis
+ * instance (or keys hashed to one slot), not a Redis Cluster.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.presence.store", havingValue = "redis")
+public class RedisOnlineUserService implements OnlineUserService, MessageListener {
+
+    private static final String PREFIX = "presence:";
+    private static final String USERS_KEY = PREFIX + "users";
+    private static final String SESSIONS_KEY = PREFIX + "sessions";
+    private static final String USER_SESSIONS_PREFIX = PREFIX + "user-sessions:";
+    private static final String NODE_SESSIONS_PREFIX = PREFIX + "node-sessions:";
+    private static final String NODES_KEY = PREFIX + "nodes";
+    private static final String LAST_SEEN_KEY = PREFIX + "last-seen";
+    private static final String CHANNEL = PREFIX + "changes";
+
+    private static final char JOINED = 'J';
+    private static final char LEFT = 'L';
+
+    /**
+     * KEYS: sessions, user-sessions:{userId}, node-sessions:{nodeId}, users
+     * ARGV: sessionId, userId, status JSON, channel, session key TTL (ms). Returns 1 if
+     * the user came online.
+     */
+    private static final RedisScript<Long> JOIN = new DefaultRedisScript<>(
+        "redis.call('HSET', KEYS[1], ARGV[1], ARGV[2]) "
+            + "redis.call('SADD', KEYS[2], ARGV[1]) "
+            + "redis.call('SADD', KEYS[3], ARGV[1]) "
+            + "redis.call('PEXPIRE', KEYS[2], ARGV[5]) "
+            + "redis.call('PEXPIRE', KEYS[3], ARGV[5]) "
+            + "if redis.call('SCARD', KEYS[2]) == 1 or redis.call('HEXISTS', KEYS[4], ARGV[2]) == 0 then "
+            + "redis.call('HSET', KEYS[4], ARGV[2], ARGV[3]) "
+            + "redis.call('PUBLISH', ARGV[4], 'J' .. ARGV[3]) "
+            + "return 1 "
+            + "end "
+            + "return 0",
+        Long.class);
+
+    /**
+     * KEYS: sessions, node-sessions:{nodeId}, users
+     * ARGV: sessionId, user-sessions key prefix, channel. Returns the user id if the
+     * user went offline.
+     */
+    private static final RedisScript<String> LEAVE = new DefaultRedisScript<>(
+        "redis.call('SREM', KEYS[2], ARGV[1]) "
+            + "local userId = redis.call('HGET', KEYS[1], ARGV[1]) "
+            + "if not userId then return false end "
+            + "redis.call('HDEL', KEYS[1], ARGV[1]) "
+            + "local userKey = ARGV[2] .. userId "
+            + "redis.call('SREM', userKey, ARGV[1]) "
+            + "if redis.call('SCARD', userKey) == 0 and redis.call('HDEL', KEYS[3], userId) == 1 then "
+            + "redis.call('PUBLISH', ARGV[3], 'L' .. userId) "
+            + "return userId "
+            + "end "
+            + "return false",
+        String.class);
+
+    /**
+     * KEYS: sessions, user-sessions:{userId}, users
+     * ARGV: userId, channel. Closes all sessions of the user; returns 1 if they were online.
+     */
+    private static final RedisScript<Long> REMOVE_USER = new DefaultRedisScript<>(
+        "for _, sessionId in ipairs(redis.call('SMEMBERS', KEYS[2])) do "
+            + "redis.call('HDEL', KEYS[1], sessionId) "
+            + "end "
+            + "redis.call('DEL', KEYS[2]) "
+            + "if redis.call('HDEL', KEYS[3], ARGV[1]) == 1 then "
+            + "redis.call('PUBLISH', ARGV[2], 'L' .. ARGV[1]) "
+            + "return 1 "
+            + "end "
+            + "return 0",
+        Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, UserOnlineStatus> onlineUsers = new ConcurrentHashMap<>();
+    private final PresenceChangeBuffer presenceChanges = new PresenceChangeBuffer();
+    private final String nodeId;
+
+    @Value("${app.presence.node-ttl-ms}")
+    private long nodeTtlMs;
+
+    @Value("${app.presence.session-key-ttl-ms}")
+    private long sessionKeyTtlMs;
+
+    public RedisOnlineUserService(StringRedisTemplate redisTemplate,
+                                  RedisMessageListenerContainer presenceListenerContainer,
+                                  SimpMessagingTemplate messagingTemplate,
+                                  ObjectMapper objectMapper,
+                                  @Value("${app.presence.node-id:}") String nodeId) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = presenceListenerContainer;
+        this.messagingTemplate = messagingTemplate;
+        this.objectMapper = objectMapper;
+        this.nodeId = nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+    }
+
+    @PostConstruct
+    void start() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        try {
+            // Sessions from before a restart under the same node id; none of ours exist yet
+            int closed = closeNodeSessions(nodeId);
+            if (closed > 0) {
+                log.info("Closed {} presence sessions left by a previous run of node {}", closed, nodeId);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Failed to release stale presence sessions of node {}: {}", nodeId, e.getMessage());
+        }
+        heartbeat();
+        resyncNearCache();
+        log.info("Redis presence registry started on node {}", nodeId);
+    }
+
+    @PreDestroy
+    void stop() {
+        // Close this node's sessions now rather than waiting for the node TTL
+        try {
+            closeNodeSessions(nodeId);
+            redisTemplate.opsForZSet().remove(NODES_KEY, nodeId);
+        } catch (DataAccessException e) {
+            log.warn("Failed to release presence sessions of node {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void addUser(String userId, String userName, String userType, String sessionId, String avatar) {
+        UserOnlineStatus userStatus = UserOnlineStatus.builder()
+                .userId(userId)
+                .userName(userName)
+                .userType(userType)
+                .avatar(avatar)
+                .online(true)
+                .lastSeen(LocalDateTime.now())
+                .sessionId(sessionId)
+                .build();
+
+        onlineUsers.put(userId, userStatus);
+        try {
+            redisTemplate.execute(JOIN,
+                    List.of(SESSIONS_KEY, USER_SESSIONS_PREFIX + userId, NODE_SESSIONS_PREFIX + nodeId, USERS_KEY),
+                    sessionId, userId, toJson(userStatus), CHANNEL, String.valueOf(sessionKeyTtlMs));
+            redisTemplate.opsForZSet().add(LAST_SEEN_KEY, userId, System.currentTimeMillis());
+            log.info("User {} ({}) joined - Session: {}", userName, userType, sessionId);
+        } catch (DataAccessException e) {
+            log.warn("Failed to register presence of user {} - Session: {}: {}", userId, sessionId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void removeUser(String userId) {
+        try {
+            redisTemplate.execute(REMOVE_USER,
+                    List.of(SESSIONS_KEY, USER_SESSIONS_PREFIX + userId, USERS_KEY), userId, CHANNEL);
+        } catch (DataAccessException e) {
+            log.warn("Failed to remove presence of user {}: {}", userId, e.getMessage());
+        }
+        applyLeft(userId);
+    }
+
+    @Override
+    public void removeUserBySessionId(String sessionId) {
+        try {
+            String userId = leave(nodeId, sessionId);
+            if (userId != null) {
+                log.info("User {} left - Session: {}", userId, sessionId);
+                applyLeft(userId);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Failed to unregister presence session {}: {}", sessionId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void updateLastSeen(String userId) {
+        UserOnlineStatus user = onlineUsers.get(userId);
+        if (user != null) {
+            user.setLastSeen(LocalDateTime.now());
+        }
+        try {
+            redisTemplate.opsForZSet().add(LAST_SEEN_KEY, userId, System.currentTimeMillis());
+            redisTemplate.expire(USER_SESSIONS_PREFIX + userId, Duration.ofMillis(sessionKeyTtlMs));
+        } catch (DataAccessException e) {
+            log.debug("Failed to update last seen of user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    @Override
+    public OnlineUsersResponse getOnlineUsers() {
+        long snapshotSequence = presenceChanges.currentSequence();
+        List<UserOnlineStatus> users = new ArrayList<>();
+        List<UserOnlineStatus> lawyers = new ArrayList<>();
+        for (UserOnlineStatus user : onlineUsers.values()) {
+            if ("USER".equals(user.getUserType())) {
+                users.add(user);
+            } else if ("LAWYER".equals(user.getUserType())) {
+                lawyers.add(user);
+            }
+        }
+
+        return OnlineUsersResponse.builder()
+                .users(users)
+                .lawyers(lawyers)
+                .totalOnline(onlineUsers.size())
+                .sequence(snapshotSequence)
+                .build();
+    }
+
+    @Override
+    public boolean isUserOnline(String userId) {
+        return onlineUsers.containsKey(userId);
+    }
+
+    @Override
+    public UserOnlineStatus getUserOnlineStatus(String userId) {
+        return onlineUsers.get(userId);
+    }
+
+    @Override
+    public int getTotalOnlineUsers() {
+        return onlineUsers.size();
+    }
+
+    @Override
+    public List<UserOnlineStatus> getOnlineUsersByType(String userType) {
+        List<UserOnlineStatus> result = new ArrayList<>();
+        for (UserOnlineStatus user : onlineUsers.values()) {
+            if (userType.equals(user.getUserType())) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Changes published by any node, including this one
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (body.isEmpty()) {
+            return;
+        }
+        String payload = body.substring(1);
+        if (body.charAt(0) == JOINED) {
+            UserOnlineStatus status = fromJson(payload);
+            if (status != null) {
+                onlineUsers.put(status.getUserId(), status);
+                presenceChanges.joined(status);
+            }
+        } else if (body.charAt(0) == LEFT) {
+            applyLeft(payload);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.presence.broadcast-interval-ms}")
+    public void broadcastPresenceChanges() {
+        OnlineUsersDelta delta = presenceChanges.drain(onlineUsers.size());
+        if (delta != null) {
+            messagingTemplate.convertAndSend("/topic/online-users", delta);
+            log.debug("Presence delta {}: {} joined, {} left",
+                    delta.getSequence(), delta.getJoined().size(), delta.getLeft().size());
+        }
+    }
+
+    /**
+     * Refresh this node's heartbeat and close the sessions of nodes that stopped
+     * sending theirs
+     */
+    @Scheduled(fixedDelayString = "${app.presence.heartbeat-interval-ms}")
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        try {
+            redisTemplate.opsForZSet().add(NODES_KEY, nodeId, now);
+            redisTemplate.expire(NODE_SESSIONS_PREFIX + nodeId, Duration.ofMillis(sessionKeyTtlMs));
+            Set<String> deadNodes = redisTemplate.opsForZSet().rangeByScore(NODES_KEY, 0, now - nodeTtlMs);
+            if (deadNodes == null) {
+                return;
+            }
+            for (String deadNode : deadNodes) {
+                // Only the node whose ZREM succeeds cleans up
+                Long claimed = redisTemplate.opsForZSet().remove(NODES_KEY, deadNode);
+                if (claimed != null && claimed > 0) {
+                    int closed = closeNodeSessions(deadNode);
+                    log.info("Closed {} presence sessions of dead node {}", closed, deadNode);
+                }
+            }
+        } catch (DataAccessException e) {
+            log.warn("Presence heartbeat failed on node {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    /**
+     * Reload the near-cache from Redis, repairing anything missed on the channel
+     * (e.g. while the subscription was reconnecting)
+     */
+    @Scheduled(fixedDelayString = "${app.presence.resync-interval-ms}", initialDelayString = "${app.presence.resync-interval-ms}")
+    public void resyncNearCache() {
+        Map<Object, Object> entries;
+        try {
+            entries = redisTemplate.opsForHash().entries(USERS_KEY);
+        } catch (DataAccessException e) {
+            log.warn("Failed to resync presence near-cache: {}", e.getMessage());
+            return;
+        }
+
+        Set<String> current = new HashSet<>();
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            String userId = (String) entry.getKey();
+            current.add(userId);
+            if (!onlineUsers.containsKey(userId)) {
+                UserOnlineStatus status = fromJson((String) entry.getValue());
+                if (status != null) {
+                    onlineUsers.put(userId, status);
+                    presenceChanges.joined(status);
+                }
+            }
+        }
+        for (String userId : onlineUsers.keySet()) {
+            if (!current.contains(userId)) {
+                applyLeft(userId);
+            }
+        }
+    }
+
+    private int closeNodeSessions(String node) {
+        String nodeKey = NODE_SESSIONS_PREFIX + node;
+        Set<String> sessions = redisTemplate.opsForSet().members(nodeKey);
+        int closed = 0;
+        if (sessions != null) {
+            for (String sessionId : sessions) {
+                String userId = leave(node, sessionId);
+                if (userId != null) {
+                    applyLeft(userId);
+                }
+                closed++;
+            }
+        }
+        redisTemplate.delete(nodeKey);
+        return closed;
+    }
+
+    private String leave(String node, String sessionId) {
+        return redisTemplate.execute(LEAVE,
+                List.of(SESSIONS_KEY, NODE_SESSIONS_PREFIX + node, USERS_KEY),
+                sessionId, USER_SESSIONS_PREFIX, CHANNEL);
+    }
+
+    private void applyLeft(String userId) {
+        if (onlineUsers.remove(userId) != null) {
+            presenceChanges.left(userId);
+        }
+    }
+
+    private String toJson(UserOnlineStatus status) {
+        try {
+            return objectMapper.writeValueAsString(status);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize presence of user " + status.getUserId(), e);
+        }
+    }
+
+    private UserOnlineStatus fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, UserOnlineStatus.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed presence entry: {}", e.getMessage());
+            return null;
+        }
+    }
+}
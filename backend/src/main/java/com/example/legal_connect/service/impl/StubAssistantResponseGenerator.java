@@ -0,0 +1,42 @@
+package com.example.legal_connect.service.impl;
+
+import com.example.legal_connect.service.AssistantResponseGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-in for a language model: answers with a fixed text that quotes the
+ * question, one word every app.assistant.stub.delay-ms. Deterministic, for
+ * development and for exercising the streaming endpoint without an external service.
+ */
+@Component
+@ConditionalOnProperty(name = "app.assistant.generator", havingValue = "stub", matchIfMissing = true)
+public class StubAssistantResponseGenerator implements AssistantResponseGenerator {
+
+    private static final Pattern WORD = Pattern.compile("\\S+\\s*");
+
+    @Value("${app.assistant.stub.delay-ms}")
+    private long delayMs;
+
+    @Override
+    public void generate(Long conversationId, String prompt, Consumer<String> onDelta) {
+        String answer = "Cảm ơn bạn đã hỏi: \"" + prompt.strip() + "\". "
+                + "Đây là câu trả lời mẫu do bộ sinh phản hồi cục bộ tạo ra để kiểm thử "
+                + "luồng phản hồi trực tuyến. Nội dung này không phải là tư vấn pháp lý.";
+        Matcher words = WORD.matcher(answer);
+        while (words.find()) {
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted before the answer was complete", e);
+            }
+            onDelta.accept(words.group());
+        }
+    }
+}
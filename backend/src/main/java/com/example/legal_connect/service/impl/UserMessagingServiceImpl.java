@@ -1,5 +1,6 @@
 package com.example.legal_connect.service.impl;
 
+import com.example.legal_connect.dto.common.MessageHistoryPageDto;
 import com.example.legal_connect.dto.messaging.*;
 import com.example.legal_connect.entity.User;
 import com.example.legal_connect.entity.UserConversation;
@@ -10,9 +11,16 @@ import com.example.legal_connect.repository.UserRepository;
 import com.example.legal_connect.service.UserMessagingService;
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -25,52 +33,120 @@ public class UserMessagingServiceImpl implements UserMessagingService {
     private final UserMessageRepository userMessageRepository;
     private final UserRepository userRepository;
     
+    @Value("${app.messaging.inbox-page-size}")
+    private int inboxPageSize;
+    
+    @Value("${app.messaging.inbox-max-page-size}")
+    private int inboxMaxPageSize;
+    
+    @Value("${app.messaging.history-page-size}")
+    private int historyPageSize;
+    
+    @Value("${app.messaging.history-max-page-size}")
+    private int historyMaxPageSize;
+    
+    @Value("${app.messaging.search-page-size}")
+    private int searchPageSize;
+    
+    @Value("${app.messaging.search-max-page-size}")
+    private int searchMaxPageSize;
+    
     @Override
     @Transactional(readOnly = true)
-    public List<UserConversationDto> getUserConversations(Long userId) {
-        List<UserConversation> conversations = userConversationRepository.findByUserIdOrderByLastMessageAtDesc(userId);
-        return conversations.stream()
-                .map(conversation -> mapToConversationDto(conversation, userId))
+    public UserConversationPageDto getUserConversations(Long userId, LocalDateTime before, Long beforeId, Integer size) {
+        int pageSize = size == null || size <= 0 ? inboxPageSize : Math.min(size, inboxMaxPageSize);
+        // One extra row tells whether there is a next page
+        List<Object[]> rows = before != null && beforeId != null
+                ? userConversationRepository.findInboxBefore(userId, before, beforeId, pageSize + 1)
+                : userConversationRepository.findInbox(userId, pageSize + 1);
+        List<UserConversationDto> conversations = rows.stream()
+                .limit(pageSize)
+                .map(this::mapInboxRow)
                 .collect(Collectors.toList());
+        
+        UserConversationDto last = rows.size() > pageSize ? conversations.get(conversations.size() - 1) : null;
+        return UserConversationPageDto.builder()
+                .conversations(conversations)
+                .nextBefore(last != null ? last.getLastMessageAt() : null)
+                .nextBeforeId(last != null ? last.getId() : null)
+                .build();
     }
     
     @Override
     @Transactional(readOnly = true)
-    public List<UserMessageDto> getConversationMessages(Long conversationId, Long userId) {
+    public MessageHistoryPageDto<UserMessageDto> getConversationMessages(Long conversationId, Long userId, Long before, Long after, Integer size) {
         // Verify user has access to this conversation
-        userConversationRepository.findByIdAndUserId(conversationId, userId)
+        UserConversation conversation = userConversationRepository.findByIdAndUserId(conversationId, userId)
                 .orElseThrow(() -> new RuntimeException("Conversation not found or access denied"));
         
-        List<UserMessage> messages = userMessageRepository.findByConversationIdOrderByCreatedAtAsc(conversationId);
-        return messages.stream()
-                .map(this::mapToMessageDto)
+        int pageSize = size == null || size <= 0 ? historyPageSize : Math.min(size, historyMaxPageSize);
+        // One extra row tells whether there is a page beyond this one
+        Pageable page = PageRequest.of(0, pageSize + 1);
+        List<UserMessage> messages;
+        if (after != null) {
+            messages = new ArrayList<>(userMessageRepository.findPageAfter(conversationId, after, page));
+        } else {
+            messages = new ArrayList<>(userMessageRepository.findPageBefore(
+                    conversationId, before != null ? before : Long.MAX_VALUE, page));
+        }
+        boolean more = messages.size() > pageSize;
+        if (more) {
+            messages.remove(pageSize);
+        }
+        if (after == null) {
+            Collections.reverse(messages);
+        }
+        
+        return MessageHistoryPageDto.<UserMessageDto>builder()
+                .messages(messages.stream()
+                        .map(message -> mapToMessageDto(message,
+                                conversation.lastReadIdOfRecipient(message.getSender().getId())))
+                        .collect(Collectors.toList()))
+                .nextBefore(after == null && more ? messages.get(0).getId() : null)
+                .nextAfter(after != null && more ? messages.get(messages.size() - 1).getId() : null)
+                .build();
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public MessageSearchResultDto searchMessages(Long userId, String query, Long before, Integer size) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query is required");
+        }
+        int pageSize = size == null || size <= 0 ? searchPageSize : Math.min(size, searchMaxPageSize);
+        // One extra row tells whether there is a next page
+        List<Object[]> rows = userMessageRepository.search(userId, query.trim(),
+                before != null ? before : Long.MAX_VALUE, pageSize + 1);
+        
+        List<MessageSearchResultDto.HitDto> hits = rows.stream()
+                .limit(pageSize)
+                .map(row -> {
+                    Long messageId = ((Number) row[0]).longValue();
+                    return MessageSearchResultDto.HitDto.builder()
+                            .messageId(messageId)
+                            .conversationId(((Number) row[1]).longValue())
+                            .senderId(((Number) row[2]).longValue())
+                            .senderName((String) row[3])
+                            .snippet((String) row[4])
+                            .createdAt(toLocalDateTime(row[5]))
+                            .historyBefore(messageId + 1)
+                            .build();
+                })
                 .collect(Collectors.toList());
+        
+        return MessageSearchResultDto.builder()
+                .hits(hits)
+                .nextBefore(rows.size() > pageSize ? hits.get(hits.size() - 1).getMessageId() : null)
+                .build();
     }
     
     @Override
     public UserConversationDto createConversation(Long userId, CreateUserConversationRequest request) {
-        User user1 = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        User user2 = userRepository.findById(request.getOtherUserId())
-                .orElseThrow(() -> new RuntimeException("Other user not found"));
-        
         if (userId.equals(request.getOtherUserId())) {
             throw new IllegalArgumentException("Cannot create conversation with yourself");
         }
         
-        // Check if conversation already exists
-        return userConversationRepository.findByUsers(userId, request.getOtherUserId())
-                .map(existing -> mapToConversationDto(existing, userId))
-                .orElseGet(() -> {
-                    UserConversation newConversation = UserConversation.builder()
-                            .user1(user1)
-                            .user2(user2)
-                            .isActive(true)
-                            .build();
-                    
-                    UserConversation saved = userConversationRepository.save(newConversation);
-                    return mapToConversationDto(saved, userId);
-                });
+        return getInboxEntry(getOrCreateConversationId(userId, request.getOtherUserId()), userId);
     }
     
     @Override
@@ -79,22 +155,23 @@ public class UserMessagingServiceImpl implements UserMessagingService {
             throw new IllegalArgumentException("Cannot create conversation with yourself");
         }
         
-        return userConversationRepository.findByUsers(user1Id, user2Id)
-                .map(existing -> mapToConversationDto(existing, user1Id))
+        return getInboxEntry(getOrCreateConversationId(user1Id, user2Id), user1Id);
+    }
+    
+    /**
+     * Look the pair up by its canonical key; if there is no conversation yet, insert
+     * one with an upsert so that concurrent calls for the same pair get the same row
+     */
+    private Long getOrCreateConversationId(Long userId, Long otherUserId) {
+        return userConversationRepository.findIdByPair(Math.min(userId, otherUserId), Math.max(userId, otherUserId))
                 .orElseGet(() -> {
-                    User user1 = userRepository.findById(user1Id)
-                            .orElseThrow(() -> new RuntimeException("User not found"));
-                    User user2 = userRepository.findById(user2Id)
-                            .orElseThrow(() -> new RuntimeException("Other user not found"));
-                    
-                    UserConversation newConversation = UserConversation.builder()
-                            .user1(user1)
-                            .user2(user2)
-                            .isActive(true)
-                            .build();
-                    
-                    UserConversation saved = userConversationRepository.save(newConversation);
-                    return mapToConversationDto(saved, user1Id);
+                    if (!userRepository.existsById(userId)) {
+                        throw new RuntimeException("User not found");
+                    }
+                    if (!userRepository.existsById(otherUserId)) {
+                        throw new RuntimeException("Other user not found");
+                    }
+                    return userConversationRepository.upsertPair(userId, otherUserId);
                 });
     }
     
@@ -116,72 +193,78 @@ public class UserMessagingServiceImpl implements UserMessagingService {
         
         UserMessage savedMessage = userMessageRepository.save(message);
         
-        // Update conversation's last message time
-        conversation.setLastMessageAt(savedMessage.getCreatedAt());
-        userConversationRepository.save(conversation);
+        // Update the conversation's last message and the recipient's unread counter
+        userConversationRepository.recordMessage(conversation.getId(), userId, savedMessage.getId(),
+                UserConversation.preview(savedMessage.getContent()), savedMessage.getCreatedAt());
         
-        return mapToMessageDto(savedMessage);
+        return mapToMessageDto(savedMessage, null);
     }
     
     @Override
     public void markMessagesAsRead(Long conversationId, Long userId) {
-        // Verify user has access to this conversation
-        userConversationRepository.findByIdAndUserId(conversationId, userId)
-                .orElseThrow(() -> new RuntimeException("Conversation not found or access denied"));
-        
-        userMessageRepository.markMessagesAsRead(conversationId, userId);
+        // Moves the user's read watermark to the last message; also checks access
+        if (userConversationRepository.markRead(conversationId, userId) == 0) {
+            throw new RuntimeException("Conversation not found or access denied");
+        }
     }
     
     @Override
     @Transactional(readOnly = true)
     public UserConversationDto getConversationById(Long conversationId, Long userId) {
-        UserConversation conversation = userConversationRepository.findByIdAndUserId(conversationId, userId)
+        return getInboxEntry(conversationId, userId);
+    }
+    
+    private UserConversationDto getInboxEntry(Long conversationId, Long userId) {
+        return userConversationRepository.findInboxEntry(userId, conversationId).stream()
+                .findFirst()
+                .map(this::mapInboxRow)
                 .orElseThrow(() -> new RuntimeException("Conversation not found or access denied"));
-        
-        return mapToConversationDto(conversation, userId);
     }
     
-    private UserConversationDto mapToConversationDto(UserConversation conversation, Long currentUserId) {
-        // Determine the other participant
-        User otherUser = conversation.getUser1().getId().equals(currentUserId) 
-                ? conversation.getUser2() 
-                : conversation.getUser1();
-        
+    /**
+     * Map a row of the inbox query (see {@link UserConversationRepository#INBOX_SELECT})
+     */
+    private UserConversationDto mapInboxRow(Object[] row) {
         UserConversationDto.ParticipantDto participant = UserConversationDto.ParticipantDto.builder()
-                .id(otherUser.getId())
-                .name(otherUser.getFullName())
-                .email(otherUser.getEmail())
-                .avatar(otherUser.getAvatar())
-                .role(otherUser.getRole())
+                .id(((Number) row[4]).longValue())
+                .name((String) row[5])
+                .email((String) row[6])
+                .avatar((String) row[7])
+                .role(row[8] != null ? User.Role.valueOf((String) row[8]) : null)
                 .online(false) // TODO: Implement online status tracking
                 .build();
         
-        // Get last message info
-        List<UserMessage> lastMessages = userMessageRepository.findByConversationIdOrderByCreatedAtDesc(conversation.getId());
         UserConversationDto.LastMessageDto lastMessage = null;
-        if (!lastMessages.isEmpty()) {
-            UserMessage lastMsg = lastMessages.get(0);
+        if (row[10] != null) {
             lastMessage = UserConversationDto.LastMessageDto.builder()
-                    .content(lastMsg.getContent())
-                    .timestamp(lastMsg.getCreatedAt())
-                    .senderId(lastMsg.getSender().getId())
+                    .content((String) row[9])
+                    .timestamp(toLocalDateTime(row[10]))
+                    .senderId(((Number) row[11]).longValue())
                     .build();
         }
         
-        // Count unread messages
-        int unreadCount = (int) userMessageRepository.countUnreadMessages(conversation.getId(), currentUserId);
-        
         return UserConversationDto.builder()
-                .id(conversation.getId())
+                .id(((Number) row[0]).longValue())
                 .participant(participant)
                 .lastMessage(lastMessage)
-                .unreadCount(unreadCount)
-                .createdAt(conversation.getCreatedAt())
-                .updatedAt(conversation.getUpdatedAt())
+                .unreadCount(((Number) row[12]).intValue())
+                .lastMessageAt(toLocalDateTime(row[3]))
+                .createdAt(toLocalDateTime(row[1]))
+                .updatedAt(toLocalDateTime(row[2]))
                 .build();
     }
     
-    private UserMessageDto mapToMessageDto(UserMessage message) {
+    private LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+    
+    /**
+     * @param recipientLastReadId read watermark of the recipient of the message, null if none
+     */
+    private UserMessageDto mapToMessageDto(UserMessage message, Long recipientLastReadId) {
         return UserMessageDto.builder()
                 .id(message.getId())
                 .conversationId(message.getConversation().getId())
@@ -189,7 +272,7 @@ public class UserMessagingServiceImpl implements UserMessagingService {
                 .senderName(message.getSender().getFullName())
                 .senderAvatar(message.getSender().getAvatar())
                 .content(message.getContent())
-                .isRead(message.getIsRead())
+                .isRead(recipientLastReadId != null && message.getId() <= recipientLastReadId)
                 .createdAt(message.getCreatedAt())
                 .build();
     }
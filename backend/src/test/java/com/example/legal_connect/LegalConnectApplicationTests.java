@@ -3,7 +3,7 @@ package com.example.legal_connect;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "app.notification.broker=local")
 class LegalConnectApplicationTests {
 
 	@Test
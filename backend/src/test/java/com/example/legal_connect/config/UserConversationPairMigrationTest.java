@@ -0,0 +1,263 @@
+package com.example.legal_connect.config;
+
+import com.example.legal_connect.repository.UserConversationRepository;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The pair key, {@link UserConversationRepository#upsertPair} and the snapshot backfill
+ * against an embedded PostgreSQL server, on the columns they use
+ */
+class UserConversationPairMigrationTest {
+
+    private static final String SCHEMA =
+        "DROP TABLE IF EXISTS user_messages; DROP TABLE IF EXISTS user_conversations; "
+            + "CREATE TABLE user_conversations (id BIGSERIAL PRIMARY KEY, "
+            + " user1_id BIGINT NOT NULL, user2_id BIGINT NOT NULL, "
+            + " min_user_id BIGINT GENERATED ALWAYS AS (LEAST(user1_id, user2_id)) STORED, "
+            + " max_user_id BIGINT GENERATED ALWAYS AS (GREATEST(user1_id, user2_id)) STORED, "
+            + " is_active BOOLEAN NOT NULL, user1_unread INTEGER DEFAULT 0, user2_unread INTEGER DEFAULT 0, "
+            + " user1_last_read_id BIGINT, user2_last_read_id BIGINT, last_message_id BIGINT, "
+            + " last_message_preview VARCHAR(255), last_message_at TIMESTAMP, "
+            + " created_at TIMESTAMP NOT NULL, updated_at TIMESTAMP); "
+            + "CREATE TABLE user_messages (id BIGSERIAL PRIMARY KEY, conversation_id BIGINT NOT NULL, "
+            + " sender_id BIGINT NOT NULL, content TEXT NOT NULL, is_read BOOLEAN NOT NULL DEFAULT false, "
+            + " is_active BOOLEAN NOT NULL DEFAULT true, created_at TIMESTAMP NOT NULL DEFAULT now())";
+
+    private static EmbeddedPostgres postgres;
+    private static JdbcTemplate jdbcTemplate;
+    private static NamedParameterJdbcTemplate namedJdbcTemplate;
+    private static TransactionTemplate transactionTemplate;
+    private static String upsertPair;
+
+    @BeforeAll
+    static void startPostgres() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        DataSource dataSource = postgres.getPostgresDatabase();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        namedJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        upsertPair = UserConversationRepository.class.getMethod("upsertPair", Long.class, Long.class)
+                .getAnnotation(Query.class).value();
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void createTables() {
+        jdbcTemplate.execute(SCHEMA);
+    }
+
+    private void migrate() {
+        new UserConversationPairMigration(jdbcTemplate, transactionTemplate).run();
+    }
+
+    private Long upsert(long user1Id, long user2Id) {
+        return namedJdbcTemplate.queryForObject(upsertPair, Map.of("user1Id", user1Id, "user2Id", user2Id), Long.class);
+    }
+
+    private long insertConversation(long user1Id, long user2Id, boolean active) {
+        return jdbcTemplate.queryForObject("INSERT INTO user_conversations (user1_id, user2_id, is_active, created_at) "
+                + "VALUES (?, ?, ?, now()) RETURNING id", Long.class, user1Id, user2Id, active);
+    }
+
+    private List<Long> activeIds(long user1Id, long user2Id) {
+        return jdbcTemplate.queryForList("SELECT id FROM user_conversations WHERE min_user_id = ? AND max_user_id = ? "
+                + "AND is_active = true", Long.class, Math.min(user1Id, user2Id), Math.max(user1Id, user2Id));
+    }
+
+    @Test
+    void concurrentGetOrCreateOfAPairYieldsOneConversation() throws Exception {
+        migrate();
+        int callers = 16;
+        CyclicBarrier barrier = new CyclicBarrier(callers);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                // Either user may start the conversation
+                long from = i % 2 == 0 ? 1 : 2;
+                results.add(executor.submit(() -> {
+                    barrier.await();
+                    return upsert(from, 3 - from);
+                }));
+            }
+            Set<Long> ids = new HashSet<>();
+            for (Future<Long> result : results) {
+                ids.add(result.get());
+            }
+
+            assertEquals(1, ids.size());
+            assertEquals(List.copyOf(ids), activeIds(1, 2));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void deletedConversationIsNotRevived() {
+        migrate();
+        Long deleted = upsert(1, 2);
+        jdbcTemplate.update("UPDATE user_conversations SET is_active = false WHERE id = ?", deleted);
+
+        Long created = upsert(2, 1);
+
+        assertNotEquals(deleted, created);
+        assertEquals(List.of(created), activeIds(1, 2));
+        assertEquals(Boolean.FALSE, jdbcTemplate.queryForObject(
+                "SELECT is_active FROM user_conversations WHERE id = ?", Boolean.class, deleted));
+        assertEquals(created, upsert(1, 2));
+    }
+
+    @Test
+    void activeDuplicatesAreMergedAndDeletedOnesLeftAlone() {
+        long kept = insertConversation(1, 2, true);
+        long duplicate = insertConversation(2, 1, true);
+        long deleted = insertConversation(1, 2, false);
+        jdbcTemplate.update("INSERT INTO user_messages (conversation_id, sender_id, content) VALUES (?, 2, 'Xin chào')",
+                duplicate);
+
+        migrate();
+
+        assertEquals(List.of(kept), activeIds(1, 2));
+        assertEquals(kept, jdbcTemplate.queryForObject("SELECT conversation_id FROM user_messages", Long.class));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT user1_unread FROM user_conversations WHERE id = ?", Integer.class, kept));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM user_conversations WHERE id = ?", Integer.class, deleted));
+    }
+
+    @Test
+    void duplicatesWithoutWatermarksKeepTheirReadFlags() {
+        long kept = insertConversation(1, 2, true);
+        long duplicate = insertConversation(2, 1, true);
+        jdbcTemplate.update("INSERT INTO user_messages (conversation_id, sender_id, content, is_read) "
+                + "VALUES (?, 2, 'Chào', true), (?, 1, 'Chào luật sư', true), (?, 2, 'Đã nhận hồ sơ', true)",
+                kept, kept, duplicate);
+        long unread = jdbcTemplate.queryForObject("INSERT INTO user_messages (conversation_id, sender_id, content) "
+                + "VALUES (?, 1, 'Khi nào ký hợp đồng?') RETURNING id", Long.class, duplicate);
+
+        migrate();
+
+        Map<String, Object> conversation = jdbcTemplate.queryForMap(
+                "SELECT * FROM user_conversations WHERE id = ?", kept);
+        assertEquals(unread, ((Number) conversation.get("last_message_id")).longValue());
+        assertEquals(unread, ((Number) conversation.get("user1_last_read_id")).longValue());
+        assertEquals(0, conversation.get("user1_unread"));
+        assertEquals(unread - 1, ((Number) conversation.get("user2_last_read_id")).longValue());
+        assertEquals(1, conversation.get("user2_unread"));
+    }
+
+    @Test
+    void snapshotBackfillFillsOnlyConversationsWithoutOne() {
+        long missing = insertConversation(1, 2, true);
+        long filled = insertConversation(1, 3, true);
+        long empty = insertConversation(1, 4, true);
+        long first = jdbcTemplate.queryForObject("INSERT INTO user_messages (conversation_id, sender_id, content, is_read) "
+                + "VALUES (?, 2, 'Chào', true) RETURNING id", Long.class, missing);
+        long last = jdbcTemplate.queryForObject("INSERT INTO user_messages (conversation_id, sender_id, content) "
+                + "VALUES (?, 2, 'Đã nhận hồ sơ') RETURNING id", Long.class, missing);
+        jdbcTemplate.update("INSERT INTO user_messages (conversation_id, sender_id, content, is_active) "
+                + "VALUES (?, 2, 'Đã xoá', false)", missing);
+        jdbcTemplate.update("INSERT INTO user_messages (conversation_id, sender_id, content) VALUES (?, 3, 'Mới')",
+                filled);
+        jdbcTemplate.update("UPDATE user_conversations SET last_message_id = 1, last_message_preview = 'Cũ' "
+                + "WHERE id = ?", filled);
+
+        new UserConversationSnapshotBackfill(jdbcTemplate).run();
+
+        Map<String, Object> conversation = jdbcTemplate.queryForMap(
+                "SELECT * FROM user_conversations WHERE id = ?", missing);
+        assertEquals(last, ((Number) conversation.get("last_message_id")).longValue());
+        assertEquals("Đã nhận hồ sơ", conversation.get("last_message_preview"));
+        assertEquals(first, ((Number) conversation.get("user1_last_read_id")).longValue());
+        assertEquals(1, conversation.get("user1_unread"));
+        assertEquals(last, ((Number) conversation.get("user2_last_read_id")).longValue());
+        assertEquals(0, conversation.get("user2_unread"));
+        assertEquals("Cũ", jdbcTemplate.queryForObject(
+                "SELECT last_message_preview FROM user_conversations WHERE id = ?", String.class, filled));
+        assertNull(jdbcTemplate.queryForObject(
+                "SELECT last_message_id FROM user_conversations WHERE id = ?", Long.class, empty));
+    }
+
+    @Test
+    void snapshotBackfillRunsBeforeTheMerge() {
+        assertTrue(UserConversationSnapshotBackfill.class.getAnnotation(Order.class).value()
+                < UserConversationPairMigration.class.getAnnotation(Order.class).value());
+    }
+
+    @Test
+    void fullPairKeyIsReplacedByPartialOne() {
+        jdbcTemplate.execute("ALTER TABLE user_conversations ADD CONSTRAINT uk_user_conversations_pair "
+                + "UNIQUE (min_user_id, max_user_id)");
+        long deleted = insertConversation(1, 2, false);
+
+        migrate();
+        long active = insertConversation(1, 2, true);
+
+        assertNotEquals(deleted, active);
+        String indexdef = jdbcTemplate.queryForObject(
+                "SELECT indexdef FROM pg_indexes WHERE indexname = 'uk_user_conversations_pair'", String.class);
+        assertTrue(indexdef.contains("WHERE"), indexdef);
+    }
+
+    @Test
+    void nodesStartingTogetherMigrateOneAfterTheOther() throws Exception {
+        for (long user = 2; user <= 50; user++) {
+            insertConversation(1, user, true);
+            insertConversation(user, 1, true);
+        }
+        int nodes = 4;
+        CyclicBarrier barrier = new CyclicBarrier(nodes);
+        ExecutorService executor = Executors.newFixedThreadPool(nodes);
+        try {
+            List<Future<?>> runs = new ArrayList<>();
+            for (int i = 0; i < nodes; i++) {
+                runs.add(executor.submit(() -> {
+                    barrier.await();
+                    migrate();
+                    return null;
+                }));
+            }
+            for (Future<?> run : runs) {
+                run.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(49, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM user_conversations WHERE is_active = true", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM (SELECT 1 FROM user_conversations "
+                + "WHERE is_active = true GROUP BY min_user_id, max_user_id HAVING count(*) > 1) d", Integer.class));
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.legal_connect.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link WebSocketOutboundGuard} on a clientOutbound channel with one thread and room
+ * for one queued message
+ */
+class WebSocketOutboundGuardTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, CloseStatus> closed = new ConcurrentHashMap<>();
+    private WebSocketOutboundGuard guard;
+    private ExecutorSubscribableChannel channel;
+
+    @BeforeEach
+    void startChannel() throws Exception {
+        guard = new WebSocketOutboundGuard(meterRegistry, 1, 1, 1);
+        ReflectionTestUtils.setField(guard, "sessionDropThreshold", 100);
+        ReflectionTestUtils.setField(guard, "queueOfferTimeoutMs", 100L);
+        guard.executor().initialize();
+        channel = new ExecutorSubscribableChannel(guard.executor());
+        channel.addInterceptor(guard);
+        // Session "slow" holds up the only thread until released
+        channel.subscribe(message -> {
+            String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+            if ("slow".equals(sessionId)) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            delivered.add(sessionId + " " + message.getPayload());
+        });
+
+        WebSocketHandler handler = (WebSocketHandler) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{WebSocketHandler.class}, (proxy, method, args) -> null);
+        WebSocketHandler decorated = guard.decorate(handler);
+        decorated.afterConnectionEstablished(session("slow"));
+        decorated.afterConnectionEstablished(session("fast"));
+    }
+
+    @AfterEach
+    void stopChannel() {
+        release.countDown();
+        guard.executor().shutdown();
+    }
+
+    private WebSocketSession session(String id) {
+        return (WebSocketSession) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{WebSocketSession.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getId" -> id;
+                    case "close" -> {
+                        closed.put(id, (CloseStatus) args[0]);
+                        yield null;
+                    }
+                    default -> null;
+                });
+    }
+
+    private static Message<String> message(String sessionId, String destination, String payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
+
+    private double count(String name) {
+        return meterRegistry.get(name).counters().stream().mapToDouble(counter -> counter.count()).sum();
+    }
+
+    @Test
+    void fullQueueFailsTheSendAndEvictsTheSlowestSession() {
+        channel.send(message("slow", "/user/queue/messages", "1"));
+        channel.send(message("slow", "/user/queue/messages", "2"));
+
+        long startedAt = System.nanoTime();
+        assertThrows(MessageDeliveryException.class, () -> channel.send(message("fast", "/user/queue/messages", "3")));
+
+        assertTrue(System.nanoTime() - startedAt >= TimeUnit.MILLISECONDS.toNanos(100));
+        // Not run on the sending thread either
+        assertEquals(List.of(), delivered);
+        assertEquals(CloseStatus.SESSION_NOT_RELIABLE.getCode(), closed.get("slow").getCode());
+        assertNull(closed.get("fast"));
+        assertEquals(1, count("websocket.outbound.rejected"));
+    }
+
+    @Test
+    void queuedMessageWaitsForRoom() throws Exception {
+        channel.send(message("slow", "/user/queue/messages", "1"));
+        channel.send(message("fast", "/user/queue/messages", "2"));
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            release.countDown();
+        });
+        ReflectionTestUtils.setField(guard, "queueOfferTimeoutMs", 5_000L);
+        releaser.start();
+
+        channel.send(message("fast", "/user/queue/messages", "3"));
+
+        releaser.join();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (delivered.size() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(List.of("slow 1", "fast 2", "fast 3"), delivered);
+        assertTrue(closed.isEmpty());
+        assertEquals(0, count("websocket.outbound.rejected"));
+    }
+
+    @Test
+    void typingIsDroppedWhenTheQueueIsFull() {
+        channel.send(message("slow", "/user/queue/messages", "1"));
+        channel.send(message("slow", "/user/queue/messages", "2"));
+
+        channel.send(message("fast", "/topic/typing/7", "typing"));
+
+        assertTrue(closed.isEmpty());
+        assertEquals(1, count("websocket.outbound.dropped"));
+        assertEquals(0, count("websocket.outbound.rejected"));
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.legal_connect.controller;
+
+import com.example.legal_connect.dto.common.MessageHistoryPageDto;
+import com.example.legal_connect.dto.conversation.MessageDto;
+import com.example.legal_connect.dto.conversation.SendMessageRequest;
+import com.example.legal_connect.entity.Conversation;
+import com.example.legal_connect.entity.Message.MessageRole;
+import com.example.legal_connect.entity.User;
+import com.example.legal_connect.repository.ConversationRepository;
+import com.example.legal_connect.security.UserPrincipal;
+import com.example.legal_connect.service.ApiKeyValidationService;
+import com.example.legal_connect.service.AssistantResponseGenerator;
+import com.example.legal_connect.service.AssistantStreamingService;
+import com.example.legal_connect.service.MessageService;
+import com.example.legal_connect.service.impl.StubAssistantResponseGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The streaming endpoint over {@link AssistantStreamingService}, with the stub
+ * generator and in-memory messages
+ */
+class ConversationControllerTest {
+
+    private static final Pattern EVENT = Pattern.compile("^event:(\\w+)$", Pattern.MULTILINE);
+
+    private final List<SendMessageRequest> saved = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger charges = new AtomicInteger();
+    private AssistantStreamingService service;
+    private MockMvc mockMvc;
+
+    private void start(AssistantResponseGenerator generator, int poolSize, int queueCapacity) {
+        MessageService messageService = new MessageService() {
+            @Override
+            public MessageDto sendMessage(SendMessageRequest request, Long userId) {
+                saved.add(request);
+                return MessageDto.builder().id((long) saved.size()).conversationId(request.getConversationId())
+                        .content(request.getContent()).role(request.getRole()).build();
+            }
+
+            @Override
+            public MessageHistoryPageDto<MessageDto> getConversationMessages(
+                    Long conversationId, Long userId, Long before, Long after, Integer size) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public MessageDto saveMessage(Long conversationId, String content, MessageRole role) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void deleteConversationMessages(Long conversationId) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        // Only findByIdAndUserId is used
+        ConversationRepository conversationRepository = (ConversationRepository) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{ConversationRepository.class},
+                (proxy, method, args) -> Optional.of(new Conversation()));
+        ApiKeyValidationService apiKeyValidationService = new ApiKeyValidationService(null, null) {
+            @Override
+            public void validateAndUseApiKey(Long userId, String type) {
+                charges.incrementAndGet();
+            }
+        };
+        service = new AssistantStreamingService(messageService, conversationRepository, generator,
+                apiKeyValidationService, new SimpleMeterRegistry(), poolSize, queueCapacity);
+        ReflectionTestUtils.setField(service, "streamTimeoutMs", 10_000L);
+
+        UserPrincipal user = new UserPrincipal(1L, "a@example.com", "", "A", null, User.Role.USER, true, true);
+        mockMvc = MockMvcBuilders.standaloneSetup(new ConversationController(null, messageService,
+                        apiKeyValidationService, service))
+                .setCustomArgumentResolvers(new HandlerMethodArgumentResolver() {
+                    @Override
+                    public boolean supportsParameter(MethodParameter parameter) {
+                        return parameter.getParameterType() == UserPrincipal.class;
+                    }
+
+                    @Override
+                    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+                        return user;
+                    }
+                })
+                .build();
+    }
+
+    private StubAssistantResponseGenerator stub(long delayMs) {
+        StubAssistantResponseGenerator generator = new StubAssistantResponseGenerator();
+        ReflectionTestUtils.setField(generator, "delayMs", delayMs);
+        return generator;
+    }
+
+    @AfterEach
+    void stop() {
+        ReflectionTestUtils.invokeMethod(service, "stop");
+    }
+
+    private MvcResult stream(long conversationId) throws Exception {
+        return mockMvc.perform(post("/api/conversations/messages/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"conversationId\":" + conversationId + ",\"content\":\"Thuê nhà cần gì?\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    /**
+     * Names of the events, once the stream has ended
+     */
+    private static List<String> events(MvcResult result) throws Exception {
+        result.getAsyncResult(10_000);
+        List<String> names = new ArrayList<>();
+        Matcher matcher = EVENT.matcher(result.getResponse().getContentAsString());
+        while (matcher.find()) {
+            names.add(matcher.group(1));
+        }
+        return names;
+    }
+
+    private List<SendMessageRequest> saved(MessageRole role) {
+        synchronized (saved) {
+            return saved.stream().filter(message -> message.getRole() == role).toList();
+        }
+    }
+
+    private void busy(long conversationId) throws Exception {
+        mockMvc.perform(post("/api/conversations/messages/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"conversationId\":" + conversationId + ",\"content\":\"Còn đó không?\"}"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "5"));
+    }
+
+    @Test
+    void answerIsStreamedAndSavedOnce() throws Exception {
+        start(stub(0), 2, 2);
+
+        List<String> events = events(stream(7));
+
+        assertEquals("message", events.get(0));
+        assertTrue(events.size() > 3, events.toString());
+        assertEquals(List.of("delta"), events.subList(1, events.size() - 1).stream().distinct().toList());
+        assertEquals("done", events.get(events.size() - 1));
+        assertEquals(1, saved(MessageRole.USER).size());
+        List<SendMessageRequest> answers = saved(MessageRole.ASSISTANT);
+        assertEquals(1, answers.size());
+        assertTrue(answers.get(0).getContent().contains("Thuê nhà cần gì?"), answers.get(0).getContent());
+        assertEquals(1, charges.get());
+    }
+
+    @Test
+    void busyAssistantAnswers503WithoutCharging() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        start((conversationId, prompt, onDelta) -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            onDelta.accept("Xong.");
+        }, 1, 0);
+
+        MvcResult first = stream(1);
+        // The pool is full, and conversation 1 already has an answer coming
+        busy(2);
+        busy(1);
+        assertEquals(1, charges.get());
+
+        release.countDown();
+        assertEquals(List.of("message", "delta", "done"), events(first));
+        assertEquals(List.of("message", "delta", "done"), events(stream(2)));
+        assertEquals(2, charges.get());
+    }
+
+    @Test
+    void shutdownEndsRunningAndQueuedStreamsWithoutSavingAnswers() throws Exception {
+        start(stub(10_000), 1, 1);
+        MvcResult running = stream(1);
+        MvcResult queued = stream(2);
+
+        stop();
+
+        assertEquals("error", events(running).get(events(running).size() - 1));
+        assertEquals(List.of("error"), events(queued));
+        assertEquals(List.of(), saved(MessageRole.ASSISTANT));
+    }
+}
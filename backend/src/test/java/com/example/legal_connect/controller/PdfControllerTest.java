@@ -0,0 +1,98 @@
+package com.example.legal_connect.controller;
+
+import com.example.legal_connect.entity.User;
+import com.example.legal_connect.security.UserPrincipal;
+import com.example.legal_connect.service.PdfService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PdfControllerTest {
+
+    private static final int SIZE = 1000;
+
+    @TempDir
+    Path dir;
+
+    private byte[] content;
+    private PdfController controller;
+    private final UserPrincipal user = new UserPrincipal(1L, "a@example.com", "", "A", null, User.Role.USER, true, true);
+
+    @BeforeEach
+    void storeFile() throws IOException {
+        content = new byte[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            content[i] = (byte) i;
+        }
+        Path path = Files.write(dir.resolve("document.pdf"), content);
+        PdfService.PdfFile file = new PdfService.PdfFile(path, SIZE, Instant.parse("2026-01-01T00:00:00Z"),
+                "document.pdf", "abc");
+        // Only getPdfFile is used
+        PdfService pdfService = (PdfService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{PdfService.class}, (proxy, method, args) -> file);
+        controller = new PdfController(pdfService, null, null);
+    }
+
+    private MockHttpServletResponse get(String range) throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/pdf/view/1");
+        if (range != null) {
+            request.addHeader("Range", range);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.viewPdf(1L, user, request, response);
+        return response;
+    }
+
+    private void assertNotSatisfiable(String range) throws IOException {
+        MockHttpServletResponse response = get(range);
+
+        assertEquals(416, response.getStatus(), range);
+        assertEquals("bytes */" + SIZE, response.getHeader("Content-Range"), range);
+        assertEquals(0, response.getContentAsByteArray().length, range);
+    }
+
+    @Test
+    void wholeFileWithoutRange() throws IOException {
+        MockHttpServletResponse response = get(null);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(SIZE, response.getContentLengthLong());
+        assertArrayEquals(content, response.getContentAsByteArray());
+    }
+
+    @Test
+    void singleRangeIsPartial() throws IOException {
+        MockHttpServletResponse response = get("bytes=10-19");
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 10-19/" + SIZE, response.getHeader("Content-Range"));
+        assertEquals(10, response.getContentLengthLong());
+        assertArrayEquals(java.util.Arrays.copyOfRange(content, 10, 20), response.getContentAsByteArray());
+    }
+
+    @Test
+    void rangePastTheEndIsClampedAndSuffixIsFromTheEnd() throws IOException {
+        assertEquals("bytes 990-999/" + SIZE, get("bytes=990-5000").getHeader("Content-Range"));
+        assertEquals("bytes 900-999/" + SIZE, get("bytes=-100").getHeader("Content-Range"));
+        assertEquals("bytes 999-999/" + SIZE, get("bytes=999-").getHeader("Content-Range"));
+    }
+
+    @Test
+    void rangeStartingAtOrPastTheEndIsNotSatisfiable() throws IOException {
+        assertNotSatisfiable("bytes=" + SIZE + "-");
+        assertNotSatisfiable("bytes=" + (SIZE + 500) + "-" + (SIZE + 600));
+        assertNotSatisfiable("bytes=-0");
+        assertNotSatisfiable("bytes=20-10");
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.legal_connect.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HnswIndexTest {
+
+    private static final int DIMENSION = 16;
+    private static final int M = 8;
+    private static final int EF_CONSTRUCTION = 64;
+    private static final int GROUPS = 10;
+
+    @TempDir
+    Path dir;
+
+    private static float[][] vectors(int count, long seed) {
+        Random random = new Random(seed);
+        float[][] vectors = new float[count][DIMENSION];
+        for (float[] vector : vectors) {
+            double norm = 0;
+            for (int i = 0; i < DIMENSION; i++) {
+                vector[i] = (float) random.nextGaussian();
+                norm += vector[i] * vector[i];
+            }
+            for (int i = 0; i < DIMENSION; i++) {
+                vector[i] /= (float) Math.sqrt(norm);
+            }
+        }
+        return vectors;
+    }
+
+    private HnswIndex open(int exactSearchLimit) throws IOException {
+        return HnswIndex.open(dir, DIMENSION, M, EF_CONSTRUCTION, exactSearchLimit);
+    }
+
+    /**
+     * Vector i gets label 1000 + i and group i % GROUPS
+     */
+    private static void addAll(HnswIndex index, float[][] vectors, int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            index.add(1000 + i, i % GROUPS, vectors[i]);
+        }
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static Set<Long> exact(float[][] vectors, float[] query, int k, Set<Long> groups) {
+        Set<Long> labels = new HashSet<>();
+        IntStream.range(0, vectors.length)
+                .filter(i -> groups == null || groups.contains((long) (i % GROUPS)))
+                .boxed()
+                .sorted(Comparator.comparingDouble(i -> -dot(vectors[i], query)))
+                .limit(k)
+                .forEach(i -> labels.add(1000L + i));
+        return labels;
+    }
+
+    private static Set<Long> labels(List<HnswIndex.Hit> hits) {
+        Set<Long> labels = new HashSet<>();
+        for (HnswIndex.Hit hit : hits) {
+            labels.add(hit.label());
+        }
+        return labels;
+    }
+
+    @Test
+    void searchFindsNearestNeighbours() throws IOException {
+        float[][] vectors = vectors(3000, 1);
+        float[][] queries = vectors(50, 2);
+        try (HnswIndex index = open(0)) {
+            addAll(index, vectors, 0, vectors.length);
+
+            int found = 0;
+            for (float[] query : queries) {
+                Set<Long> expected = exact(vectors, query, 10, null);
+                for (Long label : labels(index.search(query, 10, 100, null))) {
+                    if (expected.contains(label)) {
+                        found++;
+                    }
+                }
+            }
+            assertTrue(found >= 0.9 * queries.length * 10, "recall " + found / (queries.length * 10.0));
+        }
+    }
+
+    @Test
+    void storedVectorIsItsOwnBestMatch() throws IOException {
+        float[][] vectors = vectors(500, 3);
+        try (HnswIndex index = open(0)) {
+            addAll(index, vectors, 0, vectors.length);
+
+            List<HnswIndex.Hit> hits = index.search(vectors[123], 3, 32, null);
+            assertEquals(1123, hits.get(0).label());
+            assertEquals(123 % GROUPS, hits.get(0).group());
+            assertEquals(1f, hits.get(0).score(), 1e-5);
+            assertTrue(hits.get(0).score() >= hits.get(1).score());
+        }
+    }
+
+    @Test
+    void restrictedSearchKeepsToTheGroups() throws IOException {
+        float[][] vectors = vectors(2000, 4);
+        float[] query = vectors(1, 5)[0];
+        Set<Long> groups = Set.of(2L, 7L);
+        // Scanned exactly, then through the graph
+        for (int exactSearchLimit : new int[]{10_000, 0}) {
+            HnswIndex.delete(dir);
+            try (HnswIndex index = open(exactSearchLimit)) {
+                addAll(index, vectors, 0, vectors.length);
+
+                List<HnswIndex.Hit> hits = index.search(query, 10, 200, groups);
+                assertEquals(10, hits.size());
+                for (HnswIndex.Hit hit : hits) {
+                    assertTrue(groups.contains(hit.group()));
+                    assertEquals((hit.label() - 1000) % GROUPS, hit.group());
+                }
+                if (exactSearchLimit > 0) {
+                    assertEquals(exact(vectors, query, 10, groups), labels(hits));
+                }
+                assertEquals(List.of(), index.search(query, 10, 200, List.of(99L)));
+            }
+        }
+    }
+
+    @Test
+    void reopenedIndexHasSavedNodesAndCompleteGroups() throws IOException {
+        float[][] vectors = vectors(1000, 6);
+        float[] query = vectors(1, 7)[0];
+        List<HnswIndex.Hit> before;
+        try (HnswIndex index = open(0)) {
+            addAll(index, vectors, 0, vectors.length);
+            index.complete(3);
+            index.save();
+            before = index.search(query, 10, 64, null);
+        }
+
+        try (HnswIndex index = open(0)) {
+            assertEquals(vectors.length, index.size());
+            assertTrue(index.isComplete(3));
+            assertFalse(index.isComplete(4));
+            assertEquals(before, index.search(query, 10, 64, null));
+            assertEquals(vectors.length / GROUPS, index.labels(4).size());
+        }
+    }
+
+    @Test
+    void nodesAddedAfterTheSaveAreDropped() throws IOException {
+        float[][] vectors = vectors(1200, 8);
+        float[][] queries = vectors(20, 9);
+        try (HnswIndex index = open(0)) {
+            addAll(index, vectors, 0, 1000);
+            index.complete(1);
+            index.save();
+            addAll(index, vectors, 1000, 1200);
+            index.complete(2);
+        }
+
+        try (HnswIndex index = open(0)) {
+            assertEquals(1000, index.size());
+            assertTrue(index.isComplete(1));
+            assertFalse(index.isComplete(2));
+            assertEquals(100, index.labels(2).size());
+            for (float[] query : queries) {
+                for (HnswIndex.Hit hit : index.search(query, 10, 64, null)) {
+                    assertTrue(hit.label() < 2000);
+                }
+            }
+
+            // Resuming adds the dropped nodes again
+            addAll(index, vectors, 1000, 1200);
+            assertEquals(1200, index.size());
+            assertEquals(2120L, index.search(vectors[1120], 1, 32, null).get(0).label());
+        }
+    }
+
+    @Test
+    void groupIsCompleteOnlyOnceMarked() throws IOException {
+        try (HnswIndex index = open(0)) {
+            float[][] vectors = vectors(3, 10);
+            index.add(1, 5, vectors[0]);
+            index.add(2, 5, vectors[1]);
+
+            assertFalse(index.isComplete(5));
+            assertEquals(Set.of(1L, 2L), index.labels(5));
+            assertEquals(Set.of(), index.labels(6));
+
+            index.complete(5);
+            assertTrue(index.isComplete(5));
+        }
+    }
+
+    @Test
+    void indexOfAnotherDimensionIsRejected() throws IOException {
+        try (HnswIndex index = open(0)) {
+            index.add(1, 1, vectors(1, 11)[0]);
+            index.save();
+        }
+
+        assertThrows(IllegalStateException.class, () -> HnswIndex.open(dir, DIMENSION * 2, M, EF_CONSTRUCTION, 0));
+    }
+
+    @Test
+    void vectorOfWrongLengthIsRejected() throws IOException {
+        try (HnswIndex index = open(0)) {
+            assertThrows(IllegalArgumentException.class, () -> index.add(1, 1, new float[DIMENSION + 1]));
+            assertThrows(IllegalArgumentException.class, () -> index.search(new float[1], 1, 1, null));
+            assertEquals(List.of(), index.search(vectors(1, 12)[0], 5, 16, null));
+            assertEquals(0, index.size());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.legal_connect.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Mention extraction on a 50 KB HTML reply with 10,000 known names: the trie matcher,
+ * the candidate phrases sent to the name lookup, and the regex extraction it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MentionExtractorBenchmark {
+
+    private static final Pattern OLD_MENTION_PATTERN = Pattern.compile("@([\\w\\s]+)");
+    private static final String[] FAMILY = {"Nguyễn", "Trần", "Lê", "Phạm", "Hoàng", "Võ", "Đặng", "Bùi"};
+    private static final String[] MIDDLE = {"Văn", "Thị", "Minh", "Ngọc", "Hữu", "Thanh"};
+    private static final String[] GIVEN = {"An", "Bình", "Châu", "Dũng", "Hà", "Hùng", "Lan", "Long", "Mai", "Nam"};
+
+    private String html;
+    private MentionExtractor.NameTrie trie;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            names.add(FAMILY[random.nextInt(FAMILY.length)] + " " + MIDDLE[random.nextInt(MIDDLE.length)] + " "
+                    + GIVEN[random.nextInt(GIVEN.length)] + " " + i);
+        }
+        trie = MentionExtractor.NameTrie.of(names);
+
+        StringBuilder reply = new StringBuilder();
+        while (reply.length() < 50 * 1024) {
+            reply.append("<p>Theo quy định tại <strong>Điều ").append(random.nextInt(200))
+                    .append("</strong> Bộ luật Dân sự, hợp đồng &amp; giao dịch phải được lập thành văn bản.</p>");
+            if (random.nextInt(4) == 0) {
+                reply.append("<p>Cảm ơn @").append(names.get(random.nextInt(names.size())))
+                        .append(" đã chia sẻ, mời @<b>").append(names.get(random.nextInt(names.size())))
+                        .append("</b>&nbsp;cho ý kiến.</p>");
+            }
+        }
+        html = reply.toString();
+    }
+
+    @Benchmark
+    public List<String> trieMatch() {
+        return MentionExtractor.extract(html, trie);
+    }
+
+    @Benchmark
+    public Set<String> lookupCandidates() {
+        char[] text = new char[html.length()];
+        return MentionExtractor.candidates(text, MentionExtractor.toVisibleText(html, text));
+    }
+
+    @Benchmark
+    public List<String> regexBaseline() {
+        List<String> mentions = new ArrayList<>();
+        Matcher matcher = OLD_MENTION_PATTERN.matcher(html.replaceAll("<[^>]*>", " "));
+        while (matcher.find()) {
+            String name = matcher.group(1).trim();
+            if (!name.isEmpty() && !mentions.contains(name)) {
+                mentions.add(name);
+            }
+        }
+        return mentions;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MentionExtractorBenchmark.class.getSimpleName()).build()).run();
+    }
+}
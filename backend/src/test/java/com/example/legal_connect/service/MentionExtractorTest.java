@@ -0,0 +1,99 @@
+package com.example.legal_connect.service;
+
+import com.example.legal_connect.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MentionExtractorTest {
+
+    private static final MentionExtractor.NameTrie NAMES =
+            MentionExtractor.NameTrie.of(List.of("Nguyen Van A", "Nguyen Van", "Trần Thị Bình", "An"));
+
+    @Test
+    void takesLongestNameEndingOnWordBoundary() {
+        assertEquals(List.of("Nguyen Van A"), MentionExtractor.extract("<p>@Nguyen Van A cảm ơn bạn</p>", NAMES));
+        assertEquals(List.of("Nguyen Van"), MentionExtractor.extract("<p>@Nguyen Van Anh ơi</p>", NAMES));
+    }
+
+    @Test
+    void ignoresCaseAndDeduplicatesInOrder() {
+        assertEquals(List.of("Trần Thị Bình", "Nguyen Van A"),
+                MentionExtractor.extract("@trần thị bình, @NGUYEN VAN A và @Trần Thị Bình", NAMES));
+    }
+
+    @Test
+    void ignoresAtSignInsideWords() {
+        assertEquals(List.of(), MentionExtractor.extract("email: an@An.vn", NAMES));
+    }
+
+    @Test
+    void readsThroughInlineTagsAndEntities() {
+        assertEquals(List.of("Nguyen Van A"), MentionExtractor.extract("@<b>Nguyen</b>&nbsp;Van <i>A</i>", NAMES));
+        assertEquals(List.of("An"), MentionExtractor.extract("&#64;An", NAMES));
+    }
+
+    @Test
+    void blockTagsSeparateWordsInlineTagsDoNot() {
+        assertEquals(List.of("Nguyen Van A"), MentionExtractor.extract("<p>@Nguyen Van</p><p>A</p>", NAMES));
+        assertEquals(List.of(), MentionExtractor.extract("@Nguyen Van<b>A</b>", NAMES));
+    }
+
+    @Test
+    void keepsTextAfterUnclosedAngleBracket() {
+        assertEquals("1 < 2 và @An", MentionExtractor.toPlainText("1 < 2 và @An"));
+        assertEquals(List.of("An"), MentionExtractor.extract("1 < 2 và @An", NAMES));
+    }
+
+    @Test
+    void plainTextCollapsesWhitespace() {
+        assertEquals("Xin chào bạn", MentionExtractor.toPlainText("<div>Xin   chào</div>\n<p>bạn</p>"));
+    }
+
+    @Test
+    void candidatesAreEveryWordEndAfterAtUpToPunctuation() {
+        char[] text = "@Nguyen Van A, chào".toCharArray();
+        Set<String> candidates = MentionExtractor.candidates(text, text.length);
+        assertEquals(List.of("nguyen", "nguyen van", "nguyen van a"), List.copyOf(candidates));
+    }
+
+    @Test
+    void candidatesStopAfterMaxNameWords() {
+        String words = "a b c d e f g h i j k";
+        char[] text = ("@" + words).toCharArray();
+        Set<String> candidates = MentionExtractor.candidates(text, text.length);
+        assertEquals(MentionExtractor.MAX_NAME_WORDS, candidates.size());
+        assertTrue(candidates.contains(words.substring(0, 2 * MentionExtractor.MAX_NAME_WORDS - 1)));
+    }
+
+    @Test
+    void candidatesAreLookedUpInBoundedBatches() {
+        List<Integer> batchSizes = new ArrayList<>();
+        // Only findEnabledFullNamesIn is used
+        UserRepository userRepository = (UserRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, method, args) -> {
+                    Collection<?> names = (Collection<?>) args[0];
+                    batchSizes.add(names.size());
+                    return names.contains("người 5999") ? List.of("Người 5999") : List.of();
+                });
+        StringBuilder content = new StringBuilder("<p>@An");
+        for (int i = 0; i < 6000; i++) {
+            content.append(" @người ").append(i);
+        }
+
+        List<String> mentions = new MentionExtractor(userRepository).extract(content + "</p>");
+
+        assertEquals(List.of("Người 5999"), mentions);
+        assertTrue(batchSizes.size() > 1, batchSizes.toString());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= MentionExtractor.LOOKUP_BATCH_SIZE), batchSizes.toString());
+        // "an", "người" and "người <i>", each looked up once
+        assertEquals(2 + 6000, batchSizes.stream().mapToInt(Integer::intValue).sum());
+    }
+}
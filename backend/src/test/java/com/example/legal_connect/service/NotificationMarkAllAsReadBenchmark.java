@@ -0,0 +1,149 @@
+package com.example.legal_connect.service;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * markAllAsRead, the unread count, the first page of the notification list with its
+ * count, and the coalescing lookup for a user with 100,000 read notifications spread
+ * over a year, on the plain table Hibernate creates and on the monthly partitioned
+ * table with the partial unread index (see NotificationPartitionMaintenance).
+ *
+ * Run the main method; it starts an embedded PostgreSQL server. Medians measured on
+ * one core, plain / partitioned: markAllAsRead 0.9 / 2.1 ms, unread count 0.4 / 0.6 ms,
+ * first page 0.7 / 0.6 ms, page count 35 / 47 ms, coalescing lookup 0.4 / 0.7 ms.
+ * Partitioning makes none of these faster; the page count reads every row of the user
+ * in every partition on both tables.
+ */
+public class NotificationMarkAllAsReadBenchmark {
+
+    private static final String SCHEMA = "bench_notifications";
+    private static final int READ_ROWS = 100_000;
+    private static final int UNREAD_ROWS = 20;
+    private static final int OTHER_USERS = 200;
+    private static final int ROUNDS = 25;
+
+    private static final String COLUMNS = "id bigint NOT NULL, user_id bigint NOT NULL, type varchar(32) NOT NULL, "
+        + "related_entity_id bigint, related_entity_type varchar(32), message text NOT NULL, is_read boolean, "
+        + "actor_count integer, created_at timestamp NOT NULL, last_event_at timestamp";
+
+    public static void main(String[] args) throws SQLException, IOException {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start();
+             Connection connection = postgres.getPostgresDatabase().getConnection()) {
+            execute(connection, "CREATE SCHEMA " + SCHEMA);
+            execute(connection, "SET search_path TO " + SCHEMA);
+
+            execute(connection, "CREATE TABLE plain (" + COLUMNS + ", PRIMARY KEY (id))");
+            execute(connection, "CREATE INDEX ON plain (user_id, is_read)");
+            execute(connection, "CREATE INDEX ON plain (user_id, created_at)");
+            execute(connection, "CREATE INDEX ON plain (user_id, type, related_entity_type, related_entity_id)");
+
+            execute(connection, "CREATE TABLE partitioned (" + COLUMNS + ", PRIMARY KEY (id, created_at)) "
+                + "PARTITION BY RANGE (created_at)");
+            execute(connection, "CREATE TABLE partitioned_default PARTITION OF partitioned DEFAULT");
+            for (int month = 0; month <= 13; month++) {
+                execute(connection, "CREATE TABLE partitioned_m" + month + " PARTITION OF partitioned FOR VALUES "
+                    + "FROM (date_trunc('month', now()) - interval '" + (12 - month) + " months') "
+                    + "TO (date_trunc('month', now()) - interval '" + (11 - month) + " months')");
+            }
+            execute(connection, "CREATE INDEX ON partitioned (user_id, is_read)");
+            execute(connection, "CREATE INDEX ON partitioned (user_id, created_at)");
+            execute(connection, "CREATE INDEX ON partitioned (user_id, type, related_entity_type, related_entity_id)");
+            execute(connection, "CREATE INDEX ON partitioned (user_id) WHERE is_read = false");
+
+            for (String table : new String[] {"plain", "partitioned"}) {
+                fill(connection, table);
+                execute(connection, "ANALYZE " + table);
+            }
+            for (String table : new String[] {"plain", "partitioned"}) {
+                measure(connection, table);
+            }
+        }
+    }
+
+    /**
+     * User 1 has READ_ROWS read rows over the last year and UNREAD_ROWS new ones;
+     * other users add the same volume again as background
+     */
+    private static void fill(Connection connection, String table) throws SQLException {
+        execute(connection, "INSERT INTO " + table + " SELECT g, 1, 'UPVOTE', g, 'POST', 'message ' || g, true, 1, "
+            + "now() - (g % 365) * interval '1 day', now() - (g % 365) * interval '1 day' "
+            + "FROM generate_series(1, " + READ_ROWS + ") g");
+        execute(connection, "INSERT INTO " + table + " SELECT " + READ_ROWS + " + g, 2 + g % " + OTHER_USERS
+            + ", 'REPLY', g, 'POST', 'message ' || g, g % 10 <> 0, 1, "
+            + "now() - (g % 365) * interval '1 day', now() - (g % 365) * interval '1 day' "
+            + "FROM generate_series(1, " + READ_ROWS + ") g");
+    }
+
+    private static void measure(Connection connection, String table) throws SQLException {
+        String insertUnread = "INSERT INTO " + table + " SELECT " + (3 * READ_ROWS) + " + g, 1, 'REPLY', g, 'POST', "
+            + "'new', false, 1, now(), now() FROM generate_series(1, " + UNREAD_ROWS + ") g";
+        double[] markAll = new double[ROUNDS];
+        double[] count = new double[ROUNDS];
+        double[] page = new double[ROUNDS];
+        double[] pageCount = new double[ROUNDS];
+        double[] coalesce = new double[ROUNDS];
+        connection.setAutoCommit(false);
+        for (int round = 0; round < ROUNDS; round++) {
+            execute(connection, insertUnread);
+
+            count[round] = query(connection,
+                "SELECT count(*) FROM " + table + " WHERE user_id = 1 AND is_read = false");
+            // As findByUserIdOrderByCreatedAtDesc: the page, then the count Spring Data adds
+            page[round] = query(connection,
+                "SELECT * FROM " + table + " WHERE user_id = 1 ORDER BY created_at DESC LIMIT 20");
+            pageCount[round] = query(connection, "SELECT count(*) FROM " + table + " WHERE user_id = 1");
+            // As the coalescing finder, for a target with no unread aggregate
+            coalesce[round] = query(connection, "SELECT * FROM " + table + " WHERE user_id = 1 "
+                + "AND type = 'UPVOTE' AND related_entity_type = 'POST' AND related_entity_id = 0 "
+                + "AND is_read = false AND last_event_at >= now() - interval '1 hour' "
+                + "ORDER BY last_event_at DESC LIMIT 1");
+
+            long startedAt = System.nanoTime();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE " + table + " SET is_read = true WHERE user_id = ? AND is_read = false")) {
+                statement.setLong(1, 1);
+                statement.executeUpdate();
+            }
+            markAll[round] = (System.nanoTime() - startedAt) / 1e6;
+            connection.rollback();
+        }
+        connection.setAutoCommit(true);
+        System.out.printf("%-12s markAllAsRead %.2f ms, unread count %.2f ms, first page %.2f ms, "
+            + "page count %.2f ms, coalescing lookup %.2f ms%n",
+            table, median(markAll), median(count), median(page), median(pageCount), median(coalesce));
+    }
+
+    /**
+     * Milliseconds to run the query and read its rows
+     */
+    private static double query(Connection connection, String sql) throws SQLException {
+        long startedAt = System.nanoTime();
+        try (PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                // read every row
+            }
+        }
+        return (System.nanoTime() - startedAt) / 1e6;
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
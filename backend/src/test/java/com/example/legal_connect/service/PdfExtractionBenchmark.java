@@ -0,0 +1,148 @@
+package com.example.legal_connect.service;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Extraction of a 200-page PDF the way {@link PdfExtractionService} does it, one page
+ * at a time into {@link PdfTextChunker} with a checkpoint every 20 pages, against the
+ * whole text in one getText call and chunked afterwards. Reports the total time and,
+ * for the page-by-page run, the time until the first checkpoint, which is when the
+ * user first sees progress.
+ *
+ * Run the main method; the generated document is seeded so runs are comparable. Pass
+ * the path of a real PDF to measure that instead.
+ */
+public class PdfExtractionBenchmark {
+
+    private static final int PAGES = 200;
+    private static final int LINES_PER_PAGE = 50;
+    private static final int CHUNK_SIZE = 1500;
+    private static final int OVERLAP = 200;
+    private static final int CHECKPOINT_PAGES = 20;
+    private static final int ROUNDS = 5;
+
+    private static final String[] WORDS = {"dieu", "khoan", "hop", "dong", "ben", "nghia", "vu", "quyen",
+            "luat", "theo", "quy", "dinh", "cua", "phap", "tai", "san", "thoa", "thuan", "boi", "thuong"};
+
+    public static void main(String[] args) throws IOException {
+        Path file = args.length > 0 ? Path.of(args[0]) : generate();
+
+        // Warm up
+        pageByPage(file, new long[1]);
+        wholeDocument(file);
+
+        long[] pageByPage = new long[ROUNDS];
+        long[] firstCheckpoint = new long[ROUNDS];
+        long[] whole = new long[ROUNDS];
+        int pageChunks = 0;
+        int wholeChunks = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long[] checkpointAt = new long[1];
+            long startedAt = System.nanoTime();
+            pageChunks = pageByPage(file, checkpointAt);
+            pageByPage[round] = System.nanoTime() - startedAt;
+            firstCheckpoint[round] = checkpointAt[0] - startedAt;
+
+            startedAt = System.nanoTime();
+            wholeChunks = wholeDocument(file);
+            whole[round] = System.nanoTime() - startedAt;
+        }
+
+        System.out.printf("Document: %s (%,d bytes)%n", file, Files.size(file));
+        System.out.printf("Page by page: %.1f ms median, first checkpoint after %.1f ms, %d chunks%n",
+                medianMs(pageByPage), medianMs(firstCheckpoint), pageChunks);
+        System.out.printf("Whole document: %.1f ms median, %d chunks%n", medianMs(whole), wholeChunks);
+    }
+
+    /**
+     * As PdfExtractionService: returns the number of chunks and records when the first
+     * checkpoint was reached
+     */
+    private static int pageByPage(Path file, long[] firstCheckpointAt) throws IOException {
+        PdfTextChunker chunker = new PdfTextChunker(CHUNK_SIZE, OVERLAP, 0, 0, 1, 0);
+        int chunks = 0;
+        try (PDDocument pdf = Loader.loadPDF(file.toFile())) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            int pageCount = pdf.getNumberOfPages();
+            for (int page = 1; page <= pageCount; page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                chunker.addPage(page, stripper.getText(pdf));
+                if (page == pageCount) {
+                    chunker.finish();
+                }
+                if (page % CHECKPOINT_PAGES == 0 || page == pageCount) {
+                    chunks += chunker.drain().size();
+                    if (firstCheckpointAt[0] == 0) {
+                        firstCheckpointAt[0] = System.nanoTime();
+                    }
+                }
+            }
+        }
+        return chunks;
+    }
+
+    private static int wholeDocument(Path file) throws IOException {
+        String text;
+        try (PDDocument pdf = Loader.loadPDF(file.toFile())) {
+            text = new PDFTextStripper().getText(pdf);
+        }
+        PdfTextChunker chunker = new PdfTextChunker(CHUNK_SIZE, OVERLAP, 0, 0, 1, 0);
+        chunker.addPage(1, text);
+        chunker.finish();
+        return chunker.drain().size();
+    }
+
+    private static Path generate() throws IOException {
+        Path file = Files.createTempFile("pdf-extraction-benchmark-", ".pdf");
+        file.toFile().deleteOnExit();
+        Random random = new Random(42);
+        PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+        try (PDDocument pdf = new PDDocument()) {
+            for (int i = 0; i < PAGES; i++) {
+                PDPage page = new PDPage(PDRectangle.A4);
+                pdf.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(pdf, page)) {
+                    content.beginText();
+                    content.setFont(font, 10);
+                    content.setLeading(15);
+                    content.newLineAtOffset(50, 800);
+                    for (int line = 0; line < LINES_PER_PAGE; line++) {
+                        content.showText(line(random));
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            pdf.save(file.toFile());
+        }
+        return file;
+    }
+
+    private static String line(Random random) {
+        StringBuilder line = new StringBuilder();
+        while (line.length() < 90) {
+            line.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        return line.toString().strip();
+    }
+
+    private static double medianMs(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] / 1_000_000.0;
+    }
+}
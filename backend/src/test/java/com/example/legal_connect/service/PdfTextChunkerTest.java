@@ -0,0 +1,132 @@
+package com.example.legal_connect.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PdfTextChunkerTest {
+
+    private static final int CHUNK_SIZE = 100;
+    private static final int OVERLAP = 20;
+
+    private static List<String> pages(int count, long seed) {
+        Random random = new Random(seed);
+        List<String> pages = new ArrayList<>();
+        for (int page = 0; page < count; page++) {
+            StringBuilder text = new StringBuilder();
+            int words = random.nextInt(80);
+            for (int i = 0; i < words; i++) {
+                text.append("từ".repeat(1 + random.nextInt(4))).append(random.nextInt(10) == 0 ? '\n' : ' ');
+            }
+            pages.add(text.toString());
+        }
+        return pages;
+    }
+
+    private static List<PdfTextChunker.Chunk> chunkAll(List<String> pages) {
+        PdfTextChunker chunker = new PdfTextChunker(CHUNK_SIZE, OVERLAP, 0, 0, 1, 0);
+        for (int page = 1; page <= pages.size(); page++) {
+            chunker.addPage(page, pages.get(page - 1));
+        }
+        chunker.finish();
+        return chunker.drain();
+    }
+
+    @Test
+    void chunksOverlapAndStayWithinSize() {
+        List<String> pages = pages(30, 1);
+        String text = String.join("", pages);
+
+        List<PdfTextChunker.Chunk> chunks = chunkAll(pages);
+
+        assertTrue(chunks.size() > 10);
+        for (int i = 0; i < chunks.size(); i++) {
+            PdfTextChunker.Chunk chunk = chunks.get(i);
+            assertEquals(i, chunk.index());
+            assertTrue(chunk.endOffset() - chunk.startOffset() <= CHUNK_SIZE);
+            assertEquals(text.substring((int) chunk.startOffset(), (int) chunk.endOffset()).strip(), chunk.content());
+            if (i > 0) {
+                assertEquals(chunks.get(i - 1).endOffset() - OVERLAP, chunk.startOffset());
+            }
+        }
+        assertEquals(text.length(), chunks.get(chunks.size() - 1).endOffset());
+    }
+
+    @Test
+    void chunkEndsAtWhitespaceInItsSecondHalf() {
+        PdfTextChunker chunker = new PdfTextChunker(CHUNK_SIZE, OVERLAP, 0, 0, 1, 0);
+        chunker.addPage(1, "a".repeat(70) + " " + "b".repeat(100));
+        chunker.finish();
+
+        PdfTextChunker.Chunk first = chunker.drain().get(0);
+        assertEquals(71, first.endOffset());
+        assertEquals("a".repeat(70), first.content());
+    }
+
+    @Test
+    void chunkWithoutWhitespaceIsCutAtFullSize() {
+        PdfTextChunker chunker = new PdfTextChunker(CHUNK_SIZE, OVERLAP, 0, 0, 1, 0);
+        chunker.addPage(1, "a".repeat(20) + " " + "b".repeat(200));
+        chunker.finish();
+
+        assertEquals(CHUNK_SIZE, chunker.drain().get(0).endOffset());
+    }
+
+    @Test
+    void chunkSpanningPagesRecordsBoth() {
+        PdfTextChunker chunker = new PdfTextChunker(CHUNK_SIZE, OVERLAP, 0, 0, 1, 0);
+        chunker.addPage(1, "x ".repeat(30));
+        chunker.addPage(2, "y ".repeat(30));
+        chunker.addPage(3, "");
+        chunker.finish();
+
+        PdfTextChunker.Chunk first = chunker.drain().get(0);
+        assertEquals(1, first.pageStart());
+        assertEquals(2, first.pageEnd());
+    }
+
+    @Test
+    void resumingFromAnyCheckpointGivesTheSameChunks() {
+        List<String> pages = pages(40, 2);
+        List<PdfTextChunker.Chunk> expected = chunkAll(pages);
+
+        for (int stopAfter = 1; stopAfter < pages.size(); stopAfter++) {
+            PdfTextChunker before = new PdfTextChunker(CHUNK_SIZE, OVERLAP, 0, 0, 1, 0);
+            for (int page = 1; page <= stopAfter; page++) {
+                before.addPage(page, pages.get(page - 1));
+            }
+            List<PdfTextChunker.Chunk> chunks = new ArrayList<>(before.drain());
+
+            PdfTextChunker after = new PdfTextChunker(CHUNK_SIZE, OVERLAP, before.nextIndex(), before.nextStart(),
+                    before.resumePage(), before.resumeOffset());
+            for (int page = after.resumePage(); page <= pages.size(); page++) {
+                after.addPage(page, pages.get(page - 1));
+            }
+            after.finish();
+            chunks.addAll(after.drain());
+
+            assertEquals(expected, chunks, "stopped after page " + stopAfter);
+        }
+    }
+
+    @Test
+    void emptyDocumentHasNoChunks() {
+        PdfTextChunker chunker = new PdfTextChunker(CHUNK_SIZE, OVERLAP, 0, 0, 1, 0);
+        chunker.addPage(1, "");
+        chunker.addPage(2, "   \n");
+        chunker.finish();
+
+        assertEquals(List.of(), chunker.drain());
+    }
+
+    @Test
+    void overlapOfHalfTheChunkSizeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new PdfTextChunker(CHUNK_SIZE, CHUNK_SIZE / 2, 0, 0, 1, 0));
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.legal_connect.service;
+
+import com.example.legal_connect.repository.UserConversationRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * {@link PrivateMessageWriter} against an embedded PostgreSQL server, on the columns
+ * the writer uses
+ */
+class PrivateMessageWriterTest {
+
+    private static final int ID_BLOCK_SIZE = 100;
+
+    private static final String SCHEMA =
+        "DROP TABLE IF EXISTS user_messages; DROP TABLE IF EXISTS user_conversations; "
+            + "CREATE TABLE user_conversations (id BIGSERIAL PRIMARY KEY, "
+            + " user1_id BIGINT NOT NULL, user2_id BIGINT NOT NULL, is_active BOOLEAN NOT NULL DEFAULT true, "
+            + " user1_unread INTEGER DEFAULT 0, user2_unread INTEGER DEFAULT 0, "
+            + " user1_last_read_id BIGINT, user2_last_read_id BIGINT, last_message_id BIGINT, "
+            + " last_message_preview VARCHAR(255), last_message_at TIMESTAMP, updated_at TIMESTAMP); "
+            + "CREATE TABLE user_messages (id BIGSERIAL PRIMARY KEY, conversation_id BIGINT NOT NULL, "
+            + " sender_id BIGINT NOT NULL, content TEXT NOT NULL, is_read BOOLEAN NOT NULL DEFAULT false, "
+            + " is_active BOOLEAN NOT NULL DEFAULT true, created_at TIMESTAMP NOT NULL DEFAULT now())";
+
+    private static EmbeddedPostgres postgres;
+    private static JdbcTemplate jdbcTemplate;
+    private static NamedParameterJdbcTemplate namedJdbcTemplate;
+    private static TransactionTemplate transactionTemplate;
+
+    @TempDir
+    Path journalDir;
+
+    private PrivateMessageWriter writer;
+    private long conversationId;
+
+    @BeforeAll
+    static void startPostgres() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        DataSource dataSource = postgres.getPostgresDatabase();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        namedJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void startWriter() throws IOException {
+        jdbcTemplate.execute(SCHEMA);
+        conversationId = jdbcTemplate.queryForObject(
+                "INSERT INTO user_conversations (user1_id, user2_id) VALUES (1, 2) RETURNING id", Long.class);
+
+        // Only findParticipantIds is used
+        UserConversationRepository repository = (UserConversationRepository) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{UserConversationRepository.class},
+                (proxy, method, args) -> jdbcTemplate.query(
+                        "SELECT user1_id, user2_id FROM user_conversations WHERE id = ? AND is_active = true",
+                        (rs, row) -> new Object[]{rs.getLong(1), rs.getLong(2)}, args[0]));
+        writer = new PrivateMessageWriter(jdbcTemplate, transactionTemplate, repository,
+                new ObjectMapper().registerModule(new JavaTimeModule()));
+        ReflectionTestUtils.setField(writer, "journalDir", journalDir);
+        ReflectionTestUtils.setField(writer, "batchSize", 500);
+        ReflectionTestUtils.setField(writer, "idBlockSize", ID_BLOCK_SIZE);
+        ReflectionTestUtils.setField(writer, "idBlockMaxAgeMs", 60_000L);
+        ReflectionTestUtils.setField(writer, "participantCacheSize", 100);
+        writer.start();
+    }
+
+    @AfterEach
+    void stopWriter() {
+        writer.stop();
+    }
+
+    private Map<String, Object> conversation() {
+        return jdbcTemplate.queryForMap("SELECT * FROM user_conversations WHERE id = ?", conversationId);
+    }
+
+    private long sequenceValue() {
+        return jdbcTemplate.queryForObject("SELECT last_value FROM user_messages_id_seq", Long.class);
+    }
+
+    @Test
+    void idsAreHandedOutFromOneReservedBlock() {
+        long first = writer.write(conversationId, 1L, "Chào luật sư").id();
+        long second = writer.write(conversationId, 1L, "Tôi cần tư vấn").id();
+        long third = writer.write(conversationId, 2L, "Vâng").id();
+
+        assertEquals(List.of(first + 1, first + 2), List.of(second, third));
+        assertEquals(first + ID_BLOCK_SIZE - 1, sequenceValue());
+    }
+
+    @Test
+    void staleBlockIsDropped() {
+        ReflectionTestUtils.setField(writer, "idBlockMaxAgeMs", -1L);
+
+        long first = writer.write(conversationId, 1L, "Chào luật sư").id();
+        long second = writer.write(conversationId, 1L, "Tôi cần tư vấn").id();
+
+        assertEquals(first + ID_BLOCK_SIZE, second);
+    }
+
+    @Test
+    void flushInsertsMessagesAndCountsThemUnread() {
+        writer.write(conversationId, 1L, "Chào luật sư");
+        long last = writer.write(conversationId, 1L, "Tôi cần tư vấn").id();
+
+        writer.flush();
+
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT count(*) FROM user_messages", Integer.class));
+        Map<String, Object> conversation = conversation();
+        assertEquals(last, ((Number) conversation.get("last_message_id")).longValue());
+        assertEquals("Tôi cần tư vấn", conversation.get("last_message_preview"));
+        assertEquals(0, conversation.get("user1_unread"));
+        assertEquals(2, conversation.get("user2_unread"));
+    }
+
+    @Test
+    void messageFlushedBelowTheWatermarkIsNotReportedRead() {
+        long late = writer.write(conversationId, 1L, "Gửi từ nút này").id();
+        // Another node inserts a later id, which the recipient reads before the flush
+        long other = jdbcTemplate.queryForObject("INSERT INTO user_messages (conversation_id, sender_id, content) "
+                + "VALUES (?, 1, 'Gửi từ nút khác') RETURNING id", Long.class, conversationId);
+        jdbcTemplate.update("UPDATE user_conversations SET last_message_id = ?, user2_last_read_id = ?, "
+                + "user2_unread = 0, user1_last_read_id = ? WHERE id = ?", other, other, other, conversationId);
+
+        writer.flush();
+
+        Map<String, Object> conversation = conversation();
+        assertEquals(late - 1, ((Number) conversation.get("user2_last_read_id")).longValue());
+        // Recounted from the watermark: the late message and the one above it
+        assertEquals(2, conversation.get("user2_unread"));
+        // The sender's own read state is untouched
+        assertEquals(other, ((Number) conversation.get("user1_last_read_id")).longValue());
+        assertEquals(0, conversation.get("user1_unread"));
+        assertEquals(other, ((Number) conversation.get("last_message_id")).longValue());
+    }
+
+    @Test
+    void restMessageCommittedBelowTheWatermarkIsNotReportedRead() throws Exception {
+        String recordMessage = UserConversationRepository.class.getMethod("recordMessage",
+                Long.class, Long.class, Long.class, String.class, LocalDateTime.class).getAnnotation(Query.class).value();
+        long late = jdbcTemplate.queryForObject("INSERT INTO user_messages (conversation_id, sender_id, content) "
+                + "VALUES (?, 2, 'Chậm') RETURNING id", Long.class, conversationId);
+        jdbcTemplate.update("UPDATE user_conversations SET user1_last_read_id = ?, user1_unread = 0 WHERE id = ?",
+                late + 10, conversationId);
+
+        namedJdbcTemplate.update(recordMessage, Map.of("conversationId", conversationId, "senderId", 2L,
+                "messageId", late, "preview", "Chậm", "sentAt", LocalDateTime.now()));
+
+        Map<String, Object> conversation = conversation();
+        assertEquals(late - 1, ((Number) conversation.get("user1_last_read_id")).longValue());
+        assertEquals(1, conversation.get("user1_unread"));
+        assertEquals(0, conversation.get("user2_unread"));
+    }
+}
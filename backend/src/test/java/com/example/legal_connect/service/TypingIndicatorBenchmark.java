@@ -0,0 +1,104 @@
+package com.example.legal_connect.service;
+
+import com.example.legal_connect.dto.chat.ChatMessage;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Typing events forwarded to receivers with and without {@link TypingIndicatorService},
+ * on simulated time: 1000 senders each type 5 bursts of 20-100 keystrokes, 120-250 ms
+ * apart, with a 2-10 s pause between bursts; half of the bursts end with an explicit
+ * stop. Without the service every keystroke and stop is forwarded.
+ *
+ * Run the main method; the seed makes runs comparable.
+ */
+public class TypingIndicatorBenchmark {
+
+    private static final int SENDERS = 1000;
+    private static final int BURSTS = 5;
+    private static final long SWEEP_INTERVAL_MS = 1_000;
+
+    private record Event(long at, int sender, boolean stop) {
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        PriorityQueue<Event> events = new PriorityQueue<>((a, b) -> Long.compare(a.at(), b.at()));
+        for (int sender = 0; sender < SENDERS; sender++) {
+            long at = random.nextInt(10_000);
+            for (int burst = 0; burst < BURSTS; burst++) {
+                int keystrokes = 20 + random.nextInt(81);
+                for (int i = 0; i < keystrokes; i++) {
+                    events.add(new Event(at, sender, false));
+                    at += 120 + random.nextInt(131);
+                }
+                if (random.nextBoolean()) {
+                    events.add(new Event(at, sender, true));
+                }
+                at += 2_000 + random.nextInt(8_001);
+            }
+        }
+        int received = events.size();
+
+        long[] now = {0};
+        long[] forwarded = {0};
+        SimpMessagingTemplate messagingTemplate = new SimpMessagingTemplate((message, timeout) -> true) {
+            @Override
+            public void convertAndSend(String destination, Object payload) {
+                forwarded[0]++;
+            }
+
+            @Override
+            public void convertAndSendToUser(String user, String destination, Object payload) {
+                forwarded[0]++;
+            }
+        };
+        TypingIndicatorService service = new TypingIndicatorService(messagingTemplate) {
+            @Override
+            long currentTimeMillis() {
+                return now[0];
+            }
+        };
+        ReflectionTestUtils.setField(service, "refreshIntervalMs", 3_000L);
+        ReflectionTestUtils.setField(service, "timeoutMs", 5_000L);
+
+        List<ChatMessage> typing = new ArrayList<>();
+        List<ChatMessage> stop = new ArrayList<>();
+        for (int sender = 0; sender < SENDERS; sender++) {
+            String senderId = String.valueOf(sender);
+            String receiverId = String.valueOf(SENDERS + sender);
+            typing.add(ChatMessage.builder().senderId(senderId).receiverId(receiverId)
+                    .type(ChatMessage.MessageType.TYPING).build());
+            stop.add(ChatMessage.builder().senderId(senderId).receiverId(receiverId)
+                    .type(ChatMessage.MessageType.STOP_TYPING).build());
+        }
+
+        long nextSweep = SWEEP_INTERVAL_MS;
+        while (!events.isEmpty()) {
+            Event event = events.poll();
+            while (nextSweep <= event.at()) {
+                now[0] = nextSweep;
+                service.expireTyping();
+                nextSweep += SWEEP_INTERVAL_MS;
+            }
+            now[0] = event.at();
+            if (event.stop()) {
+                service.stopTyping(stop.get(event.sender()));
+            } else {
+                service.typing(typing.get(event.sender()));
+            }
+        }
+        now[0] += 10_000;
+        service.expireTyping();
+
+        System.out.printf("Typing events received: %,d%n", received);
+        System.out.printf("Forwarded without the service: %,d%n", received);
+        System.out.printf("Forwarded with the service: %,d (%.1f%% fewer)%n",
+                forwarded[0], 100.0 * (received - forwarded[0]) / received);
+    }
+}
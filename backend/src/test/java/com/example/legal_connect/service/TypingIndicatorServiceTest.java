@@ -0,0 +1,133 @@
+package com.example.legal_connect.service;
+
+import com.example.legal_connect.dto.chat.ChatMessage;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TypingIndicatorServiceTest {
+
+    private static final long REFRESH_INTERVAL_MS = 3_000;
+    private static final long TIMEOUT_MS = 5_000;
+
+    /**
+     * Destination and message of each forwarded event
+     */
+    private final List<String> sent = new ArrayList<>();
+
+    private final SimpMessagingTemplate messagingTemplate = new SimpMessagingTemplate((message, timeout) -> true) {
+        @Override
+        public void convertAndSend(String destination, Object payload) {
+            record(destination, (ChatMessage) payload);
+        }
+
+        @Override
+        public void convertAndSendToUser(String user, String destination, Object payload) {
+            record(user + destination, (ChatMessage) payload);
+        }
+    };
+
+    private long now = 1_000_000;
+
+    private final TypingIndicatorService service = new TypingIndicatorService(messagingTemplate) {
+        @Override
+        long currentTimeMillis() {
+            return now;
+        }
+    };
+
+    {
+        ReflectionTestUtils.setField(service, "refreshIntervalMs", REFRESH_INTERVAL_MS);
+        ReflectionTestUtils.setField(service, "timeoutMs", TIMEOUT_MS);
+    }
+
+    private void record(String destination, ChatMessage message) {
+        sent.add(destination + " " + message.getSenderId() + " " + message.getType());
+    }
+
+    private static ChatMessage typing(String senderId, String receiverId) {
+        return message(senderId, receiverId, ChatMessage.MessageType.TYPING);
+    }
+
+    private static ChatMessage stop(String senderId, String receiverId) {
+        return message(senderId, receiverId, ChatMessage.MessageType.STOP_TYPING);
+    }
+
+    private static ChatMessage message(String senderId, String receiverId, ChatMessage.MessageType type) {
+        return ChatMessage.builder().senderId(senderId).receiverId(receiverId).type(type).build();
+    }
+
+    @Test
+    void keystrokesWithinRefreshIntervalAreForwardedOnce() {
+        for (int i = 0; i < 10; i++) {
+            service.typing(typing("1", "2"));
+            now += 200;
+        }
+
+        assertEquals(List.of("2/queue/typing 1 TYPING"), sent);
+    }
+
+    @Test
+    void typingIsRefreshedOncePerInterval() {
+        for (int i = 0; i < 40; i++) {
+            service.typing(typing("1", "2"));
+            now += 200;
+        }
+
+        // 8 s of typing: at 0, 3 and 6 s
+        assertEquals(3, sent.size());
+    }
+
+    @Test
+    void stopIsForwardedOnlyWhenTyping() {
+        service.stopTyping(stop("1", "2"));
+        assertEquals(List.of(), sent);
+
+        service.typing(typing("1", "2"));
+        service.stopTyping(stop("1", "2"));
+        service.stopTyping(stop("1", "2"));
+
+        assertEquals(List.of("2/queue/typing 1 TYPING", "2/queue/typing 1 STOP_TYPING"), sent);
+    }
+
+    @Test
+    void typingAfterStopIsForwardedAgain() {
+        service.typing(typing("1", "2"));
+        service.stopTyping(stop("1", "2"));
+        now += 100;
+        service.typing(typing("1", "2"));
+
+        assertEquals(3, sent.size());
+        assertEquals("2/queue/typing 1 TYPING", sent.get(2));
+    }
+
+    @Test
+    void silentSenderIsStoppedBySweep() {
+        service.typing(typing("1", "2"));
+        now += TIMEOUT_MS - 1;
+        service.expireTyping();
+        assertEquals(1, sent.size());
+
+        now += 1;
+        service.expireTyping();
+        assertEquals(List.of("2/queue/typing 1 TYPING", "2/queue/typing 1 STOP_TYPING"), sent);
+
+        service.expireTyping();
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    void privateAndPublicTargetsAreTrackedSeparately() {
+        service.typing(typing("1", "2"));
+        service.typing(typing("1", "3"));
+        service.typing(typing("1", null));
+        service.typing(typing("1", null));
+
+        assertEquals(List.of("2/queue/typing 1 TYPING", "3/queue/typing 1 TYPING", "/topic/typing 1 TYPING"), sent);
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.legal_connect.service;
+
+import com.example.legal_connect.repository.ForumRepository;
+import com.example.legal_connect.repository.PostReplyRepository;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VoteCounterAggregatorTest {
+
+    /**
+     * Post counters as stored in the table; a flush's writes become visible together
+     * when its transaction commits
+     */
+    private final Map<Long, AtomicInteger> storedUpvotes = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> storedDownvotes = new ConcurrentHashMap<>();
+    private final List<long[]> staged = new ArrayList<>();
+    private volatile boolean failWrites;
+    private volatile Runnable duringWrite = () -> { };
+    // Calls in order: "flush <post id>" and "recount <skipped post ids>"
+    private final List<String> calls = new ArrayList<>();
+
+    private final ForumRepository forumRepository = (ForumRepository) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class<?>[] {ForumRepository.class}, (proxy, method, args) -> {
+                if (method.getName().equals("recountVotes")) {
+                    calls.add("recount " + args[1]);
+                    return 0;
+                }
+                if (!method.getName().equals("applyVoteDelta")) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+                if (failWrites) {
+                    throw new RuntimeException("Connection refused");
+                }
+                duringWrite.run();
+                calls.add("flush " + args[0]);
+                staged.add(new long[] {(Long) args[0], (Integer) args[1], (Integer) args[2]});
+                return List.of();
+            });
+
+    private final PostReplyRepository replyRepository = (PostReplyRepository) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class<?>[] {PostReplyRepository.class}, (proxy, method, args) -> {
+                if (method.getName().equals("recountVotes")) {
+                    return 0;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate() {
+        @Override
+        public <T> T execute(TransactionCallback<T> action) {
+            staged.clear();
+            T result = action.doInTransaction(null);
+            for (long[] write : staged) {
+                storedUpvotes.computeIfAbsent(write[0], id -> new AtomicInteger()).addAndGet((int) write[1]);
+                storedDownvotes.computeIfAbsent(write[0], id -> new AtomicInteger()).addAndGet((int) write[2]);
+            }
+            return result;
+        }
+    };
+
+    private final VoteCounterAggregator aggregator =
+            new VoteCounterAggregator(forumRepository, replyRepository, transactionTemplate);
+
+    private int stored(Map<Long, AtomicInteger> counters, long postId) {
+        AtomicInteger value = counters.get(postId);
+        return value == null ? 0 : value.get();
+    }
+
+    @Test
+    void deltasAccumulateUntilFlushed() {
+        aggregator.addPostDelta(1L, 1, 0);
+        aggregator.addPostDelta(1L, 1, 0);
+        aggregator.addPostDelta(1L, -1, 1);
+        assertEquals(1, aggregator.pendingForPost(1L).getUpvotes());
+        assertEquals(1, aggregator.pendingForPost(1L).getDownvotes());
+
+        aggregator.flush();
+
+        assertEquals(1, stored(storedUpvotes, 1L));
+        assertEquals(1, stored(storedDownvotes, 1L));
+        assertEquals(0, aggregator.pendingForPost(1L).getUpvotes());
+        assertEquals(0, aggregator.pendingForPost(1L).getDownvotes());
+    }
+
+    @Test
+    void deltaStaysVisibleUntilFlushCommits() {
+        aggregator.addPostDelta(1L, 3, 0);
+        List<Integer> seenDuringWrite = new ArrayList<>();
+        duringWrite = () -> {
+            seenDuringWrite.add(stored(storedUpvotes, 1L) + aggregator.pendingForPost(1L).getUpvotes());
+            // A vote arriving mid-flush waits for the next one
+            aggregator.addPostDelta(1L, 1, 0);
+        };
+
+        aggregator.flush();
+
+        assertEquals(List.of(3), seenDuringWrite);
+        assertEquals(3, stored(storedUpvotes, 1L));
+        assertEquals(1, aggregator.pendingForPost(1L).getUpvotes());
+
+        duringWrite = () -> { };
+        aggregator.flush();
+        assertEquals(4, stored(storedUpvotes, 1L));
+        assertEquals(0, aggregator.pendingForPost(1L).getUpvotes());
+    }
+
+    @Test
+    void failedFlushIsRetried() {
+        aggregator.addPostDelta(1L, 2, 1);
+        failWrites = true;
+        aggregator.flush();
+        assertEquals(0, stored(storedUpvotes, 1L));
+        assertEquals(2, aggregator.pendingForPost(1L).getUpvotes());
+        assertEquals(1, aggregator.pendingForPost(1L).getDownvotes());
+
+        failWrites = false;
+        aggregator.flush();
+        assertEquals(2, stored(storedUpvotes, 1L));
+        assertEquals(1, stored(storedDownvotes, 1L));
+        assertEquals(0, aggregator.pendingForPost(1L).getUpvotes());
+    }
+
+    @Test
+    void recountFlushesFirstAndSkipsTargetsWithBufferedDeltas() {
+        aggregator.addPostDelta(1L, 2, 0);
+        // A removed vote on post 2 arrives mid-flush and stays buffered
+        duringWrite = () -> aggregator.addPostDelta(2L, -1, 0);
+
+        aggregator.recount();
+
+        assertEquals(List.of("flush 1", "recount [2, 0]"), calls);
+        assertEquals(2, stored(storedUpvotes, 1L));
+        assertEquals(-1, aggregator.pendingForPost(2L).getUpvotes());
+    }
+
+    @Test
+    void recountQueryLeavesBusyTargetsAlone() throws Exception {
+        String recountVotes = ForumRepository.class.getMethod("recountVotes", LocalDateTime.class, Collection.class)
+                .getAnnotation(Query.class).value();
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+            jdbcTemplate.execute("CREATE TABLE posts (id BIGINT PRIMARY KEY, upvote_count INTEGER, downvote_count INTEGER); "
+                    + "CREATE TABLE post_votes (id BIGSERIAL PRIMARY KEY, post_id BIGINT NOT NULL, "
+                    + " vote_type VARCHAR(10) NOT NULL, created_at TIMESTAMP NOT NULL, updated_at TIMESTAMP)");
+            // Each post had two upvotes, one of them since removed
+            jdbcTemplate.execute("INSERT INTO posts VALUES (1, 2, 0), (2, 2, 0), (3, 2, 0); "
+                    + "INSERT INTO post_votes (post_id, vote_type, created_at) VALUES "
+                    + "(1, 'UPVOTE', now() - interval '1 hour'), (2, 'UPVOTE', now() - interval '1 hour'), "
+                    + "(3, 'UPVOTE', now())");
+
+            int corrected = new NamedParameterJdbcTemplate(jdbcTemplate).update(recountVotes,
+                    Map.of("quietSince", LocalDateTime.now().minusMinutes(1), "busyIds", List.of(2L, 0L)));
+
+            assertEquals(1, corrected);
+            // Post 2 has its removal buffered, post 3 was voted on within the quiet window
+            assertEquals(List.of(1, 2, 2), jdbcTemplate.queryForList(
+                    "SELECT upvote_count FROM posts ORDER BY id", Integer.class));
+        }
+    }
+
+    /**
+     * Load test: voters on a few hot posts, a flusher and readers all at once. No vote
+     * is lost, and a reader never sees fewer votes than were cast before it looked.
+     */
+    @Test
+    void concurrentVotesAreNeitherLostNorHidden() throws InterruptedException {
+        int voters = 8;
+        int votesPerVoter = 50_000;
+        int posts = 4;
+        AtomicLong[] cast = new AtomicLong[posts];
+        for (int i = 0; i < posts; i++) {
+            cast[i] = new AtomicLong();
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger hidden = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int v = 0; v < voters; v++) {
+            threads.add(new Thread(() -> {
+                await(start);
+                for (int i = 0; i < votesPerVoter; i++) {
+                    int post = ThreadLocalRandom.current().nextInt(posts);
+                    aggregator.addPostDelta((long) post, 1, 0);
+                    cast[post].incrementAndGet();
+                }
+            }));
+        }
+        Thread flusher = new Thread(() -> {
+            await(start);
+            while (!done.get()) {
+                aggregator.flush();
+            }
+        });
+        Thread reader = new Thread(() -> {
+            await(start);
+            while (!done.get()) {
+                int post = ThreadLocalRandom.current().nextInt(posts);
+                long before = cast[post].get();
+                // Pending first, as VotingService reads it
+                int pending = aggregator.pendingForPost((long) post).getUpvotes();
+                if (pending + stored(storedUpvotes, post) < before) {
+                    hidden.incrementAndGet();
+                }
+            }
+        });
+
+        long startedAt = System.nanoTime();
+        threads.forEach(Thread::start);
+        flusher.start();
+        reader.start();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsedMs = (System.nanoTime() - startedAt) / 1_000_000;
+        done.set(true);
+        flusher.join();
+        reader.join();
+        aggregator.flush();
+
+        for (int post = 0; post < posts; post++) {
+            assertEquals(cast[post].get(), stored(storedUpvotes, post));
+            assertEquals(0, aggregator.pendingForPost((long) post).getUpvotes());
+        }
+        assertEquals(0, hidden.get());
+        assertTrue(elapsedMs < 30_000, "took " + elapsedMs + " ms");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
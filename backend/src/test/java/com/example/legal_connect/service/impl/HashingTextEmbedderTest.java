@@ -0,0 +1,70 @@
+package com.example.legal_connect.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashingTextEmbedderTest {
+
+    private static final int DIMENSION = 256;
+
+    private final HashingTextEmbedder embedder = new HashingTextEmbedder(DIMENSION);
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    @Test
+    void vectorHasUnitLength() {
+        float[] vector = embedder.embed("Bên thuê có nghĩa vụ trả tiền thuê nhà đúng hạn");
+
+        assertEquals(DIMENSION, vector.length);
+        assertEquals(1f, dot(vector, vector), 1e-5);
+    }
+
+    @Test
+    void sameTextGivesSameVector() {
+        String text = "Điều 472. Hợp đồng thuê tài sản";
+
+        assertArrayEquals(embedder.embed(text), new HashingTextEmbedder(DIMENSION).embed(text));
+    }
+
+    @Test
+    void caseAndPunctuationAreIgnored() {
+        assertArrayEquals(embedder.embed("hợp đồng thuê nhà"), embedder.embed("Hợp đồng, THUÊ nhà!"));
+    }
+
+    @Test
+    void diacriticsDistinguishWords() {
+        assertFalse(dot(embedder.embed("thuế"), embedder.embed("thuê")) > 0.99f);
+    }
+
+    @Test
+    void sharedWordsScoreHigherThanUnrelatedText() {
+        float[] query = embedder.embed("tiền đặt cọc thuê nhà");
+        float related = dot(query, embedder.embed("Bên thuê nhà phải trả tiền đặt cọc trước khi nhận nhà"));
+        float unrelated = dot(query, embedder.embed("Thủ tục đăng ký kết hôn tại ủy ban nhân dân xã"));
+
+        assertTrue(related > unrelated, related + " <= " + unrelated);
+    }
+
+    @Test
+    void wordOrderChangesOnlyThePairs() {
+        float score = dot(embedder.embed("quyền sử dụng đất"), embedder.embed("đất sử dụng quyền"));
+
+        assertTrue(score < 0.99f && score > 0.5f, String.valueOf(score));
+    }
+
+    @Test
+    void textWithoutWordsGivesZeroVector() {
+        assertArrayEquals(new float[DIMENSION], embedder.embed(" ,.;- "));
+        assertArrayEquals(new float[DIMENSION], embedder.embed(""));
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.legal_connect.service.impl;
+
+import com.example.legal_connect.dto.forum.NotificationEvent;
+import com.example.legal_connect.entity.Notification;
+import com.example.legal_connect.service.NotificationBatchDelivery;
+import com.example.legal_connect.service.NotificationService;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalNotificationPublisherTest {
+
+    private static final long DELETED_USER = -1L;
+
+    /**
+     * Writes events in memory; a batch with an event for a deleted user fails whole,
+     * as the foreign key violation does in the database
+     */
+    private static class FakeNotificationService extends NotificationService {
+        final List<NotificationEvent> saved = new ArrayList<>();
+        final AtomicInteger outages = new AtomicInteger();
+        int calls;
+
+        FakeNotificationService() {
+            super(null, null, null, null, null, null);
+        }
+
+        @Override
+        public List<Notification> saveBatch(List<NotificationEvent> events) {
+            calls++;
+            if (outages.getAndUpdate(n -> Math.max(n - 1, 0)) > 0) {
+                throw new RuntimeException("Connection refused");
+            }
+            for (NotificationEvent event : events) {
+                if (event.getUserId() == DELETED_USER) {
+                    throw new RuntimeException("violates foreign key constraint");
+                }
+            }
+            saved.addAll(events);
+            return List.of();
+        }
+    }
+
+    private final FakeNotificationService notificationService = new FakeNotificationService();
+    private final LocalNotificationPublisher publisher = new LocalNotificationPublisher(
+            new NotificationBatchDelivery(notificationService, 3, 0), 100, 50);
+
+    private static NotificationEvent event(long userId) {
+        return NotificationEvent.builder()
+                .userId(userId)
+                .type(Notification.NotificationType.REPLY)
+                .message("message for " + userId)
+                .build();
+    }
+
+    @Test
+    void badEventIsDeadLetteredAlone() {
+        List<NotificationEvent> good = new ArrayList<>();
+        for (long userId = 1; userId <= 50; userId++) {
+            good.add(event(userId));
+        }
+        NotificationEvent bad = event(DELETED_USER);
+        good.subList(0, 25).forEach(publisher::publish);
+        publisher.publish(bad);
+        good.subList(25, 50).forEach(publisher::publish);
+
+        publisher.flush();
+
+        assertEquals(good, notificationService.saved);
+        assertEquals(List.of(bad), publisher.getDeadLetters());
+    }
+
+    @Test
+    void transientFailureIsRetriedAsBatch() {
+        notificationService.outages.set(2);
+        List<NotificationEvent> events = List.of(event(1), event(2), event(3));
+        events.forEach(publisher::publish);
+
+        publisher.flush();
+
+        assertEquals(events, notificationService.saved);
+        assertTrue(publisher.getDeadLetters().isEmpty());
+        assertEquals(3, notificationService.calls);
+    }
+
+    @Test
+    void batchesAreCappedAtBatchSize() {
+        LocalNotificationPublisher small = new LocalNotificationPublisher(
+                new NotificationBatchDelivery(notificationService, 1, 0), 10, 50);
+        for (long userId = 1; userId <= 25; userId++) {
+            small.publish(event(userId));
+        }
+
+        small.flush();
+
+        assertEquals(25, notificationService.saved.size());
+        assertEquals(3, notificationService.calls);
+    }
+}
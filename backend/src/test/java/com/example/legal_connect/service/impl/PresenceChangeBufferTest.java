@@ -0,0 +1,124 @@
+package com.example.legal_connect.service.impl;
+
+import com.example.legal_connect.dto.chat.OnlineUsersDelta;
+import com.example.legal_connect.dto.chat.UserOnlineStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PresenceChangeBufferTest {
+
+    private final PresenceChangeBuffer buffer = new PresenceChangeBuffer();
+
+    private static UserOnlineStatus status(String userId) {
+        return UserOnlineStatus.builder().userId(userId).userType("USER").online(true).build();
+    }
+
+    private static List<String> joinedIds(OnlineUsersDelta delta) {
+        List<String> ids = new ArrayList<>();
+        delta.getJoined().forEach(status -> ids.add(status.getUserId()));
+        return ids;
+    }
+
+    @Test
+    void nothingPendingDrainsToNull() {
+        assertNull(buffer.drain(0));
+        assertEquals(0, buffer.currentSequence());
+    }
+
+    @Test
+    void drainReturnsChangesOnce() {
+        buffer.joined(status("1"));
+        buffer.left("2");
+
+        OnlineUsersDelta delta = buffer.drain(7);
+
+        assertEquals(List.of("1"), joinedIds(delta));
+        assertEquals(List.of("2"), delta.getLeft());
+        assertEquals(7, delta.getTotalOnline());
+        assertNull(buffer.drain(7));
+    }
+
+    @Test
+    void latestChangePerUserWins() {
+        UserOnlineStatus rejoined = status("1");
+        buffer.joined(status("1"));
+        buffer.left("1");
+        buffer.joined(rejoined);
+        buffer.joined(status("2"));
+        buffer.left("2");
+
+        OnlineUsersDelta delta = buffer.drain(1);
+
+        assertEquals(1, delta.getJoined().size());
+        assertSame(rejoined, delta.getJoined().get(0));
+        assertEquals(List.of("2"), delta.getLeft());
+    }
+
+    @Test
+    void sequenceIncreasesByOnePerDelta() {
+        buffer.joined(status("1"));
+        assertEquals(1, buffer.drain(1).getSequence());
+        assertNull(buffer.drain(1));
+        buffer.left("1");
+        assertEquals(2, buffer.drain(0).getSequence());
+        assertEquals(2, buffer.currentSequence());
+    }
+
+    @Test
+    void concurrentChangesAreNotLost() throws InterruptedException {
+        int writers = 4;
+        int usersPerWriter = 10_000;
+        Set<String> seen = new HashSet<>();
+        AtomicBoolean done = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < usersPerWriter; i++) {
+                    buffer.joined(status(writer + "-" + i));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        Thread drainer = new Thread(() -> {
+            while (!done.get()) {
+                OnlineUsersDelta delta = buffer.drain(0);
+                if (delta != null) {
+                    seen.addAll(joinedIds(delta));
+                }
+            }
+        });
+        drainer.start();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        done.set(true);
+        drainer.join();
+        OnlineUsersDelta rest = buffer.drain(0);
+        if (rest != null) {
+            seen.addAll(joinedIds(rest));
+        }
+
+        assertEquals(writers * usersPerWriter, seen.size());
+        assertTrue(buffer.currentSequence() > 0);
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.legal_connect.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two nodes sharing one embedded Redis server
+ */
+class RedisOnlineUserServiceTest {
+
+    private static final long NODE_TTL_MS = 20_000;
+    private static final long SESSION_KEY_TTL_MS = 60_000;
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private final List<RedisMessageListenerContainer> containers = new ArrayList<>();
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void flush() {
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+    }
+
+    @AfterEach
+    void stopContainers() throws Exception {
+        for (RedisMessageListenerContainer container : containers) {
+            container.destroy();
+        }
+    }
+
+    private RedisOnlineUserService node(String nodeId) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.afterPropertiesSet();
+        container.start();
+        containers.add(container);
+
+        SimpMessagingTemplate messagingTemplate = new SimpMessagingTemplate((message, timeout) -> true);
+        RedisOnlineUserService service = new RedisOnlineUserService(redisTemplate, container, messagingTemplate,
+                new ObjectMapper().findAndRegisterModules(), nodeId);
+        ReflectionTestUtils.setField(service, "nodeTtlMs", NODE_TTL_MS);
+        ReflectionTestUtils.setField(service, "sessionKeyTtlMs", SESSION_KEY_TTL_MS);
+        service.start();
+        return service;
+    }
+
+    private static void eventually(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met within 5 s");
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void userOnOneNodeIsOnlineOnBoth() throws InterruptedException {
+        RedisOnlineUserService a = node("node-a");
+        RedisOnlineUserService b = node("node-b");
+
+        a.addUser("1", "Nguyễn Văn An", "USER", "s1", null);
+
+        assertTrue(a.isUserOnline("1"));
+        eventually(() -> b.isUserOnline("1"));
+    }
+
+    @Test
+    void userGoesOfflineWithTheLastSession() throws InterruptedException {
+        RedisOnlineUserService a = node("node-a");
+        RedisOnlineUserService b = node("node-b");
+        a.addUser("1", "Nguyễn Văn An", "USER", "s1", null);
+        b.addUser("1", "Nguyễn Văn An", "USER", "s2", null);
+
+        a.removeUserBySessionId("s1");
+        Thread.sleep(200);
+        assertTrue(a.isUserOnline("1"));
+        assertTrue(b.isUserOnline("1"));
+
+        b.removeUserBySessionId("s2");
+        eventually(() -> !a.isUserOnline("1") && !b.isUserOnline("1"));
+    }
+
+    @Test
+    void sessionsOfDeadNodeAreClosed() throws InterruptedException {
+        RedisOnlineUserService a = node("node-a");
+        RedisOnlineUserService b = node("node-b");
+        a.addUser("1", "Nguyễn Văn An", "USER", "s1", null);
+        eventually(() -> b.isUserOnline("1"));
+
+        // node-a stops heartbeating
+        redisTemplate.opsForZSet().add("presence:nodes", "node-a", System.currentTimeMillis() - 2 * NODE_TTL_MS);
+        b.heartbeat();
+
+        eventually(() -> !b.isUserOnline("1"));
+        assertFalse(redisTemplate.hasKey("presence:node-sessions:node-a"));
+    }
+
+    @Test
+    void restartUnderSameNodeIdClosesSessionsOfPreviousRun() throws InterruptedException {
+        RedisOnlineUserService before = node("node-a");
+        RedisOnlineUserService other = node("node-b");
+        before.addUser("1", "Nguyễn Văn An", "USER", "s1", null);
+        eventually(() -> other.isUserOnline("1"));
+
+        // Crash without stop(), then start again within the node TTL
+        node("node-a");
+
+        eventually(() -> !other.isUserOnline("1"));
+        assertFalse(redisTemplate.opsForHash().hasKey("presence:users", "1"));
+    }
+
+    @Test
+    void sessionSetsExpire() {
+        RedisOnlineUserService a = node("node-a");
+        a.addUser("1", "Nguyễn Văn An", "USER", "s1", null);
+
+        Long userTtl = redisTemplate.getExpire("presence:user-sessions:1");
+        Long nodeTtl = redisTemplate.getExpire("presence:node-sessions:node-a");
+        assertTrue(userTtl != null && userTtl > 0 && userTtl <= SESSION_KEY_TTL_MS / 1000, "user-sessions TTL " + userTtl);
+        assertTrue(nodeTtl != null && nodeTtl > 0 && nodeTtl <= SESSION_KEY_TTL_MS / 1000, "node-sessions TTL " + nodeTtl);
+    }
+}
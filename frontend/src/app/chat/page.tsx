@@ -1,6 +1,6 @@
 'use client';
 
-import { useEffect, useRef, useState, useMemo } from "react";
+import { useCallback, useEffect, useLayoutEffect, useRef, useState, useMemo } from "react";
 import { useRouter, useSearchParams } from "next/navigation";
 import { ChatMessage, LoadingMessage } from "@/components/chat/chat-message";
 import { ChatInput } from "@/components/chat/chat-input";
@@ -29,6 +29,11 @@ export default function ChatPage() {
   const [isLoadingConversations, setIsLoadingConversations] = useState(true);
   const [isSidebarCollapsed, setIsSidebarCollapsed] = useState(false);
   const bottomRef = useRef<HTMLDivElement>(null);
+  // History loads the newest page; older pages are prepended when scrolled to the top
+  const [olderMessages, setOlderMessages] = useState<{ conversationId?: string; before: number | null }>({ before: null });
+  const [isLoadingOlderMessages, setIsLoadingOlderMessages] = useState(false);
+  const scrollRef = useRef<HTMLDivElement>(null);
+  const heightBeforePrepend = useRef<number | null>(null);
   
   // API Key state
   const [isApiKeyValid, setIsApiKeyValid] = useState(false);
@@ -90,9 +95,12 @@ export default function ChatPage() {
       
       try {
         setIsLoadingMessages(true);
+        setOlderMessages({ conversationId: activeConversationId, before: null });
         console.log('🔥 Loading messages for conversationId:', activeConversationId);
-        const messages = await getConversationHistory(activeConversationId);
+        const page = await getConversationHistory(activeConversationId);
+        const messages = page.messages;
         console.log('🔥 API returned messages:', messages);
+        setOlderMessages({ conversationId: activeConversationId, before: page.nextBefore });
         setConversations(prev => {
           const conversationIndex = prev.findIndex(c => c.id == activeConversationId);
           if (conversationIndex === -1) {
@@ -137,9 +145,57 @@ export default function ChatPage() {
     return found?.messages || [];
   }, [activeConversationId, conversations]);
 
+  const loadOlderMessages = useCallback(async () => {
+    const conversationId = activeConversationId;
+    const before = olderMessages.before;
+    if (!conversationId || olderMessages.conversationId !== conversationId
+        || before === null || isLoadingOlderMessages) {
+      return;
+    }
+    try {
+      setIsLoadingOlderMessages(true);
+      const page = await getConversationHistory(conversationId, before);
+      heightBeforePrepend.current = scrollRef.current?.scrollHeight ?? null;
+      setConversations(prev => prev.map(c => c.id == conversationId
+        ? { ...c, messages: [...page.messages, ...(c.messages || [])] }
+        : c));
+      setOlderMessages(prev => prev.conversationId === conversationId
+        ? { conversationId, before: page.nextBefore }
+        : prev);
+    } catch (error) {
+      console.error('Error loading older messages:', error);
+    } finally {
+      setIsLoadingOlderMessages(false);
+    }
+  }, [activeConversationId, olderMessages, isLoadingOlderMessages, getConversationHistory]);
+
+  const handleMessagesScroll = () => {
+    if (scrollRef.current && scrollRef.current.scrollTop < 80) {
+      loadOlderMessages();
+    }
+  };
+
+  // A first page too short to scroll cannot reach the top; keep loading until it can
+  useEffect(() => {
+    const container = scrollRef.current;
+    if (container && !isLoadingMessages && container.scrollHeight <= container.clientHeight) {
+      loadOlderMessages();
+    }
+  }, [isLoadingMessages, loadOlderMessages]);
+
+  // Keep the messages in view where they were when older ones are prepended
+  useLayoutEffect(() => {
+    if (heightBeforePrepend.current !== null && scrollRef.current) {
+      scrollRef.current.scrollTop += scrollRef.current.scrollHeight - heightBeforePrepend.current;
+      heightBeforePrepend.current = null;
+    }
+  }, [currentMessages]);
+
+  // Only when a message arrives at the end, not when older ones are prepended
+  const lastMessageId = currentMessages[currentMessages.length - 1]?.id;
   useEffect(() => {
     bottomRef.current?.scrollIntoView({ behavior: 'smooth' });
-  }, [currentMessages, isProcessing]);
+  }, [lastMessageId, isProcessing]);
 
   const handleNewChat = async () => {
     try {
@@ -359,7 +415,7 @@ export default function ChatPage() {
           </div>
         ) : (
           <>
-            <div className="flex-1 overflow-y-auto">
+            <div ref={scrollRef} onScroll={handleMessagesScroll} className="flex-1 overflow-y-auto">
               <div className="mx-auto px-4 py-6">
                 {isLoadingMessages ? (
                   <div className="flex justify-center items-center h-[calc(100vh-300px)]">
@@ -372,6 +428,9 @@ export default function ChatPage() {
                   <WelcomeScreen onPromptClick={handleSendMessage} />
                 ) : (
                   <div className="space-y-6">
+                    {isLoadingOlderMessages && (
+                      <p className="text-gray-500 text-sm text-center">Đang tải tin nhắn cũ hơn...</p>
+                    )}
                     {currentMessages.map((message: Message) => (
                       <ChatMessage
                         key={message.id}
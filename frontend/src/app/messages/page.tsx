@@ -12,7 +12,7 @@ import { useAuthUseCases } from '@/hooks/use-auth-cases';
 import { useMessagingUseCases } from '@/hooks/use-messaging-cases';
 import { useWebSocketStore } from '@/stores/web-socket-store';
 import { LoadingSpinner } from '@/components/ui/loading-spinner';
-import { UserConversation, UserMessage } from '@/domain/entities';
+import { UserConversation, UserConversationCursor, UserMessage } from '@/domain/entities';
 import { StompSubscription } from '@stomp/stompjs';
 
 type ViewMode = 'conversations' | 'newConversation';
@@ -20,8 +20,12 @@ type ViewMode = 'conversations' | 'newConversation';
 export default function MessagesPage() {
 
   const [conversations, setConversations] = useState<UserConversation[]>([]);
+  const [conversationsCursor, setConversationsCursor] = useState<UserConversationCursor | null>(null);
+  const [loadingMoreConversations, setLoadingMoreConversations] = useState(false);
   const [selectedConversation, setSelectedConversation] = useState<UserConversation | null>(null);
   const [messages, setMessages] = useState<UserMessage[]>([]);
+  const [olderMessagesCursor, setOlderMessagesCursor] = useState<number | null>(null);
+  const [loadingOlderMessages, setLoadingOlderMessages] = useState(false);
   const [loading, setLoading] = useState(true);
   const [viewMode, setViewMode] = useState<ViewMode>('conversations');
   
@@ -226,12 +230,14 @@ export default function MessagesPage() {
         }
         setCurrentUser({ id: user.id, name: user.fullName });
         // Không gọi connect ở đây nữa vì WebSocketProvider đã quản lý
-        const userConversations = await getConversations(user.id);
-        setConversations(userConversations);
+        const page = await getConversations(user.id);
+        setConversations(page.conversations);
+        setConversationsCursor(page.next);
       } catch (error) {
         console.error('Error loading messages:', error);
         setCurrentUser({ id: 1, name: 'Current User' });
         setConversations([]);
+        setConversationsCursor(null);
       } finally {
         setLoading(false);
       }
@@ -239,6 +245,26 @@ export default function MessagesPage() {
     loadData();
   }, [getCurrentUser, getConversations]);
 
+  const loadMoreConversations = useCallback(async () => {
+    if (!currentUser || !conversationsCursor || loadingMoreConversations) {
+      return;
+    }
+    try {
+      setLoadingMoreConversations(true);
+      const page = await getConversations(currentUser.id, conversationsCursor);
+      // A conversation that became active meanwhile may already be on top of the list
+      setConversations(prev => [
+        ...prev,
+        ...page.conversations.filter(c => !prev.some(p => p.id === c.id)),
+      ]);
+      setConversationsCursor(page.next);
+    } catch (error) {
+      console.error('Error loading more conversations:', error);
+    } finally {
+      setLoadingMoreConversations(false);
+    }
+  }, [currentUser, conversationsCursor, loadingMoreConversations, getConversations]);
+
   useEffect(() => {
     if (conversations.length > 0 && conversationParam) {
       const conv = conversations.find(c => c.id.toString() === conversationParam);
@@ -270,26 +296,48 @@ export default function MessagesPage() {
     }
   }, [conversations, conversationParam, currentUser, markMessagesAsRead]);
 
+  const loadLatestMessages = useCallback(async (conversationId: string) => {
+    const page = await getConversationMessages(conversationId);
+    setMessages(page.messages);
+    setOlderMessagesCursor(page.nextBefore);
+  }, [getConversationMessages]);
+
+  const loadOlderMessages = useCallback(async () => {
+    if (!activeConversationId || olderMessagesCursor === null || loadingOlderMessages) {
+      return;
+    }
+    try {
+      setLoadingOlderMessages(true);
+      const page = await getConversationMessages(activeConversationId, olderMessagesCursor);
+      setMessages(prev => [...page.messages, ...prev]);
+      setOlderMessagesCursor(page.nextBefore);
+    } catch (error) {
+      console.error('Error loading older messages:', error);
+    } finally {
+      setLoadingOlderMessages(false);
+    }
+  }, [activeConversationId, olderMessagesCursor, loadingOlderMessages, getConversationMessages]);
+
   useEffect(() => {
     if (selectedConversation) {
-      getConversationMessages(selectedConversation.id.toString()).then(setMessages);
+      loadLatestMessages(selectedConversation.id.toString());
     } else if (conversationParam && conversations.length > 0) {
       // Load messages cho conversation từ URL ngay cả khi selectedConversation chưa được set
       const conv = conversations.find(c => c.id.toString() === conversationParam);
       if (conv) {
-        getConversationMessages(conversationParam).then(setMessages);
+        loadLatestMessages(conversationParam);
       }
     } else {
       setMessages([]);
+      setOlderMessagesCursor(null);
     }
-  }, [selectedConversation, conversationParam, conversations, getConversationMessages]);
+  }, [selectedConversation, conversationParam, conversations, loadLatestMessages]);
 
   const handleSelectConversation = async (conversation: UserConversation) => {
     setSelectedConversation(conversation);
     router.push(`/messages?conversation=${conversation.id}`);
     try {
-      const conversationMessages = await getConversationMessages(conversation.id.toString());
-      setMessages(conversationMessages);
+      await loadLatestMessages(conversation.id.toString());
       if (currentUser && conversation.unreadCount > 0) {
         await markMessagesAsRead(conversation.id.toString(), currentUser.id);
         setConversations(prev => 
@@ -452,6 +500,9 @@ export default function MessagesPage() {
               selectedConversation={selectedConversation}
               onSelectConversation={handleSelectConversation}
               currentUserId={currentUser?.id}
+              hasMore={conversationsCursor !== null}
+              loadingMore={loadingMoreConversations}
+              onLoadMore={loadMoreConversations}
             />
           </Card>
 
@@ -462,6 +513,9 @@ export default function MessagesPage() {
               messages={selectedConversation ? messages : []}
               currentUserId={currentUser?.id}
               onSendMessage={handleSendMessage}
+              hasOlder={olderMessagesCursor !== null}
+              loadingOlder={loadingOlderMessages}
+              onLoadOlder={loadOlderMessages}
             />
           </Card>
         </div>
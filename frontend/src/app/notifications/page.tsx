@@ -122,7 +122,7 @@ export default function NotificationsPage() {
                     </p>
                     <div className="flex items-center gap-2 mt-1">
                       <span className="text-xs text-gray-500">
-                        {formatTimeAgo(notification.createdAt)}
+                        {formatTimeAgo(notification.lastEventAt ?? notification.createdAt)}
                       </span>
                       {!notification.isRead && (
                         <Badge variant="secondary" className="text-xs">
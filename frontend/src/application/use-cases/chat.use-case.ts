@@ -1,4 +1,4 @@
-import { Message, ChatConversation } from '../../domain/entities';
+import { Message, ChatConversation, MessageHistoryPage } from '../../domain/entities';
 import { ChatRepository } from '../../domain/interfaces/repositories';
 
 export class SendMessageUseCase {
@@ -12,8 +12,8 @@ export class SendMessageUseCase {
 export class GetConversationHistoryUseCase {
   constructor(private chatRepository: ChatRepository) {}
 
-  async execute(conversationId: string): Promise<Message[]> {
-    return this.chatRepository.getMessages(conversationId);
+  async execute(conversationId: string, before?: number): Promise<MessageHistoryPage<Message>> {
+    return this.chatRepository.getMessages(conversationId, before);
   }
 }
 
@@ -1,19 +1,19 @@
 import { MessagingRepository } from '../../domain/interfaces/repositories';
-import { UserConversation, UserMessage } from '../../domain/entities';
+import { MessageHistoryPage, UserConversation, UserConversationCursor, UserConversationPage, UserMessage } from '../../domain/entities';
 
 export class GetConversationsUseCase {
   constructor(private messagingRepository: MessagingRepository) {}
 
-  async execute(userId: number): Promise<UserConversation[]> {
-    return await this.messagingRepository.getConversations(userId);
+  async execute(userId: number, cursor?: UserConversationCursor): Promise<UserConversationPage> {
+    return await this.messagingRepository.getConversations(userId, cursor);
   }
 }
 
 export class GetConversationMessagesUseCase {
   constructor(private messagingRepository: MessagingRepository) {}
 
-  async execute(conversationId: string): Promise<UserMessage[]> {
-    return await this.messagingRepository.getConversationMessages(conversationId);
+  async execute(conversationId: string, before?: number): Promise<MessageHistoryPage<UserMessage>> {
+    return await this.messagingRepository.getConversationMessages(conversationId, before);
   }
 }
 
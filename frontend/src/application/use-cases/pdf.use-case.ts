@@ -1,4 +1,4 @@
-import { PdfConversation, PdfMessage, PdfUploadResult, PythonPdfUploadResult, PdfSummaryResult } from '../../domain/entities';
+import { PdfConversation, PdfMessage, PdfUploadResult, PythonPdfUploadResult, PdfSummaryResult, MessageHistoryPage } from '../../domain/entities';
 import { PdfRepository } from '../../domain/interfaces/repositories';
 
 export class UploadPdfUseCase {
@@ -44,8 +44,8 @@ export class SendMessageUseCase {
 export class GetMessagesUseCase {
   constructor(private pdfRepository: PdfRepository) {}
 
-  async execute(conversationId: number): Promise<PdfMessage[]> {
-    return this.pdfRepository.getMessages(conversationId);
+  async execute(conversationId: number, before?: number): Promise<MessageHistoryPage<PdfMessage>> {
+    return this.pdfRepository.getMessages(conversationId, before);
   }
 }
 
@@ -15,6 +15,9 @@ interface ChatWindowProps {
   messages: UserMessage[];
   currentUserId?: number;
   onSendMessage: (content: string) => void;
+  hasOlder?: boolean;
+  loadingOlder?: boolean;
+  onLoadOlder?: () => void;
 }
 
 export function ChatWindow({
@@ -22,6 +25,9 @@ export function ChatWindow({
   messages,
   currentUserId,
   onSendMessage,
+  hasOlder,
+  loadingOlder,
+  onLoadOlder,
 }: ChatWindowProps) {
   const [newMessage, setNewMessage] = useState("");
   const messagesEndRef = useRef<HTMLDivElement>(null);
@@ -77,9 +83,11 @@ export function ChatWindow({
     messagesEndRef.current?.scrollIntoView({ behavior: "smooth" });
   };
 
+  // Only when a message arrives at the end, not when older ones are prepended
+  const lastMessageId = messages[messages.length - 1]?.id;
   useEffect(() => {
     scrollToBottom();
-  }, [messages]);
+  }, [lastMessageId]);
 
   const handleSubmit = (e: React.FormEvent) => {
     e.preventDefault();
@@ -262,6 +270,13 @@ export function ChatWindow({
       <CardContent className="flex-1 p-0">
         <ScrollArea className="h-[450px] p-4">
           <div className="space-y-4">
+            {hasOlder && onLoadOlder && (
+              <div className="text-center">
+                <Button variant="ghost" size="sm" onClick={onLoadOlder} disabled={loadingOlder}>
+                  {loadingOlder ? "Đang tải..." : "Xem tin nhắn cũ hơn"}
+                </Button>
+              </div>
+            )}
             {messages
               .filter(
                 (msg, idx, arr) => arr.findIndex((m) => m.id === msg.id) === idx
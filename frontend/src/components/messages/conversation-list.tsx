@@ -4,6 +4,7 @@ import { Badge } from '@/components/ui/badge';
 import { CardHeader, CardTitle, CardContent } from '@/components/ui/card';
 import { Search } from 'lucide-react';
 import { Input } from '@/components/ui/input';
+import { Button } from '@/components/ui/button';
 import { UserConversation } from '@/domain/entities';
 
 interface ConversationListProps {
@@ -11,6 +12,9 @@ interface ConversationListProps {
   selectedConversation: UserConversation | null;
   onSelectConversation: (conversation: UserConversation) => void;
   currentUserId?: number;
+  hasMore?: boolean;
+  loadingMore?: boolean;
+  onLoadMore?: () => void;
 }
 
 export function ConversationList({
@@ -18,6 +22,9 @@ export function ConversationList({
   selectedConversation,
   onSelectConversation
   , currentUserId
+  , hasMore
+  , loadingMore
+  , onLoadMore
 }: ConversationListProps) {
   const formatTime = (timestamp: string) => {
     const date = new Date(timestamp);
@@ -125,6 +132,13 @@ export function ConversationList({
                   </div>
                 </div>
               ))}
+              {hasMore && onLoadMore && (
+                <div className="p-4 text-center">
+                  <Button variant="outline" size="sm" onClick={onLoadMore} disabled={loadingMore}>
+                    {loadingMore ? 'Đang tải...' : 'Tải thêm'}
+                  </Button>
+                </div>
+              )}
             </div>
           )}
         </ScrollArea>
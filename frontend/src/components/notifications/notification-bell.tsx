@@ -83,7 +83,7 @@ export function NotificationBell() {
                 <div className="flex flex-col gap-1 w-full">
                   <p className="text-sm">{notification.message}</p>
                   <p className="text-xs text-gray-500">
-                    {formatTimeAgo(notification.createdAt)}
+                    {formatTimeAgo(notification.lastEventAt ?? notification.createdAt)}
                   </p>
                 </div>
               </DropdownMenuItem>
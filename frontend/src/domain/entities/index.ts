@@ -310,6 +310,24 @@ export interface UserConversation {
   updatedAt: string;
 }
 
+// A page of message history in chronological order
+export interface MessageHistoryPage<T> {
+  messages: T[];
+  nextBefore: number | null; // pass as before to load older messages; null when there are none
+  nextAfter: number | null; // pass as after to keep paging forward; null once caught up
+}
+
+// Cursor of the next inbox page: lastMessageAt and id of the last conversation loaded
+export interface UserConversationCursor {
+  before: string;
+  beforeId: number;
+}
+
+export interface UserConversationPage {
+  conversations: UserConversation[];
+  next: UserConversationCursor | null; // null on the last page
+}
+
 // Admin entities
 export interface AdminUser {
   id: number;
@@ -386,6 +404,7 @@ export interface NotificationDto {
   type: "INFO" | "WARNING" | "ERROR" | "SUCCESS";
   isRead: boolean;
   createdAt: string;
+  lastEventAt?: string; // newest event of a coalesced notification
   updatedAt?: string;
 }
 
@@ -16,6 +16,9 @@ import {
   PdfSummaryResult,
   UserMessage,
   UserConversation,
+  UserConversationCursor,
+  UserConversationPage,
+  MessageHistoryPage,
   ForumStatsDto,
   PopularTopicDto,
   CategoryStatsDto,
@@ -30,7 +33,10 @@ import {
 export interface ChatRepository {
   getConversations(): Promise<ChatConversation[]>;
   getConversation(id: string): Promise<ChatConversation>;
-  getMessages(conversationId: string): Promise<Message[]>;
+  getMessages(
+    conversationId: string,
+    before?: number
+  ): Promise<MessageHistoryPage<Message>>;
   createConversation(title: string): Promise<ChatConversation>;
   updateConversationTitle(id: string, title: string): Promise<ChatConversation>;
   deleteConversation(id: string): Promise<void>;
@@ -146,7 +152,10 @@ export interface PdfRepository {
   getConversation(id: number): Promise<PdfConversation>;
   getConversationWithDetails(id: number): Promise<PdfConversation>;
   sendMessage(conversationId: number, content: string): Promise<PdfMessage>;
-  getMessages(conversationId: number): Promise<PdfMessage[]>;
+  getMessages(
+    conversationId: number,
+    before?: number
+  ): Promise<MessageHistoryPage<PdfMessage>>;
   updateConversationTitle(id: number, title: string): Promise<PdfConversation>;
   deleteConversation(id: number): Promise<void>;
   getPdfViewUrl(conversationId: number): string;
@@ -158,8 +167,14 @@ export interface PdfRepository {
 }
 
 export interface MessagingRepository {
-  getConversations(userId: number): Promise<UserConversation[]>;
-  getConversationMessages(conversationId: string): Promise<UserMessage[]>;
+  getConversations(
+    userId: number,
+    cursor?: UserConversationCursor
+  ): Promise<UserConversationPage>;
+  getConversationMessages(
+    conversationId: string,
+    before?: number
+  ): Promise<MessageHistoryPage<UserMessage>>;
   sendMessage(
     conversationId: string,
     content: string,
@@ -18,11 +18,11 @@ export function useChatUseCases() {
     []
   );
 
-  const getConversationHistory = useCallback((conversationId: string) => {
+  const getConversationHistory = useCallback((conversationId: string, before?: number) => {
     const useCase = container.getUseCase<GetConversationHistoryUseCase>(
       'GetConversationHistoryUseCase'
     );
-    return useCase.execute(conversationId);
+    return useCase.execute(conversationId, before);
   }, []);
 
   const getConversations = useCallback(() => {
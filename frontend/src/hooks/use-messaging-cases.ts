@@ -8,16 +8,17 @@ import {
   GetOrCreateConversationUseCase,
   MarkMessagesAsReadUseCase,
 } from '../application/use-cases/messaging.use-case';
+import { UserConversationCursor } from '../domain/entities';
 
 export function useMessagingUseCases() {
-  const getConversations = useCallback((userId: number) => {
+  const getConversations = useCallback((userId: number, cursor?: UserConversationCursor) => {
     const useCase = container.getUseCase<GetConversationsUseCase>('MessagingGetConversationsUseCase');
-    return useCase.execute(userId);
+    return useCase.execute(userId, cursor);
   }, []);
 
-  const getConversationMessages = useCallback((conversationId: string) => {
+  const getConversationMessages = useCallback((conversationId: string, before?: number) => {
     const useCase = container.getUseCase<GetConversationMessagesUseCase>('GetConversationMessagesUseCase');
-    return useCase.execute(conversationId);
+    return useCase.execute(conversationId, before);
   }, []);
 
   const sendMessage = useCallback((conversationId: string, content: string, senderId: number) => {
@@ -45,8 +45,8 @@ export const usePdfCases = () => {
     return sendPdfMessageUseCase.execute(conversationId, content);
   }, [sendPdfMessageUseCase]);
 
-  const getMessages = useCallback(async (conversationId: number) => {
-    return getPdfMessagesUseCase.execute(conversationId);
+  const getMessages = useCallback(async (conversationId: number, before?: number) => {
+    return getPdfMessagesUseCase.execute(conversationId, before);
   }, [getPdfMessagesUseCase]);
 
   const deleteConversation = useCallback(async (conversationId: number) => {
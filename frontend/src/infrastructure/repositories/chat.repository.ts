@@ -1,5 +1,5 @@
 import { ChatRepository } from '../../domain/interfaces/repositories';
-import { Message, ChatConversation } from '../../domain/entities';
+import { Message, ChatConversation, MessageHistoryPage } from '../../domain/entities';
 import { apiClient } from '@/lib/axiosInstance';
 
 export class HttpChatRepository implements ChatRepository {
@@ -24,10 +24,12 @@ export class HttpChatRepository implements ChatRepository {
     }
   }
 
-  async getMessages(conversationId: string): Promise<Message[]> {
+  async getMessages(conversationId: string, before?: number): Promise<MessageHistoryPage<Message>> {
     try {
-      const response = await apiClient.get(`/conversations/${conversationId}/messages`);
-      return response.data as Message[];
+      const response = await apiClient.get(`/conversations/${conversationId}/messages`, {
+        params: { before },
+      });
+      return response.data as MessageHistoryPage<Message>;
     } catch (error) {
       console.error('Failed to fetch messages:', error);
       throw new Error('Failed to fetch messages');
@@ -1,21 +1,45 @@
 import { MessagingRepository } from "../../domain/interfaces/repositories";
-import { UserConversation, UserMessage } from "../../domain/entities";
+import {
+  UserConversation,
+  UserConversationCursor,
+  UserConversationPage,
+  UserMessage,
+  MessageHistoryPage,
+} from "../../domain/entities";
 import { apiClient } from "@/lib/axiosInstance";
 
 export class MessagingRepositoryImpl implements MessagingRepository {
-  async getConversations(_userId: number): Promise<UserConversation[]> {
+  async getConversations(
+    _userId: number,
+    cursor?: UserConversationCursor
+  ): Promise<UserConversationPage> {
     // eslint-disable-line @typescript-eslint/no-unused-vars
-    const response = await apiClient.get("/user-conversations");
-    return response.data as UserConversation[];
+    const response = await apiClient.get("/user-conversations", {
+      params: cursor,
+    });
+    const data = response.data as {
+      conversations: UserConversation[];
+      nextBefore: string | null;
+      nextBeforeId: number | null;
+    };
+    return {
+      conversations: data.conversations,
+      next:
+        data.nextBefore && data.nextBeforeId != null
+          ? { before: data.nextBefore, beforeId: data.nextBeforeId }
+          : null,
+    };
   }
 
   async getConversationMessages(
-    conversationId: string
-  ): Promise<UserMessage[]> {
+    conversationId: string,
+    before?: number
+  ): Promise<MessageHistoryPage<UserMessage>> {
     const response = await apiClient.get(
-      `/user-conversations/${conversationId}/messages`
+      `/user-conversations/${conversationId}/messages`,
+      { params: { before } }
     );
-    return response.data as UserMessage[];
+    return response.data as MessageHistoryPage<UserMessage>;
   }
 
   async sendMessage(
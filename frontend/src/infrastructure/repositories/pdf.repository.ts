@@ -1,5 +1,5 @@
 import { PdfRepository } from '../../domain/interfaces/repositories';
-import { PdfConversation, PdfMessage, PdfUploadResult, PythonPdfUploadResult, PdfSummaryResult } from '../../domain/entities';
+import { PdfConversation, PdfMessage, PdfUploadResult, PythonPdfUploadResult, PdfSummaryResult, MessageHistoryPage } from '../../domain/entities';
 import { apiClient } from '../../lib/axiosInstance';
 
 interface ConversationResponse {
@@ -176,13 +176,19 @@ export class HttpPdfRepository implements PdfRepository {
     };
   }
 
-  async getMessages(conversationId: number): Promise<PdfMessage[]> {
-    const response = await apiClient.get<ApiMessageResponse[]>(`/conversations/${conversationId}/messages`);
+  async getMessages(conversationId: number, before?: number): Promise<MessageHistoryPage<PdfMessage>> {
+    const response = await apiClient.get<MessageHistoryPage<ApiMessageResponse>>(
+      `/conversations/${conversationId}/messages`,
+      { params: { before } }
+    );
 
-    return response.data.map((msg) => ({
-      ...msg,
-      createdAt: new Date(msg.createdAt),
-    }));
+    return {
+      ...response.data,
+      messages: response.data.messages.map((msg) => ({
+        ...msg,
+        createdAt: new Date(msg.createdAt),
+      })),
+    };
   }
 
   async deleteConversation(id: number): Promise<void> {